@@ -0,0 +1,132 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.TeamImpl;
+
+/**
+ * Loads the default boards of stages for the benchmarks. The stages the benchmarks use are chosen to
+ * cover plain blocks, metal, frozen blocks and wood.<br>
+ * <br>
+ * Each stage's team is fixed to the species most common in its default board, whatever team is
+ * configured for it, so the benchmarks do the same work everywhere.
+ * 
+ * @author Andrew Meyers
+ */
+public final class BenchmarkBoards {
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_CASCADE_MEMO = "CASCADE_MEMO";
+   private static final String KEY_APPROXIMATE_MODE = "APPROXIMATE_MODE";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final String BOARD_RESOURCE = "config/defaults/boards/%s.txt";
+   private static final int TEAM_SIZE = 4;
+   // The seed of every core, so each run simulates the same samples.
+   private static final long SEED = 42L;
+   
+   private static ShuffleController controller = null;
+   
+   private BenchmarkBoards() {
+   }
+   
+   /**
+    * @param stageName
+    *           The stage whose default board is simulated
+    * @param feeders
+    *           The number of feeders to simulate each move with
+    * @return A core for the default board of the given stage. Moves are never pruned, cascades are
+    *         never memoised and only the current turn is searched, so every run does the same work.
+    */
+   public static synchronized SimulationCore getCore(String stageName, int feeders) {
+      getController();
+      Stage stage = controller.getModel().getStageManager().getStageValue(stageName);
+      if (stage == null) {
+         throw new IllegalArgumentException("No such stage: " + stageName);
+      }
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, feeders);
+      controller.setCurrentStage(stage);
+      controller.loadDefaultGrid();
+      controller.getModel().getTeamManager().setTeamForStage(getTeam(controller.getBoardManager().getBoard()), stage);
+      SimulationCore core = new SimulationCore(controller, UUID.randomUUID());
+      core.setRandomSeed(SEED);
+      return core;
+   }
+   
+   /**
+    * @return The name of every stage which has a default board, in the order the stages are listed.
+    */
+   public static synchronized List<String> getStageNames() {
+      List<String> ret = new ArrayList<String>();
+      for (Stage stage : getController().getModel().getStageManager().getAllStages()) {
+         if (ClassLoader.getSystemResource(String.format(BOARD_RESOURCE, stage.getName())) != null) {
+            ret.add(stage.getName());
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * @return A team of the species most common in the given board, other than blocks such as wood and
+    *         metal. Ties are broken by name.
+    */
+   static TeamImpl getTeam(Board board) {
+      Map<Species, Integer> counts = new HashMap<Species, Integer>();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            Species s = board.getSpeciesAt(row, col);
+            if (!Species.FIXED_SPECIES.contains(s)) {
+               counts.merge(s, 1, Integer::sum);
+            }
+         }
+      }
+      List<Species> species = new ArrayList<Species>(counts.keySet());
+      species.sort(Comparator.comparing((Species s) -> -counts.get(s)).thenComparing(Species::getName));
+      TeamImpl team = new TeamImpl();
+      for (Species s : species.subList(0, Math.min(TEAM_SIZE, species.size()))) {
+         team.addName(s.getName(), null);
+      }
+      return team;
+   }
+   
+   private static ShuffleController getController() {
+      if (controller == null) {
+         controller = new ShuffleController();
+         controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+         controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, false);
+         controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_CASCADE_MEMO, false);
+         controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_APPROXIMATE_MODE, false);
+         controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 1);
+      }
+      return controller;
+   }
+}
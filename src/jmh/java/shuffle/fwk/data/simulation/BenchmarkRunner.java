@@ -0,0 +1,151 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler, writes their results as CSV, and compares them
+ * against a baseline results file from an earlier version if there is one.<br>
+ * <br>
+ * <code>[results file] [baseline file] [benchmark pattern]</code><br>
+ * To record a new baseline, copy the results file over the baseline file.
+ * 
+ * @author Andrew Meyers
+ */
+public class BenchmarkRunner {
+   
+   private static final String DEFAULT_RESULTS = "target/jmh-results.csv";
+   private static final String DEFAULT_BASELINE = "src/jmh/baseline.csv";
+   private static final String DEFAULT_INCLUDE = BenchmarkRunner.class.getPackage().getName()
+         + ".Simulation.*Benchmarks";
+   private static final String BENCHMARK_COLUMN = "Benchmark";
+   private static final String SCORE_COLUMN = "Score";
+   private static final String UNIT_COLUMN = "Unit";
+   private static final String PARAM_PREFIX = "Param: ";
+   
+   public static void main(String[] args) throws RunnerException, IOException {
+      String results = args.length > 0 ? args[0] : DEFAULT_RESULTS;
+      String baseline = args.length > 1 ? args[1] : DEFAULT_BASELINE;
+      String include = args.length > 2 ? args[2] : DEFAULT_INCLUDE;
+      File resultsFile = new File(results);
+      if (resultsFile.getParentFile() != null) {
+         resultsFile.getParentFile().mkdirs();
+      }
+      Options options = new OptionsBuilder().include(include).addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.CSV).result(results).build();
+      new Runner(options).run();
+      File baselineFile = new File(baseline);
+      if (baselineFile.exists()) {
+         compare(readScores(baselineFile), readScores(resultsFile));
+      } else {
+         System.out.println("No baseline at " + baseline + ", copy " + results + " there to record one.");
+      }
+   }
+   
+   /**
+    * Prints every score which is in both results, and how much it changed.
+    */
+   private static void compare(Map<String, String[]> baseline, Map<String, String[]> current) {
+      System.out.println(String.format("%-90s %14s %14s %9s %s", "Benchmark", "Baseline", "Current", "Change",
+            "Unit"));
+      for (Map.Entry<String, String[]> entry : current.entrySet()) {
+         String[] before = baseline.get(entry.getKey());
+         if (before == null) {
+            continue;
+         }
+         double was = Double.parseDouble(before[0]);
+         double is = Double.parseDouble(entry.getValue()[0]);
+         String change = was == 0 ? "n/a" : String.format("%+.1f%%", (is - was) * 100 / was);
+         System.out.println(String.format("%-90s %14.3f %14.3f %9s %s", entry.getKey(), was, is, change,
+               entry.getValue()[1]));
+      }
+   }
+   
+   /**
+    * @return The score and unit of every benchmark and profiler result, by its name and parameters.
+    */
+   private static Map<String, String[]> readScores(File file) throws IOException {
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      Map<String, String[]> ret = new LinkedHashMap<String, String[]>();
+      if (lines.isEmpty()) {
+         return ret;
+      }
+      List<String> header = parseLine(lines.get(0));
+      int benchmark = header.indexOf(BENCHMARK_COLUMN);
+      int score = header.indexOf(SCORE_COLUMN);
+      int unit = header.indexOf(UNIT_COLUMN);
+      for (String line : lines.subList(1, lines.size())) {
+         List<String> values = parseLine(line);
+         if (values.size() != header.size()) {
+            continue;
+         }
+         StringBuilder key = new StringBuilder(values.get(benchmark));
+         for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).startsWith(PARAM_PREFIX) && !values.get(i).isEmpty()) {
+               key.append(' ').append(header.get(i).substring(PARAM_PREFIX.length())).append('=')
+                     .append(values.get(i));
+            }
+         }
+         ret.put(key.toString(), new String[] { values.get(score), values.get(unit) });
+      }
+      return ret;
+   }
+   
+   /**
+    * Splits a line of CSV as written by JMH, where any value may be quoted.
+    */
+   private static List<String> parseLine(String line) {
+      List<String> ret = new ArrayList<String>();
+      StringBuilder cur = new StringBuilder();
+      boolean quoted = false;
+      for (int i = 0; i < line.length(); i++) {
+         char c = line.charAt(i);
+         if (c == '"') {
+            if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+               cur.append(c);
+               i++;
+            } else {
+               quoted = !quoted;
+            }
+         } else if (c == ',' && !quoted) {
+            ret.add(cur.toString());
+            cur.setLength(0);
+         } else {
+            cur.append(c);
+         }
+      }
+      ret.add(cur.toString());
+      return ret;
+   }
+}
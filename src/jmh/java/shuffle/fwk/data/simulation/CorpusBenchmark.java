@@ -0,0 +1,271 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.fwk.data.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import shuffle.fwk.data.Board;
+
+/**
+ * Times the whole simulation of the default boards of a fixed subset of stages, and fails if any
+ * board got slower than in a baseline from an earlier version. The subset is picked by a fixed seed
+ * from the stages whose default boards are full, as a board in play would be. Each board is
+ * simulated by a core from {@link BenchmarkBoards}, with its fixed team and the same seed every
+ * time, so each run does the same work.<br>
+ * <br>
+ * Every board is simulated once to warm up, then timed a few times. The least wall time is kept,
+ * since noise only ever adds to it, along with the samples simulated per second at that time and
+ * the largest peak heap. The peak heap is the sum of each heap pool's peak, so it is an upper bound.<br>
+ * <br>
+ * A board is slower if its wall time or peak heap grew by more than the tolerance, and by more than
+ * a small amount which is noise whatever the tolerance. Boards whose team or samples differ from
+ * the baseline are not compared.<br>
+ * <br>
+ * <code>[results file] [baseline file] [boards] [feeders] [runs] [time tolerance %] [heap tolerance %]</code><br>
+ * To record a new baseline, copy the results file over the baseline file.
+ * 
+ * @author Andrew Meyers
+ */
+public class CorpusBenchmark {
+   
+   private static final String DEFAULT_RESULTS = "target/corpus-results.csv";
+   private static final String DEFAULT_BASELINE = "src/jmh/corpus-baseline.csv";
+   private static final int DEFAULT_BOARDS = 30;
+   private static final int DEFAULT_FEEDERS = 10;
+   private static final int DEFAULT_RUNS = 5;
+   private static final double DEFAULT_TIME_TOLERANCE = 20.0;
+   private static final double DEFAULT_HEAP_TOLERANCE = 25.0;
+   // Changes smaller than these are noise, however large they are next to the baseline
+   private static final double MIN_TIME_CHANGE = 5.0;
+   private static final double MIN_HEAP_CHANGE = 16.0;
+   // The seed which picks the subset of stages
+   private static final long SUBSET_SEED = 42L;
+   private static final double NANOS_PER_MILLI = 1e6;
+   private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+   private static final String HEADER = "Board,Team,Samples,Wall ms,Samples/s,Peak heap MB";
+   
+   public static void main(String[] args) throws IOException {
+      String results = args.length > 0 ? args[0] : DEFAULT_RESULTS;
+      String baseline = args.length > 1 ? args[1] : DEFAULT_BASELINE;
+      int boards = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BOARDS;
+      int feeders = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FEEDERS;
+      int runs = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_RUNS;
+      double timeTolerance = args.length > 5 ? Double.parseDouble(args[5]) : DEFAULT_TIME_TOLERANCE;
+      double heapTolerance = args.length > 6 ? Double.parseDouble(args[6]) : DEFAULT_HEAP_TOLERANCE;
+      
+      List<String> stages = getSubset(boards);
+      for (String stage : stages) {
+         BenchmarkBoards.getCore(stage, feeders).getResults();
+      }
+      List<BoardResult> current = new ArrayList<BoardResult>();
+      System.out.println(HEADER);
+      for (String stage : stages) {
+         BoardResult result = measure(stage, feeders, runs);
+         System.out.println(result.toLine());
+         current.add(result);
+      }
+      File resultsFile = new File(results);
+      if (resultsFile.getParentFile() != null) {
+         resultsFile.getParentFile().mkdirs();
+      }
+      List<String> lines = new ArrayList<String>();
+      lines.add(HEADER);
+      for (BoardResult result : current) {
+         lines.add(result.toLine());
+      }
+      Files.write(resultsFile.toPath(), lines, StandardCharsets.UTF_8);
+      
+      File baselineFile = new File(baseline);
+      int slower = 0;
+      if (baselineFile.exists()) {
+         slower = compare(readResults(baselineFile), current, timeTolerance, heapTolerance);
+         System.out.println(String.format("%d of %d boards are slower than %s", slower, current.size(), baseline));
+      } else {
+         System.out.println("No baseline at " + baseline + ", copy " + results + " there to record one.");
+      }
+      System.exit(slower == 0 ? 0 : 1);
+   }
+   
+   /**
+    * @param boards
+    *           The number of stages to pick
+    * @return The names of that many stages with full default boards, picked by a fixed seed and in the
+    *         order the stages are listed.
+    */
+   private static List<String> getSubset(int boards) {
+      List<String> all = BenchmarkBoards.getStageNames();
+      all.removeIf(stage -> !isFull(BenchmarkBoards.getCore(stage, 1).getBoardCopy()));
+      List<String> ret = new ArrayList<String>(all);
+      Collections.shuffle(ret, new Random(SUBSET_SEED));
+      ret = new ArrayList<String>(ret.subList(0, Math.min(boards, ret.size())));
+      ret.sort(Comparator.comparingInt(all::indexOf));
+      return ret;
+   }
+   
+   private static boolean isFull(Board board) {
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if (board.isAir(row, col)) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+   
+   private static BoardResult measure(String stage, int feeders, int runs) {
+      SimulationCore core = BenchmarkBoards.getCore(stage, feeders);
+      int samples = core.getPossibleMoves(core.getBoardCopy()).size() * feeders;
+      TreeSet<String> team = new TreeSet<String>();
+      core.getSupportSpecies().forEach(s -> team.add(s.getName()));
+      long[] times = new long[runs];
+      long peak = 0L;
+      for (int i = 0; i < runs; i++) {
+         SimulationCore run = BenchmarkBoards.getCore(stage, feeders);
+         System.gc();
+         List<MemoryPoolMXBean> pools = getHeapPools();
+         pools.forEach(MemoryPoolMXBean::resetPeakUsage);
+         long start = System.nanoTime();
+         run.getResults();
+         times[i] = System.nanoTime() - start;
+         peak = Math.max(peak, pools.stream().mapToLong(p -> p.getPeakUsage().getUsed()).sum());
+      }
+      Arrays.sort(times);
+      double wallTime = times[0] / NANOS_PER_MILLI;
+      return new BoardResult(stage, String.join(" ", team), samples, wallTime, samples * 1000.0 / wallTime,
+            peak / BYTES_PER_MB);
+   }
+   
+   private static List<MemoryPoolMXBean> getHeapPools() {
+      List<MemoryPoolMXBean> ret = new ArrayList<MemoryPoolMXBean>();
+      for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+         if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+            ret.add(pool);
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * Prints how every board which is in both results changed, and which of them are slower.
+    * 
+    * @return The number of boards which are slower.
+    */
+   private static int compare(Map<String, BoardResult> baseline, List<BoardResult> current, double timeTolerance,
+         double heapTolerance) {
+      System.out.println(String.format("%-12s %12s %12s %9s %12s %12s %9s", "Board", "Baseline ms", "Current ms",
+            "Change", "Baseline MB", "Current MB", "Change"));
+      int slower = 0;
+      double baselineTotal = 0.0;
+      double currentTotal = 0.0;
+      for (BoardResult result : current) {
+         BoardResult before = baseline.get(result.board);
+         if (before == null) {
+            continue;
+         }
+         if (!before.team.equals(result.team) || before.samples != result.samples) {
+            System.out.println(String.format("%-12s not comparable, its team or samples changed", result.board));
+            continue;
+         }
+         baselineTotal += before.wallTime;
+         currentTotal += result.wallTime;
+         boolean isSlower = isWorse(before.wallTime, result.wallTime, timeTolerance, MIN_TIME_CHANGE)
+               || isWorse(before.peakHeap, result.peakHeap, heapTolerance, MIN_HEAP_CHANGE);
+         if (isSlower) {
+            slower++;
+         }
+         System.out.println(String.format("%-12s %12.1f %12.1f %9s %12.1f %12.1f %9s%s", result.board,
+               before.wallTime, result.wallTime, getChange(before.wallTime, result.wallTime), before.peakHeap,
+               result.peakHeap, getChange(before.peakHeap, result.peakHeap), isSlower ? "  SLOWER" : ""));
+      }
+      System.out.println(String.format("%-12s %12.1f %12.1f %9s", "Total", baselineTotal, currentTotal,
+            getChange(baselineTotal, currentTotal)));
+      return slower;
+   }
+   
+   private static boolean isWorse(double was, double is, double tolerance, double minChange) {
+      return is - was > minChange && is > was * (1 + tolerance / 100);
+   }
+   
+   private static String getChange(double was, double is) {
+      return was == 0 ? "n/a" : String.format("%+.1f%%", (is - was) * 100 / was);
+   }
+   
+   /**
+    * @return Every board's result in the given results file, by board.
+    */
+   private static Map<String, BoardResult> readResults(File file) throws IOException {
+      List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+      Map<String, BoardResult> ret = new LinkedHashMap<String, BoardResult>();
+      for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+         String[] values = line.split(",");
+         if (values.length == 6) {
+            BoardResult result = new BoardResult(values[0], values[1], Integer.parseInt(values[2]),
+                  Double.parseDouble(values[3]), Double.parseDouble(values[4]), Double.parseDouble(values[5]));
+            ret.put(result.board, result);
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * The measurements of one board, as a line of the results file.
+    */
+   private static class BoardResult {
+      
+      private final String board;
+      private final String team;
+      private final int samples;
+      private final double wallTime;
+      private final double samplesPerSecond;
+      private final double peakHeap;
+      
+      public BoardResult(String board, String team, int samples, double wallTime, double samplesPerSecond,
+            double peakHeap) {
+         this.board = board;
+         this.team = team;
+         this.samples = samples;
+         this.wallTime = wallTime;
+         this.samplesPerSecond = samplesPerSecond;
+         this.peakHeap = peakHeap;
+      }
+      
+      public String toLine() {
+         return String.format(Locale.ROOT, "%s,%s,%d,%.3f,%.1f,%.1f", board, team, samples, wallTime,
+               samplesPerSecond, peakHeap);
+      }
+   }
+}
@@ -0,0 +1,173 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Effect;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.simulation.effects.ActivateComboEffect;
+import shuffle.fwk.data.simulation.effects.ActivateMegaComboEffect;
+
+/**
+ * Times {@link Effect#handleCombo(ActivateComboEffect, SimulationTask)} for every effect, so the
+ * effects which dominate a simulation can be found. The parameters are filled in from
+ * {@link Effect} and {@link ComboKind}, so every new effect is timed without changing this.<br>
+ * <br>
+ * Each effect handles a match of three made on the default board of a stage which has metal, wood
+ * and frozen blocks, in a task where every chance succeeds, so the effect does all it can. A
+ * {@link ComboKind#MEGA} combo is one which repeats, as persistent and mega effects do for most of
+ * their work.<br>
+ * <br>
+ * Each call is on a new task, and the allocation reported for it includes that task. The
+ * allocation of the task alone is reported by {@link #newTask()}, to be taken away.
+ * 
+ * @author Andrew Meyers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class EffectBenchmarks {
+   
+   /**
+    * The form in which an effect handles a combo.
+    */
+   public enum ComboKind {
+      ACTIVATION,
+      MEGA;
+   }
+   
+   private static final String STAGE = "278";
+   private static final List<Integer> COMBO = Arrays.asList(1, 1, 1, 2, 1, 3);
+   private static final Random CERTAIN = new CertainRandom();
+   
+   @Param
+   public Effect effect;
+   
+   @Param
+   public ComboKind kind;
+   
+   private SimulationCore core;
+   private SimulationFeeder feeder;
+   private Species species;
+   private SimulationTask task;
+   private ActivateComboEffect combo;
+   
+   @Setup(Level.Trial)
+   public void setUpTrial() {
+      core = BenchmarkBoards.getCore(STAGE, 1);
+      feeder = new SimulationFeeder();
+      species = getComboSpecies(core);
+   }
+   
+   @Setup(Level.Invocation)
+   public void setUpInvocation() {
+      task = newTask();
+      Board b = task.getState().getBoard();
+      for (int i = 0; i * 2 + 1 < COMBO.size(); i++) {
+         b.setSpeciesAt(COMBO.get(i * 2), COMBO.get(i * 2 + 1), species);
+         b.setFrozenAt(COMBO.get(i * 2), COMBO.get(i * 2 + 1), false);
+      }
+      combo = new ActivateComboEffect(COMBO, effect);
+      if (kind == ComboKind.MEGA) {
+         combo = new ActivateMegaComboEffect(combo);
+      }
+      task.addActiveFor(combo);
+   }
+   
+   @Benchmark
+   public SimulationTask handleCombo() {
+      effect.handleCombo(combo, task);
+      return task;
+   }
+   
+   @Benchmark
+   public SimulationTask newTask() {
+      return new CertainTask(core, feeder);
+   }
+   
+   /**
+    * @return The first species on the core's board which can be matched.
+    */
+   private static Species getComboSpecies(SimulationCore core) {
+      Board b = core.getBoardCopy();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            Species s = b.getSpeciesAt(row, col);
+            if (core.getEffectFor(s).isPickable()) {
+               return s;
+            }
+         }
+      }
+      throw new IllegalStateException("Nothing can be matched in stage " + STAGE);
+   }
+   
+   /**
+    * A task in which every chance succeeds.
+    */
+   @SuppressWarnings("serial")
+   private static class CertainTask extends SimulationTask {
+      
+      public CertainTask(SimulationCore simulationCore, SimulationFeeder feeder) {
+         super(simulationCore, feeder);
+      }
+      
+      @Override
+      public Random getRandom() {
+         return CERTAIN;
+      }
+   }
+   
+   /**
+    * Draws 0 for every chance, and is otherwise random.
+    */
+   @SuppressWarnings("serial")
+   private static class CertainRandom extends Random {
+      
+      public CertainRandom() {
+         super(0L);
+      }
+      
+      @Override
+      public double nextDouble() {
+         return 0.0;
+      }
+   }
+}
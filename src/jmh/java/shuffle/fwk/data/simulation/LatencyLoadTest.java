@@ -0,0 +1,409 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.fwk.data.simulation;
+
+import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+import shuffle.fwk.EntryMode;
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.ShuffleModel;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.config.manager.TeamManager;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.SpeciesPaint;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.Team;
+import shuffle.fwk.data.TeamImpl;
+import shuffle.fwk.i18n.I18nFactory;
+
+/**
+ * Drives a headless {@link ShuffleModel} through bursts of edits, as a user would make them, and
+ * measures how long it takes for results to be accepted. The edits are paints, keystrokes in
+ * {@link EntryMode#EXPRESS}, frozen toggles and stage switches, chosen at random from a fixed seed
+ * with a short random gap between each. Every edit goes through the controller on the event dispatch
+ * thread, just like the editor's own, so each one supersedes whatever simulation is pending or
+ * running.<br>
+ * <br>
+ * For each burst this reports the time from the last edit until the results for it are accepted,
+ * the time from the first edit until any results are accepted, and the simulations which were
+ * started during the burst and then thrown away for a newer one. The latencies are summarised by
+ * their p50, p99 and maximum. Each stage's team is the one {@link BenchmarkBoards} fixes for it.<br>
+ * <br>
+ * <code>[results file] [bursts] [edits per burst] [feeders] [seed] [stages]</code><br>
+ * The stages are separated by commas. The first stage's default board is the one edited.
+ * 
+ * @author Andrew Meyers
+ */
+public class LatencyLoadTest {
+   
+   private static final String DEFAULT_RESULTS = "target/latency-results.csv";
+   private static final int DEFAULT_BURSTS = 50;
+   private static final int DEFAULT_EDITS = 8;
+   private static final int DEFAULT_FEEDERS = 10;
+   private static final long DEFAULT_SEED = 42L;
+   private static final String DEFAULT_STAGES = "001,224,266,442,278";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   // The gap between edits in a burst, and the pause after each burst's results are accepted
+   private static final int MIN_GAP_MILLIS = 20;
+   private static final int MAX_GAP_MILLIS = 120;
+   private static final int IDLE_MILLIS = 250;
+   // How long to wait for a burst's results before giving up on them
+   private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+   // The chance of each kind of edit, out of 100
+   private static final int PAINT_CHANCE = 40;
+   private static final int EXPRESS_CHANCE = 35;
+   private static final int FROZEN_CHANCE = 15;
+   private static final double NANOS_PER_MILLI = 1e6;
+   private static final String HEADER = "Burst,Edits,Stage,Latency ms,First result ms,Started,Superseded,"
+         + "Superseded ms";
+   
+   private final LoadController controller;
+   private final List<Stage> stages = new ArrayList<Stage>();
+   private final Random random;
+   private final JPanel keySource = new JPanel();
+   
+   public LatencyLoadTest(String stageNames, int feeders, long seed) {
+      controller = new LoadController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, feeders);
+      TeamManager teamManager = controller.getModel().getTeamManager();
+      for (String name : stageNames.split(",")) {
+         Stage stage = controller.getModel().getStageManager().getStageValue(name.trim());
+         if (stage == null) {
+            throw new IllegalArgumentException("No such stage: " + name);
+         }
+         controller.setCurrentStage(stage);
+         controller.loadDefaultGrid();
+         TeamImpl team = new TeamImpl();
+         for (String species : BenchmarkBoards.getTeam(controller.getModel().getBoard()).getNames()) {
+            team.addName(species, teamManager.getNextBindingFor(species, team));
+         }
+         teamManager.setTeamForStage(team, stage);
+         stages.add(stage);
+      }
+      controller.setCurrentStage(stages.get(0));
+      controller.loadDefaultGrid();
+      controller.setCurrentEntryMode(EntryMode.EXPRESS);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, true);
+      getModel().setDataChanged();
+      random = new Random(seed);
+   }
+   
+   public static void main(String[] args) throws IOException, InterruptedException, InvocationTargetException {
+      String results = args.length > 0 ? args[0] : DEFAULT_RESULTS;
+      int bursts = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BURSTS;
+      int edits = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_EDITS;
+      int feeders = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_FEEDERS;
+      long seed = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_SEED;
+      String stages = args.length > 5 ? args[5] : DEFAULT_STAGES;
+      
+      LatencyLoadTest test = new LatencyLoadTest(stages, feeders, seed);
+      // Lets the first simulation, of the unedited board, finish before the first burst
+      test.awaitResults(test.getModel().getAcceptedId(), System.nanoTime());
+      
+      List<String> lines = new ArrayList<String>();
+      lines.add(HEADER);
+      System.out.println(HEADER);
+      List<Double> latencies = new ArrayList<Double>();
+      List<Double> firstResults = new ArrayList<Double>();
+      int missing = 0;
+      long started = test.getModel().getSimulationsStarted();
+      long superseded = test.getModel().getSimulationsSuperseded();
+      long supersededTime = test.getModel().getSupersededTime();
+      for (int i = 1; i <= bursts; i++) {
+         Burst burst = test.runBurst(edits);
+         if (burst == null) {
+            // None of its edits changed anything, so there is nothing to wait for
+            continue;
+         }
+         String latency = "";
+         String firstResult = "";
+         if (burst.getLatency() >= 0) {
+            latencies.add(burst.getLatency());
+            firstResults.add(burst.getFirstResult());
+            latency = String.format(Locale.ROOT, "%.3f", burst.getLatency());
+            firstResult = String.format(Locale.ROOT, "%.3f", burst.getFirstResult());
+         } else {
+            missing++;
+         }
+         String line = String.format(Locale.ROOT, "%d,%d,%s,%s,%s,%d,%d,%d", i, burst.getEdits(), burst.getStage(),
+               latency, firstResult, burst.getStarted(), burst.getSuperseded(), burst.getSupersededTime());
+         System.out.println(line);
+         lines.add(line);
+         Thread.sleep(IDLE_MILLIS);
+      }
+      started = test.getModel().getSimulationsStarted() - started;
+      superseded = test.getModel().getSimulationsSuperseded() - superseded;
+      supersededTime = test.getModel().getSupersededTime() - supersededTime;
+      
+      File resultsFile = new File(results);
+      if (resultsFile.getParentFile() != null) {
+         resultsFile.getParentFile().mkdirs();
+      }
+      Files.write(resultsFile.toPath(), lines, StandardCharsets.UTF_8);
+      System.out.println();
+      System.out.println(summarise("Last edit to results", latencies));
+      System.out.println(summarise("First edit to first results", firstResults));
+      System.out.println(String.format(Locale.ROOT, "Simulations: %d started, %d superseded (%.1f%%), %d ms wasted",
+            started, superseded, started == 0 ? 0.0 : superseded * 100.0 / started, supersededTime));
+      if (missing > 0) {
+         System.out.println(missing + " bursts had no results accepted");
+      }
+      System.out.println("Results written to " + results);
+      System.exit(0);
+   }
+   
+   private ShuffleModel getModel() {
+      return controller.getModel();
+   }
+   
+   /**
+    * Makes the given number of edits, then waits for the results of the last one.
+    * 
+    * @return The burst's measurements, or null if none of its edits changed anything.
+    */
+   private Burst runBurst(int edits) throws InterruptedException, InvocationTargetException {
+      long started = getModel().getSimulationsStarted();
+      long superseded = getModel().getSimulationsSuperseded();
+      long supersededTime = getModel().getSupersededTime();
+      UUID id = getModel().getAcceptedId();
+      long firstEdit = -1L;
+      long lastEdit = -1L;
+      for (int i = 0; i < edits; i++) {
+         if (i > 0) {
+            Thread.sleep(MIN_GAP_MILLIS + random.nextInt(MAX_GAP_MILLIS - MIN_GAP_MILLIS + 1));
+         }
+         int roll = random.nextInt(100);
+         int row = 1 + random.nextInt(Board.NUM_ROWS);
+         int col = 1 + random.nextInt(Board.NUM_COLS);
+         Species species = getRandomSpecies();
+         Stage stage = stages.get(random.nextInt(stages.size()));
+         char key = controller.getCurrentTeam().getBinding(species);
+         SwingUtilities.invokeAndWait(() -> {
+            if (roll < PAINT_CHANCE) {
+               controller.paintAt(new SpeciesPaint(species), row, col);
+            } else if (roll < PAINT_CHANCE + EXPRESS_CHANCE) {
+               EntryMode.EXPRESS.handleKeyPress(controller, new KeyEvent(keySource, KeyEvent.KEY_TYPED,
+                     System.currentTimeMillis(), 0, KeyEvent.VK_UNDEFINED, key));
+            } else if (roll < PAINT_CHANCE + EXPRESS_CHANCE + FROZEN_CHANCE) {
+               controller.toggleFrozenAt(row, col);
+            } else {
+               controller.setCurrentStage(stage);
+            }
+         });
+         long now = System.nanoTime();
+         UUID newId = getModel().getAcceptedId();
+         if (!newId.equals(id)) {
+            id = newId;
+            if (firstEdit < 0) {
+               firstEdit = now;
+            }
+            lastEdit = now;
+         }
+      }
+      if (firstEdit < 0) {
+         return null;
+      }
+      Long accepted = awaitResults(id, lastEdit);
+      Long firstAccepted = controller.getFirstAcceptedAfter(firstEdit);
+      double latency = accepted == null ? -1.0 : (accepted - lastEdit) / NANOS_PER_MILLI;
+      double firstResult = firstAccepted == null ? -1.0 : (firstAccepted - firstEdit) / NANOS_PER_MILLI;
+      return new Burst(edits, getModel().getCurrentStage().getName(), latency, firstResult,
+            getModel().getSimulationsStarted() - started, getModel().getSimulationsSuperseded() - superseded,
+            getModel().getSupersededTime() - supersededTime);
+   }
+   
+   /**
+    * Waits until the results of the given process are accepted, it finishes without any, or the wait
+    * times out.
+    * 
+    * @return The time the results were accepted, or null if they were not.
+    */
+   private Long awaitResults(UUID id, long since) throws InterruptedException {
+      while (System.nanoTime() - since < TIMEOUT_NANOS) {
+         Long accepted = controller.getAcceptedTime(id);
+         if (accepted != null) {
+            return accepted;
+         }
+         if (!controller.isProcessing()) {
+            break;
+         }
+         Thread.sleep(1);
+      }
+      return controller.getAcceptedTime(id);
+   }
+   
+   private Species getRandomSpecies() {
+      Team team = controller.getCurrentTeam();
+      List<String> names = team.getNames();
+      String name = names.get(random.nextInt(names.size()));
+      return controller.getSpeciesManager().getSpeciesValue(name);
+   }
+   
+   /**
+    * A controller with no view, which remembers when it accepted the results of each process.
+    */
+   private static class LoadController extends ShuffleController {
+      
+      private final Map<UUID, Long> acceptedTimes = new ConcurrentHashMap<UUID, Long>();
+      private final ConcurrentSkipListSet<Long> acceptances = new ConcurrentSkipListSet<Long>();
+      // Held while results are accepted, so they are recorded by the time the model stops processing
+      private final Object lock = new Object();
+      
+      @Override
+      public void acceptResults(Collection<SimulationResult> results) {
+         long now = System.nanoTime();
+         synchronized (lock) {
+            super.acceptResults(results);
+            if (results != null && !results.isEmpty()) {
+               UUID id = results.iterator().next().getID();
+               if (id != null && id.equals(getModel().getAcceptedId())) {
+                  acceptedTimes.put(id, now);
+                  acceptances.add(now);
+               }
+            }
+         }
+      }
+      
+      @Override
+      public String getString(String key, Object... args) {
+         // The controller's strings are registered to it, not to this class
+         return I18nFactory.getString(ShuffleController.class, key, args);
+      }
+      
+      @Override
+      public void repaint() {
+         // There is no view to repaint
+      }
+      
+      public Long getAcceptedTime(UUID id) {
+         return acceptedTimes.get(id);
+      }
+      
+      /**
+       * @return True if the model is still processing, once any results being accepted are recorded.
+       */
+      public boolean isProcessing() {
+         synchronized (lock) {
+            return getModel().isProcessing();
+         }
+      }
+      
+      public Long getFirstAcceptedAfter(long time) {
+         return acceptances.ceiling(time);
+      }
+   }
+   
+   /**
+    * The measurements of one burst. The latencies are in milliseconds, and negative if the results
+    * were never accepted.
+    */
+   private static class Burst {
+      
+      private final int edits;
+      private final String stage;
+      private final double latency;
+      private final double firstResult;
+      private final long started;
+      private final long superseded;
+      private final long supersededTime;
+      
+      public Burst(int edits, String stage, double latency, double firstResult, long started, long superseded,
+            long supersededTime) {
+         this.edits = edits;
+         this.stage = stage;
+         this.latency = latency;
+         this.firstResult = firstResult;
+         this.started = started;
+         this.superseded = superseded;
+         this.supersededTime = supersededTime;
+      }
+      
+      public int getEdits() {
+         return edits;
+      }
+      
+      public String getStage() {
+         return stage;
+      }
+      
+      public double getLatency() {
+         return latency;
+      }
+      
+      public double getFirstResult() {
+         return firstResult;
+      }
+      
+      public long getStarted() {
+         return started;
+      }
+      
+      public long getSuperseded() {
+         return superseded;
+      }
+      
+      public long getSupersededTime() {
+         return supersededTime;
+      }
+   }
+   
+   /**
+    * @return A line with the p50, p99 and maximum of the given latencies.
+    */
+   private static String summarise(String name, List<Double> latencies) {
+      if (latencies.isEmpty()) {
+         return name + ": no results";
+      }
+      List<Double> sorted = new ArrayList<Double>(latencies);
+      Collections.sort(sorted);
+      return String.format(Locale.ROOT, "%s: p50 %.1f ms, p99 %.1f ms, max %.1f ms over %d bursts", name,
+            getPercentile(sorted, 50), getPercentile(sorted, 99), sorted.get(sorted.size() - 1), sorted.size());
+   }
+   
+   /**
+    * @return The nearest rank percentile of the given sorted values.
+    */
+   private static double getPercentile(List<Double> sorted, int percentile) {
+      int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+      return sorted.get(Math.max(0, rank - 1));
+   }
+}
@@ -0,0 +1,208 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.fwk.data.simulation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Simulates the same boards with pools of every parallelism from 1 up to a limit, and at several
+ * feeder counts, to show how well the simulation scales. Each board is simulated by a core from
+ * {@link BenchmarkBoards}, so every run does the same work.<br>
+ * <br>
+ * For each board, feeder count and parallelism this reports the least wall time of a few runs, the
+ * speedup and efficiency against one thread, and the steals of the pool in each run. While
+ * each run goes, the pool is sampled for the tasks queued in it and the threads active in it. The
+ * time per sample on one thread shows how coarse the tasks are: every sample is one
+ * {@link SimulationTask} and every move is one {@link SimulationCreationTask}.<br>
+ * <br>
+ * <code>[results file] [max parallelism] [feeder counts] [stages] [runs]</code><br>
+ * The feeder counts and stages are separated by commas. The parallelism goes up to the number of
+ * processors if its maximum is 0.
+ * 
+ * @author Andrew Meyers
+ */
+public class ScalabilityBenchmark {
+   
+   private static final String DEFAULT_RESULTS = "target/scalability-results.csv";
+   private static final String DEFAULT_FEEDERS = "1,10,50";
+   private static final String DEFAULT_STAGES = "001,224,266,442,278";
+   private static final int DEFAULT_RUNS = 3;
+   // How often the pool is sampled while a run goes
+   private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+   private static final double NANOS_PER_MILLI = 1e6;
+   private static final String HEADER = "Board,Feeders,Parallelism,Moves,Samples,Wall ms,Speedup,Efficiency,"
+         + "Steals,Max queued,Mean queued,Mean active,Sample us";
+   
+   public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+      String results = args.length > 0 ? args[0] : DEFAULT_RESULTS;
+      int maxParallelism = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+      if (maxParallelism <= 0) {
+         maxParallelism = Runtime.getRuntime().availableProcessors();
+      }
+      String feederCounts = args.length > 2 ? args[2] : DEFAULT_FEEDERS;
+      String stages = args.length > 3 ? args[3] : DEFAULT_STAGES;
+      int runs = args.length > 4 ? Integer.parseInt(args[4]) : DEFAULT_RUNS;
+      
+      List<String> lines = new ArrayList<String>();
+      lines.add(HEADER);
+      System.out.println(HEADER);
+      for (String stage : stages.split(",")) {
+         for (String feederCount : feederCounts.split(",")) {
+            for (String line : measure(stage.trim(), Integer.parseInt(feederCount.trim()), maxParallelism, runs)) {
+               System.out.println(line);
+               lines.add(line);
+            }
+         }
+      }
+      File resultsFile = new File(results);
+      if (resultsFile.getParentFile() != null) {
+         resultsFile.getParentFile().mkdirs();
+      }
+      Files.write(resultsFile.toPath(), lines, StandardCharsets.UTF_8);
+      System.out.println("Results written to " + results);
+      System.exit(0);
+   }
+   
+   /**
+    * @return A line of results for each parallelism from 1 to the given maximum.
+    */
+   private static List<String> measure(String stage, int feeders, int maxParallelism, int runs)
+         throws InterruptedException, ExecutionException {
+      SimulationCore core = BenchmarkBoards.getCore(stage, feeders);
+      int moves = core.getPossibleMoves(core.getBoardCopy()).size();
+      int samples = moves * feeders;
+      List<String> ret = new ArrayList<String>();
+      double serialTime = 0.0;
+      for (int parallelism = 1; parallelism <= maxParallelism; parallelism++) {
+         ForkJoinPool pool = new ForkJoinPool(parallelism);
+         try {
+            // To warm up, and to start the pool's threads
+            for (int i = 0; i < runs; i++) {
+               run(pool, stage, feeders, null);
+            }
+            long steals = pool.getStealCount();
+            PoolSampler sampler = new PoolSampler(pool);
+            long[] times = new long[runs];
+            for (int i = 0; i < runs; i++) {
+               times[i] = run(pool, stage, feeders, sampler);
+            }
+            steals = pool.getStealCount() - steals;
+            Arrays.sort(times);
+            double wallTime = times[0] / NANOS_PER_MILLI;
+            if (parallelism == 1) {
+               serialTime = wallTime;
+            }
+            double speedup = serialTime / wallTime;
+            double sampleTime = samples == 0 ? 0.0 : serialTime * 1000.0 / samples;
+            ret.add(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.3f,%.2f,%.2f,%d,%d,%.1f,%.1f,%.1f", stage,
+                  feeders, parallelism, moves, samples, wallTime, speedup, speedup / parallelism, steals / runs,
+                  sampler.getMaxQueued(), sampler.getMeanQueued(), sampler.getMeanActive(), sampleTime));
+         } finally {
+            pool.shutdownNow();
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * Simulates the stage's board once in the given pool.
+    * 
+    * @param sampler
+    *           Samples the pool while it runs, unless it is null.
+    * @return The wall time, in nanoseconds.
+    */
+   private static long run(ForkJoinPool pool, String stage, int feeders, PoolSampler sampler)
+         throws InterruptedException, ExecutionException {
+      SimulationCore core = BenchmarkBoards.getCore(stage, feeders);
+      Thread sampling = null;
+      if (sampler != null) {
+         sampler.setRunning(true);
+         sampling = new Thread(sampler, "Pool sampler");
+         sampling.setDaemon(true);
+         sampling.start();
+      }
+      long start = System.nanoTime();
+      try {
+         pool.submit(core::getResults).get();
+         return System.nanoTime() - start;
+      } finally {
+         if (sampling != null) {
+            sampler.setRunning(false);
+            sampling.join();
+         }
+      }
+   }
+   
+   /**
+    * Samples the tasks queued in a pool and the threads active in it, until it is stopped.
+    */
+   private static class PoolSampler implements Runnable {
+      
+      private final ForkJoinPool pool;
+      private volatile boolean running = false;
+      private long samples = 0L;
+      private long totalQueued = 0L;
+      private long totalActive = 0L;
+      private long maxQueued = 0L;
+      
+      public PoolSampler(ForkJoinPool pool) {
+         this.pool = pool;
+      }
+      
+      public void setRunning(boolean running) {
+         this.running = running;
+      }
+      
+      @Override
+      public void run() {
+         while (running) {
+            long queued = pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount();
+            samples++;
+            totalQueued += queued;
+            totalActive += pool.getActiveThreadCount();
+            maxQueued = Math.max(maxQueued, queued);
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+         }
+      }
+      
+      public long getMaxQueued() {
+         return maxQueued;
+      }
+      
+      public double getMeanQueued() {
+         return samples == 0 ? 0.0 : (double) totalQueued / samples;
+      }
+      
+      public double getMeanActive() {
+         return samples == 0 ? 0.0 : (double) totalActive / samples;
+      }
+   }
+}
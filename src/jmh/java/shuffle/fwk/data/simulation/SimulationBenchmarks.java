@@ -0,0 +1,128 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Effect;
+import shuffle.fwk.data.PkmType;
+import shuffle.fwk.data.Species;
+
+/**
+ * The parts of a simulation which run for every frame or every move, each on the default boards of
+ * a few stages. A whole move is timed by {@link #simulateMove()}, with its first valid move and a
+ * feeder made as the core would make it.<br>
+ * <br>
+ * The gravity pass is timed on a new simulation each time, since a second pass over the same board
+ * has nothing left to move. Setting up each invocation adds some overhead of its own, so it should
+ * only be compared against itself.
+ * 
+ * @author Andrew Meyers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmarks {
+   
+   private static final int FEEDER_HEIGHT = 20;
+   private static final List<Species> FEEDER_BLOCKS = Arrays.asList(Species.AIR,
+         new Species("Wood", 0, PkmType.WOOD, Effect.NONE));
+   
+   @Param({ "001", "224", "266", "442", "278" })
+   public String stage;
+   
+   private SimulationCore core;
+   private Board board;
+   private List<Integer> move;
+   private SimulationFeeder feeder;
+   private SimulationTask settled;
+   private SimulationTask unsettled;
+   
+   @Setup(Level.Trial)
+   public void setUpTrial() {
+      core = BenchmarkBoards.getCore(stage, 1);
+      board = core.getBoardCopy();
+      List<List<Integer>> moves = core.getPossibleMoves(board);
+      move = moves.isEmpty() ? null : moves.get(0);
+      feeder = SimulationFeeder.getFeedersFor(0, core.getStage(), board.getSpeciesPresent(), 1).iterator().next();
+      settled = new SimulationTask(core, feeder);
+   }
+   
+   @Setup(Level.Invocation)
+   public void setUpInvocation() {
+      unsettled = new SimulationTask(core, move, feeder);
+   }
+   
+   @Benchmark
+   public Board copyBoard() {
+      return new Board(board);
+   }
+   
+   @Benchmark
+   public int hashBoard() {
+      return new Board(board).hashCode();
+   }
+   
+   @Benchmark
+   public List<List<Integer>> getPossibleMoves() {
+      return core.getPossibleMoves(board);
+   }
+   
+   @Benchmark
+   public SimulationTask doComboCheck() {
+      settled.doComboCheck();
+      return settled;
+   }
+   
+   @Benchmark
+   public SimulationTask doGravity() {
+      unsettled.doGravity();
+      return unsettled;
+   }
+   
+   @Benchmark
+   public SimulationState simulateMove() {
+      return new SimulationTask(core, move, feeder).invoke();
+   }
+   
+   @Benchmark
+   public Collection<SimulationFeeder> getFeedersFor() {
+      return SimulationFeeder.getFeedersFor(FEEDER_HEIGHT, core.getStage(), FEEDER_BLOCKS, 100);
+   }
+}
@@ -0,0 +1,636 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.fwk;
+
+import java.awt.Font;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+
+import shuffle.fwk.config.ConfigFactory;
+import shuffle.fwk.config.ConfigManager;
+import shuffle.fwk.config.manager.BoardManager;
+import shuffle.fwk.config.manager.EffectManager;
+import shuffle.fwk.config.manager.EntryModeManager;
+import shuffle.fwk.config.manager.GradingModeManager;
+import shuffle.fwk.config.manager.ImageManager;
+import shuffle.fwk.config.manager.RosterManager;
+import shuffle.fwk.config.manager.SpeciesManager;
+import shuffle.fwk.config.manager.TeamManager;
+import shuffle.fwk.data.Board.Status;
+import shuffle.fwk.data.Effect;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.SpeciesPaint;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.Team;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+import shuffle.fwk.data.simulation.util.SimulationAcceptor;
+import shuffle.fwk.service.movepreferences.MovePreferencesService;
+
+/**
+ * Simulates every board file in a directory without any user interface, and streams the ranked
+ * moves of each board as CSV or JSON lines. The configuration, including the teams and roster, is
+ * loaded just as the editor loads it, but nothing from AWT or Swing is started.<br>
+ * <br>
+ * The boards are loaded one at a time, in the order of their file names, and each is simulated in a
+ * shared pool while the next ones are loaded. The results of each board are written as soon as it
+ * and every board before it are done, so the output is always in the same order. Only a few boards
+ * are in flight at once, to bound the memory used. A board which is not settled has a single line
+ * for the board it settles into, with no move.<br>
+ * <br>
+ * <code>&lt;boards directory&gt; [output file] [csv|json] [parallelism] [user home]</code><br>
+ * The output goes to standard output if its file is omitted or "-". The parallelism is the number of
+ * processors if it is omitted or 0. The user home is where the configuration is, as for the editor,
+ * and is the current directory if it is omitted. The exit status is 1 if any board could not be
+ * simulated.
+ * 
+ * @author Andrew Meyers
+ */
+public class BatchSolver implements ShuffleModelUser {
+   private static final Logger LOG = Logger.getLogger(BatchSolver.class.getName());
+   
+   private static final String FORMAT_CSV = "csv";
+   private static final String FORMAT_JSON = "json";
+   private static final String STANDARD_OUTPUT = "-";
+   // The boards in flight at once, for each thread of the pool
+   private static final int BOARDS_PER_THREAD = 2;
+   private static final String CSV_HEADER = "Board,Stage,Rank,Pickup row,Pickup col,Drop row,Drop col,Score,"
+         + "Min score,Max score,Gold,Combos,Blocks,Disruptions,Mega progress,KO chance";
+   
+   private final ConfigFactory factory;
+   private final ShuffleModel model;
+   
+   public BatchSolver() {
+      factory = new ConfigFactory();
+      model = new ShuffleModel(this);
+   }
+   
+   public static void main(String... args) throws IOException, InterruptedException {
+      System.setProperty("java.awt.headless", "true");
+      if (args.length < 1) {
+         System.err.println("Usage: <boards directory> [output file] [csv|json] [parallelism] [user home]");
+         System.exit(2);
+      }
+      File boardsDir = new File(args[0]).getCanonicalFile();
+      String output = args.length > 1 ? args[1] : STANDARD_OUTPUT;
+      File outputFile = STANDARD_OUTPUT.equals(output) ? null : new File(output).getCanonicalFile();
+      String format = args.length > 2 ? args[2].toLowerCase(Locale.ROOT) : FORMAT_CSV;
+      if (!FORMAT_CSV.equals(format) && !FORMAT_JSON.equals(format)) {
+         throw new IllegalArgumentException("Unknown format: " + args[2]);
+      }
+      int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+      if (parallelism <= 0) {
+         parallelism = Runtime.getRuntime().availableProcessors();
+      }
+      if (args.length > 4) {
+         // The configuration's paths are relative to the user home
+         String userHome = new File(args[4]).getCanonicalPath();
+         System.setProperty("user.dir", userHome);
+         System.setProperty("user.home", userHome);
+      }
+      File[] files = boardsDir.listFiles(File::isFile);
+      if (files == null) {
+         throw new IOException("Cannot list the boards in " + boardsDir);
+      }
+      Arrays.sort(files);
+      
+      if (outputFile != null && outputFile.getParentFile() != null) {
+         outputFile.getParentFile().mkdirs();
+      }
+      PrintWriter out = new PrintWriter(new OutputStreamWriter(
+            outputFile == null ? System.out : new FileOutputStream(outputFile), StandardCharsets.UTF_8));
+      boolean json = FORMAT_JSON.equals(format);
+      if (!json) {
+         out.println(CSV_HEADER);
+      }
+      long start = System.nanoTime();
+      int written = new BatchSolver().solveAll(Arrays.asList(files), parallelism, out, json);
+      out.flush();
+      if (outputFile != null) {
+         out.close();
+      }
+      LOG.info(String.format("Simulated %d of %d boards in %d ms", written, files.length,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+      System.exit(written == files.length ? 0 : 1);
+   }
+   
+   /**
+    * Simulates each of the given board files, writing their moves in order. Loading the boards,
+    * simulating them and writing their moves all overlap.
+    * 
+    * @param files
+    *           The board files
+    * @param parallelism
+    *           The number of threads to simulate with
+    * @param out
+    *           Where to write the moves
+    * @param json
+    *           True to write JSON lines, false to write CSV
+    * @return The number of boards whose moves were written.
+    */
+   public int solveAll(List<File> files, int parallelism, PrintWriter out, boolean json)
+         throws InterruptedException {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      ExecutorService writer = Executors.newSingleThreadExecutor();
+      Semaphore inFlight = new Semaphore(parallelism * BOARDS_PER_THREAD);
+      List<Future<Boolean>> writes = new ArrayList<Future<Boolean>>();
+      try {
+         for (File file : files) {
+            inFlight.acquire();
+            BoardJob job = load(file, pool);
+            // The writer is a single thread, so every board is written in the order it was loaded
+            writes.add(writer.submit(() -> {
+               try {
+                  return job != null && job.write(out, json);
+               } finally {
+                  inFlight.release();
+               }
+            }));
+         }
+         int written = 0;
+         for (Future<Boolean> write : writes) {
+            try {
+               if (write.get()) {
+                  written++;
+               }
+            } catch (ExecutionException e) {
+               LOG.log(Level.WARNING, "Cannot write the results because: " + e.getMessage(), e);
+            }
+         }
+         return written;
+      } finally {
+         writer.shutdownNow();
+         pool.shutdownNow();
+      }
+   }
+   
+   /**
+    * Loads the given board file and starts simulating it in the given pool.
+    * 
+    * @return The board's job, or null if it cannot be simulated.
+    */
+   private BoardJob load(File file, ForkJoinPool pool) {
+      try {
+         getBoardManager().loadFromFile(file);
+         Stage stage = getCurrentStage();
+         if (getCurrentTeam() == null || getCurrentTeam().getNames().isEmpty()) {
+            LOG.warning("Skipping " + file.getName() + " because there is no team for stage " + stage.getName());
+            return null;
+         }
+         BoardJob job = new BoardJob(file.getName(), stage, getModel().getGradingMetric());
+         SimulationCore core = new SimulationCore(this, job.getAcceptedId(), getModel().getBoard(), getMegaProgress(),
+               getRemainingHealth(), getRemainingMoves(), job);
+         job.setResults(pool.submit(core::getResults));
+         return job;
+      } catch (RuntimeException e) {
+         LOG.log(Level.WARNING, "Cannot simulate " + file.getName() + " because: " + e.getMessage(), e);
+         return null;
+      }
+   }
+   
+   /**
+    * One board being simulated. Its results are collected once it is done rather than accepted, so
+    * that any number of boards can be simulated at once.
+    */
+   private static class BoardJob implements SimulationAcceptor {
+      private final UUID id = UUID.randomUUID();
+      private final String name;
+      private final Stage stage;
+      private final Comparator<SimulationResult> metric;
+      private Future<Collection<SimulationResult>> results = null;
+      
+      public BoardJob(String name, Stage stage, Comparator<SimulationResult> metric) {
+         this.name = name;
+         this.stage = stage;
+         this.metric = metric;
+      }
+      
+      public void setResults(Future<Collection<SimulationResult>> results) {
+         this.results = results;
+      }
+      
+      @Override
+      public void acceptResults(Collection<SimulationResult> results) {
+         // The results are taken from the simulation directly
+      }
+      
+      @Override
+      public UUID getAcceptedId() {
+         return id;
+      }
+      
+      /**
+       * Waits for this board's results, and writes its moves from best to worst.
+       * 
+       * @return True if the moves were written, false if the simulation failed.
+       */
+      public boolean write(PrintWriter out, boolean json) throws InterruptedException {
+         List<SimulationResult> ranked;
+         try {
+            ranked = new ArrayList<SimulationResult>(results.get());
+         } catch (ExecutionException e) {
+            LOG.log(Level.WARNING, "Cannot simulate " + name + " because: " + e.getCause(), e.getCause());
+            return false;
+         }
+         ranked.sort(metric);
+         int rank = 1;
+         for (SimulationResult result : ranked) {
+            out.println(json ? toJson(rank, result) : toCsv(rank, result));
+            rank++;
+         }
+         out.flush();
+         return true;
+      }
+      
+      private String toCsv(int rank, SimulationResult result) {
+         // The result of settling the board has no move, so its move columns are left empty
+         List<Integer> move = result.getMove();
+         String moveColumns = move.isEmpty() ? ",,," : StringUtils.join(move, ',');
+         return String.format(Locale.ROOT, "%s,%s,%d,%s,%.2f,%.0f,%.0f,%.2f,%.2f,%.2f,%.2f,%.2f,%.4f",
+               escapeCsv(name), escapeCsv(stage.getName()), rank, moveColumns, result.getNetScore().getAverage(),
+               result.getNetScore().getMinimum(), result.getNetScore().getMaximum(), getAverage(result.getNetGold()),
+               getAverage(result.getCombosCleared()), getAverage(result.getBlocksCleared()),
+               getAverage(result.getDisruptionsCleared()), getAverage(result.getProgress()), result.getKOChance());
+      }
+      
+      private String toJson(int rank, SimulationResult result) {
+         // The move is an empty array for the result of settling the board
+         return String.format(Locale.ROOT,
+               "{\"board\":%s,\"stage\":%s,\"rank\":%d,\"move\":[%s],\"score\":%.2f,\"minScore\":%.0f,"
+                     + "\"maxScore\":%.0f,\"gold\":%.2f,\"combos\":%.2f,\"blocks\":%.2f,\"disruptions\":%.2f,"
+                     + "\"megaProgress\":%.2f,\"koChance\":%.4f}",
+               escapeJson(name), escapeJson(stage.getName()), rank,
+               StringUtils.join(result.getMove(), ','), result.getNetScore().getAverage(),
+               result.getNetScore().getMinimum(), result.getNetScore().getMaximum(), getAverage(result.getNetGold()),
+               getAverage(result.getCombosCleared()), getAverage(result.getBlocksCleared()),
+               getAverage(result.getDisruptionsCleared()), getAverage(result.getProgress()), result.getKOChance());
+      }
+   }
+   
+   private static double getAverage(NumberSpan span) {
+      return span == null ? 0.0 : span.getAverage();
+   }
+   
+   private static String escapeCsv(String value) {
+      if (value.contains(",") || value.contains("\"")) {
+         return "\"" + value.replace("\"", "\"\"") + "\"";
+      }
+      return value;
+   }
+   
+   private static String escapeJson(String value) {
+      return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+   }
+   
+   public ShuffleModel getModel() {
+      return model;
+   }
+   
+   @Override
+   public ConfigFactory getConfigFactory() {
+      return factory;
+   }
+   
+   @Override
+   public void acceptResults(Collection<SimulationResult> results) {
+      // Every board's results are taken from its own simulation
+   }
+   
+   @Override
+   public UUID getAcceptedId() {
+      return getModel().getAcceptedId();
+   }
+   
+   @Override
+   public boolean isMegaAllowed() {
+      return getModel().isMegaAllowed();
+   }
+   
+   @Override
+   public int getLookaheadDepth() {
+      return getModel().getLookaheadDepth();
+   }
+   
+   @Override
+   public int getLookaheadNodes() {
+      return getModel().getLookaheadNodes();
+   }
+   
+   @Override
+   public boolean isPruningMoves() {
+      return getModel().isPruningMoves();
+   }
+   
+   @Override
+   public int getApproximateCandidates() {
+      return getModel().getApproximateCandidates();
+   }
+   
+   @Override
+   public String getSimulationEngine() {
+      return getModel().getSimulationEngine();
+   }
+   
+   @Override
+   public RosterManager getRosterManager() {
+      return getModel().getRosterManager();
+   }
+   
+   @Override
+   public SpeciesManager getSpeciesManager() {
+      return getModel().getSpeciesManager();
+   }
+   
+   @Override
+   public BoardManager getBoardManager() {
+      return getModel().getBoardManager();
+   }
+   
+   @Override
+   public TeamManager getTeamManager() {
+      return getModel().getTeamManager();
+   }
+   
+   @Override
+   public Team getCurrentTeam() {
+      return getModel().getCurrentTeam();
+   }
+   
+   @Override
+   public ConfigManager getPreferencesManager() {
+      return getConfigFactory().getPreferencesManager();
+   }
+   
+   @Override
+   public EffectManager getEffectManager() {
+      return getModel().getEffectManager();
+   }
+   
+   @Override
+   public GradingModeManager getGradingModeManager() {
+      return getModel().getGradingModeManager();
+   }
+   
+   @Override
+   public EntryModeManager getEntryModeManager() {
+      return getModel().getEntryModeManager();
+   }
+   
+   @Override
+   public ImageManager getImageManager() {
+      return getConfigFactory().getImageManager();
+   }
+   
+   @Override
+   public void applyMovePreferences(MovePreferencesService service) {
+      getModel().setFeederPreferences(service.getNumFeeders(), service.getFeederHeight(), service.isAutoCompute());
+      getModel().setDisabledEffects(service.getDisabledEffects());
+      getModel().setEffectThreshold(service.getThreshold());
+      getModel().setMobileMode(service.isMobileMode());
+      getModel().setMetalExtended(service.isExtendedMetalEnabled());
+      getModel().setSwapToPaint(service.isSwapToPaint());
+      getModel().setExpressMetalAdvanceEnabled(service.isExpressMetalAdvanceEnabled());
+   }
+   
+   @Override
+   public Collection<Effect> getDisabledEffects() {
+      return getModel().getDisabledEffects();
+   }
+   
+   @Override
+   public int getEffectThreshold() {
+      return getModel().getEffectThreshold();
+   }
+   
+   @Override
+   public int getPreferredFeederHeight() {
+      return getModel().getFeederHeight();
+   }
+   
+   @Override
+   public int getPreferredNumFeeders() {
+      return getModel().getNumFeeders();
+   }
+   
+   @Override
+   public boolean isAutoCompute() {
+      return getModel().getAutoCompute();
+   }
+   
+   @Override
+   public boolean isExpressMetalAdvanceEnabled() {
+      return getModel().isExpressMetalAdvanceEnabled();
+   }
+   
+   @Override
+   public boolean isExtendedMetalEnabled() {
+      return getModel().isExtendedMetalEnabled();
+   }
+   
+   @Override
+   public boolean isMobileMode() {
+      return factory.isMobileMode();
+   }
+   
+   @Override
+   public boolean isSwapToPaint() {
+      return getModel().isSwapToPaint();
+   }
+   
+   @Override
+   public boolean canLevelEscalation() {
+      return true;
+   }
+   
+   @Override
+   public Collection<Stage> getAllStages() {
+      return getModel().getStageManager().getAllStages();
+   }
+   
+   @Override
+   public Stage getCurrentStage() {
+      return getModel().getCurrentStage();
+   }
+   
+   @Override
+   public void setCurrentStage(Stage newStage) {
+      getModel().setCurrentStage(newStage);
+   }
+   
+   @Override
+   public Integer getEscalationLevel() {
+      return getModel().getEscalationLevel();
+   }
+   
+   @Override
+   public void setEscalationLevel(Integer level) {
+      getModel().setEscalationLevel(level);
+   }
+   
+   @Override
+   public int getCurrentScore() {
+      return getModel().getCurrentScore();
+   }
+   
+   @Override
+   public void setCurrentScore(int score) {
+      getModel().setCurrentScore(score);
+   }
+   
+   @Override
+   public int getRemainingHealth() {
+      return getModel().getRemainingHealth();
+   }
+   
+   @Override
+   public int getRemainingMoves() {
+      return getModel().getRemainingMoves();
+   }
+   
+   @Override
+   public void setRemainingMoves(int moves) {
+      getModel().setRemainingMoves(moves);
+   }
+   
+   @Override
+   public int getMegaProgress() {
+      return getModel().getMegaProgress();
+   }
+   
+   @Override
+   public void setMegaProgress(int progress) {
+      getModel().setMegaProgress(progress);
+   }
+   
+   @Override
+   public boolean getAttackPowerUp() {
+      return getModel().getAttackPowerUp();
+   }
+   
+   @Override
+   public void setAttackPowerUp(boolean enabled) {
+      getModel().setAttackPowerUp(enabled);
+   }
+   
+   @Override
+   public List<SpeciesPaint> getCurrentPaints() {
+      return getModel().getCurrentPaints();
+   }
+   
+   @Override
+   public SpeciesPaint getSelectedSpeciesPaint() {
+      return getModel().getCurrentSpeciesPaint();
+   }
+   
+   @Override
+   public void setSelectedSpecies(Species toPaint) {
+      getModel().setSelectedSpecies(toPaint);
+   }
+   
+   @Override
+   public boolean getFrozenState() {
+      return getModel().arePaintsFrozen();
+   }
+   
+   @Override
+   public void setPaintsFrozen(boolean selected) {
+      if (getModel().arePaintsFrozen() != selected) {
+         getModel().toggleFrozenPaints();
+      }
+   }
+   
+   @Override
+   public Status getStatus() {
+      return getModel().getStatus();
+   }
+   
+   @Override
+   public boolean setStatus(Status status) {
+      return getModel().setStatus(status);
+   }
+   
+   @Override
+   public int getStatusDuration() {
+      return getModel().getStatusDuration();
+   }
+   
+   @Override
+   public boolean setStatusDuration(int duration) {
+      return getModel().setStatusDuration(duration);
+   }
+   
+   @Override
+   public boolean isSurvival() {
+      return getModel().isSurvivalMode();
+   }
+   
+   @Override
+   public boolean setSurvival(boolean enabled) {
+      return getModel().setSurvivalMode(enabled);
+   }
+   
+   @Override
+   public void setTeamForStage(Team team, Stage stage) {
+      getModel().getTeamManager().setTeamForStage(team, stage);
+   }
+   
+   @Override
+   public void loadFromTeamManager(TeamManager manager) {
+      getModel().getTeamManager().copyFromManager(manager);
+   }
+   
+   @Override
+   public String getTextFor(Object value) {
+      return value == null ? null : value.toString();
+   }
+   
+   @Override
+   public Font scaleFont(Font givenFont) {
+      return givenFont;
+   }
+   
+   @Override
+   public Integer scaleBorderThickness(int given) {
+      return given;
+   }
+}
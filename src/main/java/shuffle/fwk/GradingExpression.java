@@ -0,0 +1,217 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * Compiles a weighted grading expression such as {@code 0.7*SCORE+200*COMBOS} into a single
+ * primitive evaluator for a {@link SimulationResult}. Higher values are graded as better.<br>
+ * <br>
+ * The grammar is whitespace and comma free so that it fits in a single grading mode token:
+ * 
+ * <pre>
+ * expr   := term (('+' | '-') term)*
+ * term   := factor ('*' factor)*
+ * factor := number | metric | '-' factor | '(' expr ')' | 'CLAMP(' expr ':' [number] ':' [number] ')'
+ * metric := [MIN | MAX] ['_'] (SCORE | GOLD | COMBOS | DISRUPTIONS | BLOCKS | PROGRESS)
+ *         | 'P(KO)' | 'P' percentile '_SCORE' | 'LOOKAHEAD'
+ * </pre>
+ * 
+ * P(KO) is the chance that the score reaches the remaining health, P10_SCORE is the 10th
+ * percentile of the score, and LOOKAHEAD is the expected score over the lookahead horizon.
+ * 
+ * @author Andrew Meyers
+ */
+public final class GradingExpression {
+   
+   private static final List<String> METRIC_KEYS = Arrays.asList("SCORE", "GOLD", "COMBOS", "DISRUPTIONS", "BLOCKS",
+         "PROGRESS");
+   private static final List<Function<SimulationResult, NumberSpan>> METRIC_GETTERS = Arrays.asList(
+         (r) -> r.getNetScore(), (r) -> r.getNetGold(), (r) -> r.getCombosCleared(), (r) -> r.getDisruptionsCleared(),
+         (r) -> r.getBlocksCleared(), (r) -> r.getProgress());
+   private static final Pattern NUMBER_PATTERN = Pattern.compile("^\\d+(\\.\\d+)?");
+   private static final Pattern METRIC_PATTERN = Pattern.compile("^(MIN|MAX)?_?([A-Z]+)");
+   private static final Pattern PERCENTILE_PATTERN = Pattern.compile("^P(\\d{1,2})_SCORE");
+   private static final String CLAMP = "CLAMP(";
+   private static final String KO_CHANCE = "P(KO)";
+   private static final String LOOKAHEAD = "LOOKAHEAD";
+   
+   /**
+    * Checks if the given token looks like an expression rather than a plain grading key.
+    * 
+    * @param token
+    *           The grading token
+    * @return True if the token contains any arithmetic operator or function call.
+    */
+   public static boolean isExpression(String token) {
+      return token != null && token.matches(".*[*+()].*|.+-.*|[+-]?P\\d{1,2}_SCORE");
+   }
+   
+   /**
+    * Compiles the given expression.
+    * 
+    * @param expression
+    *           The expression to compile
+    * @return The compiled evaluator
+    * @throws IllegalArgumentException
+    *            If the expression cannot be parsed.
+    */
+   public static ToDoubleFunction<SimulationResult> compile(String expression) {
+      GradingExpression parser = new GradingExpression(expression);
+      ToDoubleFunction<SimulationResult> ret = parser.parseExpr();
+      if (parser.pos != expression.length()) {
+         throw parser.error("Unexpected character");
+      }
+      return ret;
+   }
+   
+   private final String text;
+   private int pos = 0;
+   
+   private GradingExpression(String expression) {
+      if (expression == null || expression.isEmpty()) {
+         throw new IllegalArgumentException("Cannot compile an empty grading expression.");
+      }
+      text = expression;
+   }
+   
+   private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(String.format("%s at %d in grading expression %s", message, pos, text));
+   }
+   
+   private boolean accept(char c) {
+      if (pos < text.length() && text.charAt(pos) == c) {
+         pos++;
+         return true;
+      }
+      return false;
+   }
+   
+   private void expect(char c) {
+      if (!accept(c)) {
+         throw error("Expected '" + c + "'");
+      }
+   }
+   
+   private ToDoubleFunction<SimulationResult> parseExpr() {
+      ToDoubleFunction<SimulationResult> ret = parseTerm();
+      while (true) {
+         if (accept('+')) {
+            ret = sum(ret, parseTerm());
+         } else if (accept('-')) {
+            ret = sum(ret, negate(parseTerm()));
+         } else {
+            return ret;
+         }
+      }
+   }
+   
+   private ToDoubleFunction<SimulationResult> parseTerm() {
+      ToDoubleFunction<SimulationResult> ret = parseFactor();
+      while (accept('*')) {
+         ret = product(ret, parseFactor());
+      }
+      return ret;
+   }
+   
+   private ToDoubleFunction<SimulationResult> parseFactor() {
+      if (accept('-')) {
+         return negate(parseFactor());
+      } else if (accept('(')) {
+         ToDoubleFunction<SimulationResult> inner = parseExpr();
+         expect(')');
+         return inner;
+      } else if (text.startsWith(KO_CHANCE, pos)) {
+         pos += KO_CHANCE.length();
+         return (r) -> r.getKOChance();
+      } else if (text.startsWith(LOOKAHEAD, pos)) {
+         pos += LOOKAHEAD.length();
+         return (r) -> r.getLookaheadScore();
+      } else if (text.startsWith(CLAMP, pos)) {
+         pos += CLAMP.length();
+         ToDoubleFunction<SimulationResult> inner = parseExpr();
+         expect(':');
+         double low = parseOptionalNumber(Double.NEGATIVE_INFINITY);
+         expect(':');
+         double high = parseOptionalNumber(Double.POSITIVE_INFINITY);
+         expect(')');
+         if (low > high) {
+            throw error("Empty clamp range");
+         }
+         return (r) -> Math.min(high, Math.max(low, inner.applyAsDouble(r)));
+      }
+      String rest = text.substring(pos);
+      Matcher percentile = PERCENTILE_PATTERN.matcher(rest);
+      if (percentile.find()) {
+         pos += percentile.end();
+         double quantile = Integer.parseInt(percentile.group(1)) / 100.0;
+         return (r) -> r.getScoreQuantile(quantile);
+      }
+      Matcher number = NUMBER_PATTERN.matcher(rest);
+      if (number.find()) {
+         pos += number.end();
+         double value = Double.parseDouble(number.group());
+         return (r) -> value;
+      }
+      Matcher metric = METRIC_PATTERN.matcher(rest);
+      if (metric.find() && METRIC_KEYS.contains(metric.group(2))) {
+         pos += metric.end();
+         Function<SimulationResult, NumberSpan> spanGetter = METRIC_GETTERS.get(METRIC_KEYS.indexOf(metric.group(2)));
+         ToDoubleFunction<NumberSpan> valueGetter = GradingMode.getValue(metric.group(1));
+         return (r) -> valueGetter.applyAsDouble(spanGetter.apply(r));
+      }
+      throw error("Expected a number or metric");
+   }
+   
+   private double parseOptionalNumber(double def) {
+      boolean negative = accept('-');
+      Matcher number = NUMBER_PATTERN.matcher(text.substring(pos));
+      if (number.find()) {
+         pos += number.end();
+         double value = Double.parseDouble(number.group());
+         return negative ? -value : value;
+      } else if (negative) {
+         throw error("Expected a number");
+      }
+      return def;
+   }
+   
+   private static ToDoubleFunction<SimulationResult> sum(ToDoubleFunction<SimulationResult> a,
+         ToDoubleFunction<SimulationResult> b) {
+      return (r) -> a.applyAsDouble(r) + b.applyAsDouble(r);
+   }
+   
+   private static ToDoubleFunction<SimulationResult> product(ToDoubleFunction<SimulationResult> a,
+         ToDoubleFunction<SimulationResult> b) {
+      return (r) -> a.applyAsDouble(r) * b.applyAsDouble(r);
+   }
+   
+   private static ToDoubleFunction<SimulationResult> negate(ToDoubleFunction<SimulationResult> a) {
+      return (r) -> -a.applyAsDouble(r);
+   }
+}
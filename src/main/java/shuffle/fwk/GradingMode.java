@@ -20,11 +20,12 @@ package shuffle.fwk;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,12 +40,12 @@ import shuffle.fwk.i18n.I18nUser;
 public class GradingMode implements I18nUser {
    
    private static final List<String> DESC_KEYS = Arrays.asList("GOLD", "SCORE", "COMBOS", "DISRUPTIONS", "BLOCKS",
-         "PROGRESS", "MOVE", "NOCOIN", "GOLD_THRESHOLD", "COMBOS_THRESHOLD");
-   private static final List<BiFunction<String, String, BiFunction<SimulationResult, SimulationResult, Integer>>> DESC_COMP = Arrays
-         .asList((a, b) -> getGoldCompare(a, b), (a, b) -> getScoreCompare(a, b), (a, b) -> getCombosCompare(a, b),
-               (a, b) -> getDisruptionsCompare(a, b), (a, b) -> getBlocksCompare(a, b),
-               (a, b) -> getProgressCompare(a, b), (a, b) -> getMoveCompare(a, b), (a, b) -> getNoCoinCompare(a, b),
-               (a, b) -> getThresholdGold(a, b), (a, b) -> getThresholdCombos(a, b));
+         "PROGRESS", "MOVE", "NOCOIN", "GOLD_THRESHOLD", "COMBOS_THRESHOLD", "LOOKAHEAD");
+   private static final List<BiFunction<String, String, List<ToDoubleFunction<SimulationResult>>>> DESC_COMP = Arrays
+         .asList((a, b) -> getGoldKeys(a, b), (a, b) -> getScoreKeys(a, b), (a, b) -> getCombosKeys(a, b),
+               (a, b) -> getDisruptionsKeys(a, b), (a, b) -> getBlocksKeys(a, b), (a, b) -> getProgressKeys(a, b),
+               (a, b) -> getMoveKeys(a, b), (a, b) -> getNoCoinKeys(a, b), (a, b) -> getThresholdGold(a, b),
+               (a, b) -> getThresholdCombos(a, b), (a, b) -> getLookaheadKeys(a, b));
    private static final String DEFAULT_DESC = "GOLD,SCORE,COMBOS,DISRUPTIONS,BLOCKS,PROGRESS,MOVE";
    private static final Pattern DESC_KEY_PATTERN = Pattern.compile("^([+-]?)([\\d]*)(MIN|MAX)?[_]?([A-Z_]+)$");
    
@@ -58,26 +59,23 @@ public class GradingMode implements I18nUser {
       return threshold;
    }
    
-   protected static final BiFunction<SimulationResult, SimulationResult, Integer> getConditionalCompare(
-         String thresholdArg, String minOrMax, Function<SimulationResult, NumberSpan> mapper) {
+   /*
+    * Every grading token is compiled into one or more key functions. A result's keys are computed
+    * once and then compared in ascending order, so smaller keys are graded as better results.
+    */
+   
+   protected static final List<ToDoubleFunction<SimulationResult>> getConditionalKeys(String thresholdArg,
+         String minOrMax, Function<SimulationResult, NumberSpan> mapper) {
       final int threshold = getThreshold(thresholdArg, 0);
-      final Function<SimulationResult, Double> getter = getValue(minOrMax).compose(mapper);
-      return (arg0, arg1) -> {
-         Double val0 = getter.apply(arg0);
-         Double val1 = getter.apply(arg1);
-         if (val0 >= threshold && val1 >= threshold) {
-            return Double.compare(val1, val0);
-         } else if (val0 >= threshold && val1 < threshold) {
-            return -1;
-         } else if (val0 < threshold && val1 >= threshold) {
-            return 1;
-         } else {
-            return 0;
-         }
-      };
+      final ToDoubleFunction<NumberSpan> getter = getValue(minOrMax);
+      // Descending above the threshold, and all equally bad below it.
+      return Collections.singletonList((r) -> {
+         double val = getter.applyAsDouble(mapper.apply(r));
+         return val >= threshold ? -val : Double.POSITIVE_INFINITY;
+      });
    }
    
-   protected static Function<NumberSpan, Double> getValue(String minOrMax) {
+   protected static ToDoubleFunction<NumberSpan> getValue(String minOrMax) {
       if ("MIN".equals(minOrMax)) {
          return (v) -> (v.getMinimum());
       } else if ("MAX".equals(minOrMax)) {
@@ -87,148 +85,198 @@ public class GradingMode implements I18nUser {
       }
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getScoreCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getNetScore());
+   protected static List<ToDoubleFunction<SimulationResult>> getScoreKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getNetScore());
+   }
+   
+   protected static List<ToDoubleFunction<SimulationResult>> getGoldKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getNetGold());
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getGoldCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getNetGold());
+   protected static List<ToDoubleFunction<SimulationResult>> getCombosKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getCombosCleared());
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getCombosCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getCombosCleared());
+   protected static List<ToDoubleFunction<SimulationResult>> getBlocksKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getBlocksCleared());
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getBlocksCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getBlocksCleared());
+   protected static List<ToDoubleFunction<SimulationResult>> getDisruptionsKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getDisruptionsCleared());
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getDisruptionsCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getDisruptionsCleared());
+   protected static List<ToDoubleFunction<SimulationResult>> getProgressKeys(String args, String minOrMax) {
+      return getConditionalKeys(args, minOrMax, (r) -> r.getProgress());
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getProgressCompare(String args,
-         String minOrMax) {
-      return getConditionalCompare(args, minOrMax, (r) -> r.getProgress());
+   // The expected score over the lookahead horizon, which has no MIN or MAX
+   protected static List<ToDoubleFunction<SimulationResult>> getLookaheadKeys(String args, String minOrMax) {
+      final int threshold = getThreshold(args, 0);
+      return Collections.singletonList((r) -> {
+         double val = r.getLookaheadScore();
+         return val >= threshold ? -val : Double.POSITIVE_INFINITY;
+      });
    }
    
    // Sorts by coordinate
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getMoveCompare(String args,
-         String minOrMax) {
-      return (arg0, arg1) -> {
-         List<Integer> move0 = arg0.getMove();
-         List<Integer> move1 = arg1.getMove();
-         if (move0 == move1) {
-            return 0;
-         } else {
-            int ret = 0;
-            if (move0 == null) {
-               ret = 1;
-            } else if (move1 == null) {
-               ret = -1;
-            } else {
-               int min = Math.min(move0.size(), move1.size());
-               for (int i = 0; ret == 0 && i < min; i++) {
-                  ret = Integer.compare(move0.get(i), move1.get(i));
-               }
-            }
-            return ret;
+   protected static List<ToDoubleFunction<SimulationResult>> getMoveKeys(String args, String minOrMax) {
+      return Collections.singletonList((r) -> {
+         List<Integer> move = r.getMove();
+         double key = 0;
+         for (int i = 0; i < move.size(); i++) {
+            key = key * 8 + move.get(i);
          }
-      };
+         return key;
+      });
    }
    
    // Special - sorts by gold priority - avoid it or have lots of it.
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getNoCoinCompare(String args,
-         String minOrMax) {
-      final Function<SimulationResult, Double> getter = getValue(minOrMax).compose((v) -> (v.getNetGold()));
-      return (arg0, arg1) -> {
-         double gold0 = getter.apply(arg0);
-         double gold1 = getter.apply(arg1);
-         if (gold0 > 0 == gold1 > 0) {
-            // then compare descending.
-            return Double.compare(gold1, gold0);
-         } else {
-            return Boolean.compare(gold0 > 0, gold1 > 0);
-         }
-      };
+   protected static List<ToDoubleFunction<SimulationResult>> getNoCoinKeys(String args, String minOrMax) {
+      final ToDoubleFunction<NumberSpan> getter = getValue(minOrMax);
+      return Arrays.asList((r) -> getter.applyAsDouble(r.getNetGold()) > 0 ? 1 : 0,
+            (r) -> -getter.applyAsDouble(r.getNetGold()));
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getThresholdGold(String args,
-         String minOrMax) {
+   protected static List<ToDoubleFunction<SimulationResult>> getThresholdGold(String args, String minOrMax) {
       final int threshold = getThreshold(args, 0);
-      final Function<SimulationResult, Double> getter = getValue(minOrMax).compose((v) -> (v.getNetGold()));
-      return (arg0, arg1) -> {
-         double gold0 = getter.apply(arg0);
-         double gold1 = getter.apply(arg1);
-         if (gold0 >= threshold && gold1 < threshold) {
-            return -1;
-         } else if (gold0 < threshold && gold1 >= threshold) {
-            return 1;
-         } else {
-            return 0;
-         }
-      };
+      final ToDoubleFunction<NumberSpan> getter = getValue(minOrMax);
+      return Collections.singletonList((r) -> getter.applyAsDouble(r.getNetGold()) >= threshold ? 0 : 1);
    }
    
-   protected static BiFunction<SimulationResult, SimulationResult, Integer> getThresholdCombos(String args,
-         String minOrMax) {
+   protected static List<ToDoubleFunction<SimulationResult>> getThresholdCombos(String args, String minOrMax) {
       final int threshold = getThreshold(args, 0);
-      final Function<SimulationResult, Double> getter = getValue(minOrMax).compose((v) -> (v.getCombosCleared()));
-      return (arg0, arg1) -> {
-         int cmb0 = getter.apply(arg0).intValue();
-         int cmb1 = getter.apply(arg1).intValue();
-         if (cmb0 >= threshold && cmb1 < threshold) {
-            return -1;
-         } else if (cmb0 < threshold && cmb1 >= threshold) {
-            return 1;
-         } else {
-            return 0;
-         }
-      };
+      final ToDoubleFunction<NumberSpan> getter = getValue(minOrMax);
+      return Collections.singletonList((r) -> (int) getter.applyAsDouble(r.getCombosCleared()) >= threshold ? 0 : 1);
    }
    
-   public static Comparator<SimulationResult> getGradingMetric(String description) {
+   /**
+    * Compiles the given description into the key functions which grade a result. Tokens are either
+    * one of the known keys (with optional sign, threshold, and MIN or MAX prefix) or a
+    * {@link GradingExpression}, which includes the score distribution keys P(KO) and P10_SCORE.
+    * 
+    * @param description
+    *           The grading description
+    * @return The key functions, in order of precedence.
+    */
+   public static List<ToDoubleFunction<SimulationResult>> getKeyFunctions(String description) {
       if (description == null) {
          description = "";
       }
       description = description + "," + DEFAULT_DESC;
       String[] tokens = description.split("[,\\s]");
-      List<BiFunction<SimulationResult, SimulationResult, Integer>> comparrators = new ArrayList<BiFunction<SimulationResult, SimulationResult, Integer>>();
+      List<ToDoubleFunction<SimulationResult>> keyFunctions = new ArrayList<ToDoubleFunction<SimulationResult>>();
       for (String token : tokens) {
          Matcher m = DESC_KEY_PATTERN.matcher(token);
          if (m.find()) {
             String metric = m.group(4);
             if (DESC_KEYS.contains(metric)) {
-               int index = DESC_KEYS.indexOf(metric);
-               String comparatorArg = m.group(2);
-               String minOrMax = m.group(3); // can also be null if not specified
-               BiFunction<SimulationResult, SimulationResult, Integer> func = DESC_COMP.get(index).apply(comparatorArg,
-                     minOrMax);
-               String argSign = m.group(1);
-               if (argSign.equals("-")) {
-                  // Reverses the ordering
-                  func = func.andThen((value) -> value * (-1));
-               }
-               comparrators.add(func);
+               keyFunctions.addAll(getKeyFunctions(m));
+            }
+         } else if (GradingExpression.isExpression(token)) {
+            try {
+               ToDoubleFunction<SimulationResult> expression = GradingExpression.compile(token);
+               // Higher expression values are better
+               keyFunctions.add((r) -> -expression.applyAsDouble(r));
+            } catch (IllegalArgumentException e) {
+               // Ignored just like any other unknown token
+            }
+         }
+      }
+      return keyFunctions;
+   }
+   
+   /**
+    * @param m
+    *           A match of {@link #DESC_KEY_PATTERN} for one of the known keys
+    * @return The key functions of that token.
+    */
+   private static List<ToDoubleFunction<SimulationResult>> getKeyFunctions(Matcher m) {
+      int index = DESC_KEYS.indexOf(m.group(4));
+      String comparatorArg = m.group(2);
+      String minOrMax = m.group(3); // can also be null if not specified
+      List<ToDoubleFunction<SimulationResult>> funcs = DESC_COMP.get(index).apply(comparatorArg, minOrMax);
+      List<ToDoubleFunction<SimulationResult>> ret = new ArrayList<ToDoubleFunction<SimulationResult>>();
+      String argSign = m.group(1);
+      for (ToDoubleFunction<SimulationResult> func : funcs) {
+         if (argSign.equals("-")) {
+            // Reverses the ordering
+            ret.add((r) -> -func.applyAsDouble(r));
+         } else {
+            ret.add(func);
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * Gets the leading keys of the given description which only depend upon the average of a single
+    * metric each. Such keys are monotone in that average, so bounds on the averages bound the keys.
+    * 
+    * @param description
+    *           The grading description
+    * @return The leading key functions, up to the first key which cannot be bounded this way.
+    */
+   public static List<ToDoubleFunction<SimulationResult>> getBoundableKeys(String description) {
+      List<ToDoubleFunction<SimulationResult>> ret = new ArrayList<ToDoubleFunction<SimulationResult>>();
+      String full = (description == null ? "" : description) + "," + DEFAULT_DESC;
+      for (String token : full.split("[,\\s]")) {
+         Matcher m = DESC_KEY_PATTERN.matcher(token);
+         if (m.find() && DESC_KEYS.contains(m.group(4))) {
+            if (m.group(3) != null || "LOOKAHEAD".equals(m.group(4))) {
+               break;
+            }
+            ret.addAll(getKeyFunctions(m));
+         } else if (GradingExpression.isExpression(token)) {
+            break;
+         }
+      }
+      return ret;
+   }
+   
+   public static Comparator<SimulationResult> getGradingMetric(String description) {
+      return new CompiledMetric(getKeyFunctions(description));
+   }
+   
+   /**
+    * Compares results by their key vectors, which are computed at most once per result and cached
+    * within the result itself. Estimated results are always graded after simulated results.
+    */
+   private static class CompiledMetric implements Comparator<SimulationResult> {
+      private final ToDoubleFunction<SimulationResult>[] keyFunctions;
+      
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      public CompiledMetric(List<ToDoubleFunction<SimulationResult>> functions) {
+         keyFunctions = functions.toArray(new ToDoubleFunction[functions.size()]);
+      }
+      
+      private double[] getKeys(SimulationResult result) {
+         double[] keys = result.getGradingKeys(this);
+         if (keys == null) {
+            keys = new double[keyFunctions.length];
+            for (int i = 0; i < keys.length; i++) {
+               keys[i] = keyFunctions[i].applyAsDouble(result);
             }
+            result.setGradingKeys(this, keys);
          }
+         return keys;
       }
-      return new Comparator<SimulationResult>() {
-         @Override
-         public int compare(SimulationResult arg0, SimulationResult arg1) {
-            int ret = 0;
-            Iterator<BiFunction<SimulationResult, SimulationResult, Integer>> itr = comparrators.iterator();
-            while (ret == 0 && itr.hasNext()) {
-               ret = itr.next().apply(arg0, arg1);
+      
+      @Override
+      public int compare(SimulationResult arg0, SimulationResult arg1) {
+         if (arg0.isApproximate() != arg1.isApproximate()) {
+            return arg0.isApproximate() ? 1 : -1;
+         }
+         double[] keys0 = getKeys(arg0);
+         double[] keys1 = getKeys(arg1);
+         for (int i = 0; i < keys0.length; i++) {
+            if (keys0[i] < keys1[i]) {
+               return -1;
+            } else if (keys0[i] > keys1[i]) {
+               return 1;
             }
-            return ret;
          }
-      };
+         return 0;
+      }
    }
    
    private final Comparator<SimulationResult> metric;
@@ -259,6 +307,13 @@ public class GradingMode implements I18nUser {
       }
    }
    
+   /**
+    * @return The leading keys of this mode, as per {@link #getBoundableKeys(String)}.
+    */
+   public List<ToDoubleFunction<SimulationResult>> getBoundableKeys() {
+      return getBoundableKeys(desc);
+   }
+   
    public Comparator<SimulationResult> getGradingMetric() {
       return metric;
    }
@@ -735,6 +735,31 @@ public class ShuffleController extends Observable implements ShuffleViewUser, Sh
       return getModel().isMegaAllowed();
    }
    
+   @Override
+   public int getLookaheadDepth() {
+      return getModel().getLookaheadDepth();
+   }
+   
+   @Override
+   public int getLookaheadNodes() {
+      return getModel().getLookaheadNodes();
+   }
+   
+   @Override
+   public boolean isPruningMoves() {
+      return getModel().isPruningMoves();
+   }
+   
+   @Override
+   public int getApproximateCandidates() {
+      return getModel().getApproximateCandidates();
+   }
+   
+   @Override
+   public String getSimulationEngine() {
+      return getModel().getSimulationEngine();
+   }
+   
    /*
     * (non-Javadoc)
     * @see shuffle.fwk.data.simulation.util.SimulationAcceptor#acceptResults(java.util.Collection)
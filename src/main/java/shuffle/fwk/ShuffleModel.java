@@ -36,9 +36,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Stack;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -46,6 +48,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -85,8 +88,12 @@ import shuffle.fwk.data.SpeciesPaint;
 import shuffle.fwk.data.Stage;
 import shuffle.fwk.data.Team;
 import shuffle.fwk.data.TeamImpl;
+import shuffle.fwk.data.simulation.CascadeMemo;
+import shuffle.fwk.data.simulation.LegacySimulationEngine;
+import shuffle.fwk.data.simulation.SimulationCache;
 import shuffle.fwk.data.simulation.SimulationCore;
 import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.SimulationAcceptor;
 import shuffle.fwk.i18n.I18nUser;
 import shuffle.fwk.service.BaseService;
 import shuffle.fwk.update.UpdateCheck;
@@ -107,13 +114,30 @@ public class ShuffleModel
    private static final Logger LOG = Logger.getLogger(ShuffleModel.class.getName());
    /** The controller for this model. */
    private final ShuffleModelUser user;
-   /** The delay, in Milliseconds, after a change before the core is started. */
+   /** The initial delay, in Milliseconds, after a change before the core is started. */
    private static final int SIMULATION_DELAY = 150;
+   /** The bounds, in Milliseconds, for the delay as it adapts to the measured simulation time. */
+   private static final int MIN_SIMULATION_DELAY = 50;
+   private static final int MAX_SIMULATION_DELAY = 600;
+   /** The fraction of the average simulation time to wait for further changes. */
+   private static final double SIMULATION_DELAY_FRACTION = 0.25;
+   /** The weight of the latest simulation time in the running average. */
+   private static final double SIMULATION_TIME_SMOOTHING = 0.3;
    // defaults
    private static final boolean DEFAULT_AUTO_COMPUTE = true;
    private static final int DEFAULT_FEEDER_HEIGHT = 0;
    private static final int DEFAULT_NUM_FEEDERS = 1;
    private static final int DEFAULT_SURVIVAL_MOVES = 5;
+   private static final int DEFAULT_SPECULATE_MOVES = 3;
+   private static final boolean DEFAULT_INCREMENTAL_SIMULATION = true;
+   private static final boolean DEFAULT_CASCADE_MEMO = true;
+   private static final boolean DEFAULT_PRUNE_MOVES = false;
+   private static final int DEFAULT_LOOKAHEAD_DEPTH = 1;
+   private static final int MAX_LOOKAHEAD_DEPTH = 3;
+   private static final int DEFAULT_LOOKAHEAD_NODES = 24;
+   private static final boolean DEFAULT_APPROXIMATE_MODE = false;
+   private static final int DEFAULT_APPROXIMATE_CANDIDATES = 8;
+   private static final String DEFAULT_SIMULATION_ENGINE = LegacySimulationEngine.NAME;
    private static final String BUILD_REPORT_FILE = "bugs/buildReport.xml";
    private static final String BUILD_REPORT_RESOURCE = "config/buildReport.xml";
    private static final String BUG_DETAILS_FILE = "bugs/bugDetails.txt";
@@ -137,6 +161,15 @@ public class ShuffleModel
    private static final String KEY_METAL_EXTENDED = "METAL_EXTENDED";
    private static final String KEY_SURVIVAL_MODE = "SURVIVAL_MODE";
    private static final String KEY_SURVIVAL_MODE_MOVES = "SURVIVAL_MODE_MOVES";
+   private static final String KEY_SPECULATE_MOVES = "SPECULATE_MOVES";
+   private static final String KEY_INCREMENTAL_SIMULATION = "INCREMENTAL_SIMULATION";
+   private static final String KEY_CASCADE_MEMO = "CASCADE_MEMO";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final String KEY_LOOKAHEAD_NODES = "LOOKAHEAD_NODES";
+   private static final String KEY_APPROXIMATE_MODE = "APPROXIMATE_MODE";
+   private static final String KEY_APPROXIMATE_CANDIDATES = "APPROXIMATE_CANDIDATES";
+   private static final String KEY_SIMULATION_ENGINE = "SIMULATION_ENGINE";
    // i18n keys
    private static final String KEY_SIMULATION_START = "log.sim.start";
    private static final String KEY_SIMULATION_COMPLETE = "log.sim.complete";
@@ -146,6 +179,8 @@ public class ShuffleModel
    private static final String KEY_BUG_FILE_SAVEPROBLEM = "log.error.bugfile.saveproblem";
    private static final String KEY_BUG_REPORT_PROBLEM = "log.error.bugreport.problem";
    private static final String KEY_SELECTING_RESULT = "log.result.selected";
+   private static final String KEY_RESULTS_INDISTINGUISHABLE = "log.result.indistinguishable";
+   private static final String KEY_RESULTS_PRUNED = "log.result.pruned";
    // Special values for SP_084 Meowth (weekend meowth)
    private static final Collection<String> SP_084_STAGE_KEYS = new TreeSet<String>(Arrays.asList("SP_084", "SP_084A"));
    private static final int SP_084_MOVE_OVERRIDE = 5;
@@ -179,6 +214,24 @@ public class ShuffleModel
    private ScheduledExecutorService scheduledExecutor = Executors.newScheduledThreadPool(1);
    private ForkJoinPool forkJoinPool = getNewPool();
    private UUID processUUID = null;
+   private ScheduledFuture<?> pendingRecompute = null;
+   private SimulationCore runningCore = null;
+   // How many simulations were started, and how many of those were thrown away for a newer one
+   private long simulationsStarted = 0L;
+   private long simulationsSuperseded = 0L;
+   private long supersededNanos = 0L;
+   // The results of the last simulation, to be reused by the next one where the edits allow it.
+   private SimulationCache simulationCache = null;
+   // The outcomes of cascades simulated so far, shared by every simulation with the same settings.
+   private CascadeMemo cascadeMemo = null;
+   private double averageSimulationTime = SIMULATION_DELAY / SIMULATION_DELAY_FRACTION;
+   
+   // Speculative results for the likely boards after each of the top few moves
+   private static final UUID STALE_SPECULATION_ID = new UUID(0L, 0L);
+   private ForkJoinPool speculationPool = null;
+   private final List<SimulationCore> speculativeCores = new ArrayList<SimulationCore>();
+   private UUID speculationGeneration = null;
+   private final Map<NextTurnState, Collection<SimulationResult>> speculativeResults = new HashMap<NextTurnState, Collection<SimulationResult>>();
    
    private Stack<UndoRedoItem> undoStack = new Stack<UndoRedoItem>();
    private Stack<UndoRedoItem> redoStack = new Stack<UndoRedoItem>();
@@ -892,6 +945,7 @@ public class ShuffleModel
     * 
     */
    private void recomputeResults(boolean force) {
+      cancelSpeculation();
       resultsCurrent = false;
       bestResults = null;
       selectedResult = null;
@@ -900,28 +954,260 @@ public class ShuffleModel
       }
    }
    
-   private void regenerateResult(boolean computeNow) {
-      if (resultsComputing) {
+   /**
+    * Coalesces all changes within the simulation delay into a single simulation. Each change only
+    * replaces the pending recompute, the core itself is created on the scheduler thread once the
+    * delay passes without any further change.
+    * 
+    * @param computeNow
+    *           True to skip the delay.
+    */
+   private synchronized void regenerateResult(boolean computeNow) {
+      if (runningCore != null) {
+         runningCore.stop();
          forkJoinPool.shutdownNow();
          forkJoinPool = getNewPool();
+         runningCore = null;
+         simulationsSuperseded++;
+      }
+      if (pendingRecompute != null) {
+         pendingRecompute.cancel(false);
       }
       resultsComputing = true;
-      processUUID = UUID.randomUUID();
-      SimulationCore core = new SimulationCore(getUser(), processUUID);
-      scheduledExecutor.schedule(new Runnable() {
+      UUID id = UUID.randomUUID();
+      processUUID = id;
+      pendingRecompute = scheduledExecutor.schedule(new Runnable() {
          @Override
          public void run() {
-            if (core.isCurrent()) {
-               LOG.info(getString(KEY_SIMULATION_START));
-               forkJoinPool.execute(core);
-            }
+            startCore(id);
          }
          
-      }, computeNow ? 0 : SIMULATION_DELAY, TimeUnit.MILLISECONDS);
+      }, computeNow ? 0 : getSimulationDelay(), TimeUnit.MILLISECONDS);
+   }
+   
+   private void startCore(UUID id) {
+      if (!id.equals(processUUID)) {
+         return;
+      }
+      SimulationCore core;
+      try {
+         core = new SimulationCore(getUser(), id);
+      } catch (RuntimeException e) {
+         // A change raced with reading the data, in which case that change already has a recompute pending.
+         synchronized (this) {
+            if (id.equals(processUUID)) {
+               LOG.log(Level.WARNING, "Cannot start the simulation because: " + e.getMessage(), e);
+               resultsComputing = false;
+            }
+         }
+         return;
+      }
+      synchronized (this) {
+         if (core.isCurrent()) {
+            LOG.info(getString(KEY_SIMULATION_START));
+            if (isIncrementalSimulation()) {
+               core.setIncremental(simulationCache);
+            }
+            if (isCascadeMemo()) {
+               core.setCascadeMemo(cascadeMemo);
+               cascadeMemo = core.getCascadeMemo();
+            }
+            long coreStart = System.nanoTime();
+            core.setStopListener(stopTime -> addSupersededTime(stopTime - coreStart));
+            runningCore = core;
+            simulationsStarted++;
+            forkJoinPool.execute(core);
+         }
+      }
+   }
+   
+   /**
+    * @return The delay, in milliseconds, to wait for further changes before starting a simulation.
+    *         This is a fraction of the average simulation time, so cheap simulations start sooner and
+    *         expensive simulations are less likely to be thrown away.
+    */
+   public synchronized int getSimulationDelay() {
+      int delay = (int) (averageSimulationTime * SIMULATION_DELAY_FRACTION);
+      return Math.max(MIN_SIMULATION_DELAY, Math.min(MAX_SIMULATION_DELAY, delay));
+   }
+   
+   /**
+    * @return The number of simulations started so far, not counting speculative ones.
+    */
+   public synchronized long getSimulationsStarted() {
+      return simulationsStarted;
+   }
+   
+   /**
+    * @return The number of simulations started so far which were stopped by a later change before
+    *         their results could be accepted.
+    */
+   public synchronized long getSimulationsSuperseded() {
+      return simulationsSuperseded;
+   }
+   
+   /**
+    * @return The total time, in milliseconds, that the superseded simulations ran until they actually
+    *         finished, counting each from when it started.
+    */
+   public synchronized long getSupersededTime() {
+      return TimeUnit.NANOSECONDS.toMillis(supersededNanos);
+   }
+   
+   private synchronized void addSupersededTime(long elapsed) {
+      supersededNanos += elapsed;
+   }
+   
+   private synchronized void updateSimulationTime(long elapsed) {
+      averageSimulationTime += SIMULATION_TIME_SMOOTHING * (elapsed - averageSimulationTime);
+   }
+   
+   /**
+    * Starts simulating the likely boards after each of the top few moves of the given process, so
+    * that applying one of those moves can show its results immediately. Any user input cancels this
+    * through {@link #recomputeResults(boolean)}. This runs on the scheduler thread, not the EDT, and
+    * the cores are built outside the lock, which only guards the speculation's generation.
+    * 
+    * @param forProcess
+    *           The id of the process whose results are speculated on
+    */
+   private void startSpeculation(UUID forProcess) {
+      UUID generation = UUID.randomUUID();
+      List<NextTurnState> nextStates = new ArrayList<NextTurnState>();
+      int stageHealth;
+      synchronized (this) {
+         int numMoves = getSpeculateMoves();
+         if (numMoves <= 0 || !forProcess.equals(processUUID) || !resultsCurrent || bestResults == null) {
+            return;
+         }
+         cancelSpeculation();
+         speculationGeneration = generation;
+         speculationPool = getNewPool(getSpeculationParallelism());
+         stageHealth = getCurrentStage().getHealth(getEscalationLevel());
+         Iterator<SimulationResult> itr = bestResults.iterator();
+         for (int i = 0; i < numMoves && itr.hasNext(); i++) {
+            nextStates.add(getNextTurnState(itr.next()));
+         }
+      }
+      for (NextTurnState next : nextStates) {
+         int health = Math.max(0, stageHealth - next.getScore());
+         Speculation speculation = new Speculation(next, generation);
+         SimulationCore core;
+         try {
+            core = new SimulationCore(getUser(), speculation.getId(), next.getBoard(),
+                  next.getBoard().getMegaProgress(), health, next.getMoves(), speculation);
+         } catch (RuntimeException e) {
+            // A change raced with reading the data, which also cancels this speculation.
+            LOG.log(Level.FINE, "Cannot speculate because: " + e.getMessage(), e);
+            return;
+         }
+         synchronized (this) {
+            if (!generation.equals(speculationGeneration)) {
+               return;
+            }
+            if (isCascadeMemo()) {
+               core.setCascadeMemo(cascadeMemo);
+            }
+            speculativeCores.add(core);
+            speculationPool.execute(core);
+         }
+      }
+   }
+   
+   private synchronized void cancelSpeculation() {
+      speculationGeneration = null;
+      speculativeResults.clear();
+      for (SimulationCore core : speculativeCores) {
+         core.stop();
+      }
+      speculativeCores.clear();
+      if (speculationPool != null) {
+         speculationPool.shutdownNow();
+         speculationPool = null;
+      }
+   }
+   
+   private synchronized void storeSpeculativeResults(NextTurnState next, UUID generation,
+         Collection<SimulationResult> results) {
+      if (generation.equals(speculationGeneration) && results != null && !results.isEmpty()) {
+         speculativeResults.put(next, results);
+      }
+   }
+   
+   /**
+    * Takes the speculative results for the given state, if they are ready, and cancels all other
+    * speculation.
+    * 
+    * @param next
+    *           The state after a move
+    * @return The results for that state, or null if they are not available.
+    */
+   private synchronized Collection<SimulationResult> takeSpeculativeResults(NextTurnState next) {
+      Collection<SimulationResult> ret = speculativeResults.get(next);
+      cancelSpeculation();
+      return ret;
+   }
+   
+   private synchronized UUID getSpeculationId(UUID id, UUID generation) {
+      return generation.equals(speculationGeneration) ? id : STALE_SPECULATION_ID;
+   }
+   
+   public int getSpeculateMoves() {
+      return getPreferencesManager().getIntegerValue(KEY_SPECULATE_MOVES, DEFAULT_SPECULATE_MOVES);
+   }
+   
+   public boolean isIncrementalSimulation() {
+      return getPreferencesManager().getBooleanValue(KEY_INCREMENTAL_SIMULATION, DEFAULT_INCREMENTAL_SIMULATION);
+   }
+   
+   public boolean isCascadeMemo() {
+      return getPreferencesManager().getBooleanValue(KEY_CASCADE_MEMO, DEFAULT_CASCADE_MEMO);
+   }
+   
+   public boolean isPruningMoves() {
+      return getPreferencesManager().getBooleanValue(KEY_PRUNE_MOVES, DEFAULT_PRUNE_MOVES);
+   }
+   
+   public int getLookaheadDepth() {
+      int depth = getPreferencesManager().getIntegerValue(KEY_LOOKAHEAD_DEPTH, DEFAULT_LOOKAHEAD_DEPTH);
+      return Math.max(1, Math.min(MAX_LOOKAHEAD_DEPTH, depth));
+   }
+   
+   public int getLookaheadNodes() {
+      return Math.max(0, getPreferencesManager().getIntegerValue(KEY_LOOKAHEAD_NODES, DEFAULT_LOOKAHEAD_NODES));
+   }
+   
+   public boolean isApproximateMode() {
+      return getPreferencesManager().getBooleanValue(KEY_APPROXIMATE_MODE, DEFAULT_APPROXIMATE_MODE);
+   }
+   
+   public int getApproximateCandidates() {
+      if (!isApproximateMode()) {
+         return 0;
+      }
+      int candidates = getPreferencesManager().getIntegerValue(KEY_APPROXIMATE_CANDIDATES,
+            DEFAULT_APPROXIMATE_CANDIDATES);
+      return Math.max(1, candidates);
+   }
+   
+   public String getSimulationEngine() {
+      return getPreferencesManager().getStringValue(KEY_SIMULATION_ENGINE, DEFAULT_SIMULATION_ENGINE);
+   }
+   
+   /**
+    * @return The threads to speculate with, fewer than the simulation itself has so that speculation
+    *         never competes with it for every core.
+    */
+   private static int getSpeculationParallelism() {
+      return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
    }
    
    private ForkJoinPool getNewPool() {
-      ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+      return getNewPool(Runtime.getRuntime().availableProcessors());
+   }
+   
+   private ForkJoinPool getNewPool(int parallelism) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism,
             new ForkJoinPool.ForkJoinWorkerThreadFactory() {
                @Override
                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
@@ -951,25 +1237,53 @@ public class ShuffleModel
    }
    
    public synchronized boolean setBestResults(Collection<SimulationResult> results) {
+      return setBestResults(results, true);
+   }
+   
+   private synchronized boolean setBestResults(Collection<SimulationResult> results, boolean measured) {
       long endTime = System.currentTimeMillis();
       resultsCurrent = true;
       resultsComputing = false;
+      SimulationCore finishedCore = runningCore;
+      runningCore = null;
       boolean changed = false;
       if (results != null && !results.isEmpty()) {
          SimulationResult firstResult = results.iterator().next();
          if (firstResult != null && firstResult.getID() != null && firstResult.getID().equals(processUUID)) {
+            if (finishedCore != null && finishedCore.getId().equals(processUUID) && finishedCore.getCache() != null) {
+               simulationCache = finishedCore.getCache();
+            }
             bestResults = new TreeSet<SimulationResult>(getCurrentGradingMode().getGradingMetric());
             bestResults.addAll(results);
             selectedResult = bestResults.iterator().next();
             long startTime = selectedResult.getStartTime();
+            if (measured) {
+               updateSimulationTime(endTime - startTime);
+            }
             changed = true;
+            UUID acceptedId = processUUID;
+            scheduledExecutor.execute(() -> startSpeculation(acceptedId));
+            String indistinguishableWarning = getIndistinguishableWarning();
+            String prunedMessage = getPrunedMessage();
             if (SwingUtilities.isEventDispatchThread()) {
                LOG.info(getString(KEY_SIMULATION_COMPLETE, endTime - startTime));
+               if (prunedMessage != null) {
+                  LOG.info(prunedMessage);
+               }
+               if (indistinguishableWarning != null) {
+                  LOG.warning(indistinguishableWarning);
+               }
             } else {
                SwingUtilities.invokeLater(new Runnable() {
                   @Override
                   public void run() {
                      LOG.info(getString(KEY_SIMULATION_COMPLETE, endTime - startTime));
+                     if (prunedMessage != null) {
+                        LOG.info(prunedMessage);
+                     }
+                     if (indistinguishableWarning != null) {
+                        LOG.warning(indistinguishableWarning);
+                     }
                   }
                });
             }
@@ -978,6 +1292,44 @@ public class ShuffleModel
       return changed;
    }
    
+   /**
+    * Checks if the top two results only differ within sampling noise, which means the number of
+    * feeders is too low to tell them apart.
+    * 
+    * @return The warning to show, or null if the best result is clearly the best.
+    */
+   private String getIndistinguishableWarning() {
+      if (bestResults == null || bestResults.size() < 2) {
+         return null;
+      }
+      Iterator<SimulationResult> itr = bestResults.iterator();
+      SimulationResult first = itr.next();
+      SimulationResult second = itr.next();
+      if (first.isIndistinguishableFrom(second)) {
+         return getString(KEY_RESULTS_INDISTINGUISHABLE, first.toString(), second.toString());
+      }
+      return null;
+   }
+   
+   /**
+    * Counts the results which were pruned, so that their partial results are not mistaken for
+    * complete ones.
+    * 
+    * @return The message to show, or null if no result was pruned.
+    */
+   private String getPrunedMessage() {
+      if (bestResults == null) {
+         return null;
+      }
+      int pruned = 0;
+      for (SimulationResult result : bestResults) {
+         if (result.isPruned()) {
+            pruned++;
+         }
+      }
+      return pruned == 0 ? null : getString(KEY_RESULTS_PRUNED, pruned, bestResults.size());
+   }
+   
    /**
     * @param result
     * @return
@@ -1001,9 +1353,11 @@ public class ShuffleModel
       int prevScore = getCurrentScore();
       int prevMoves = getRemainingMoves();
       // identify the new state
-      Board newBoard = selectedResult.getBoard();
-      int newScore = (int) (Math.max(0, prevScore + selectedResult.getNetScore().getAverage()));
-      int newMoves = selectedResult.getMove().isEmpty() ? prevMoves : Math.max(prevMoves - 1, 1);
+      NextTurnState next = getNextTurnState(selectedResult);
+      Collection<SimulationResult> speculated = takeSpeculativeResults(next);
+      Board newBoard = next.getBoard();
+      int newScore = next.getScore();
+      int newMoves = next.getMoves();
       // if the state is different,
       boolean changed = getBoardManager().setBoard(newBoard) || newScore != prevScore || prevMoves != newMoves;
       if (changed) {
@@ -1014,19 +1368,50 @@ public class ShuffleModel
          setCurrentScore(newScore);
          setRemainingMoves(newMoves);
          if (followSP084defaults && isSpecialStage84(getCurrentStage())) {
+            boolean modeChanged;
             if (newMoves <= 1) {
-               setGradingMode(getGradingModeManager().getGradingModeValue(SP_084_LAST_MOVE_GRADING_MODE,
-                     getCurrentGradingMode()));
+               modeChanged = setGradingMode(getGradingModeManager()
+                     .getGradingModeValue(SP_084_LAST_MOVE_GRADING_MODE, getCurrentGradingMode()));
             } else {
-               setGradingMode(
+               modeChanged = setGradingMode(
                      getGradingModeManager().getGradingModeValue(SP_084_GRADING_MODE, getCurrentGradingMode()));
             }
+            if (modeChanged) {
+               // The speculation was graded, and maybe pruned, under the previous mode.
+               speculated = null;
+            }
+         }
+         if (speculated == null) {
+            setDataChanged();
+         } else {
+            acceptSpeculativeResults(speculated);
          }
-         setDataChanged();
       }
       return changed;
    }
    
+   /**
+    * @param result
+    * @return The board, score and remaining moves after the given result's move is done.
+    */
+   private NextTurnState getNextTurnState(SimulationResult result) {
+      int prevScore = getCurrentScore();
+      int prevMoves = getRemainingMoves();
+      int newScore = (int) (Math.max(0, prevScore + result.getNetScore().getAverage()));
+      int newMoves = result.getMove().isEmpty() ? prevMoves : Math.max(prevMoves - 1, 1);
+      return new NextTurnState(result.getBoard(), newScore, newMoves);
+   }
+   
+   private void acceptSpeculativeResults(Collection<SimulationResult> results) {
+      LOG.fine("Using speculative results for the applied move");
+      resultsCurrent = false;
+      resultsComputing = false;
+      bestResults = null;
+      selectedResult = null;
+      processUUID = results.iterator().next().getID();
+      setBestResults(results, false);
+   }
+   
    public boolean undoMove() {
       if (undoStack.isEmpty()) {
          return false;
@@ -1298,7 +1683,10 @@ public class ShuffleModel
    protected boolean setGradingMode(GradingMode mode) {
       boolean changed = mode != null && !mode.equals(getCurrentGradingMode()) && setGradeMode(mode);
       if (changed) {
-         if (bestResults != null && !bestResults.isEmpty()) {
+         if (isPruningMoves()) {
+            // Moves pruned under the previous mode might be the best under this one.
+            setDataChanged();
+         } else if (bestResults != null && !bestResults.isEmpty()) {
             Collection<SimulationResult> prev = new ArrayList<SimulationResult>(bestResults);
             bestResults = new TreeSet<SimulationResult>(getCurrentGradingMode().getGradingMetric());
             for (SimulationResult result : prev) {
@@ -1412,6 +1800,76 @@ public class ShuffleModel
       }
    }
    
+   /**
+    * The stage state after a move, used to find speculative results for that move.
+    */
+   private static class NextTurnState {
+      private final Board board;
+      private final int score;
+      private final int moves;
+      
+      public NextTurnState(Board b, int s, int movesLeft) {
+         board = new Board(b);
+         score = s;
+         moves = movesLeft;
+      }
+      
+      public Board getBoard() {
+         return board;
+      }
+      
+      public int getScore() {
+         return score;
+      }
+      
+      public int getMoves() {
+         return moves;
+      }
+      
+      @Override
+      public int hashCode() {
+         return (board.hashCode() * 31 + score) * 31 + moves;
+      }
+      
+      @Override
+      public boolean equals(Object obj) {
+         boolean equal = obj != null && obj instanceof NextTurnState;
+         if (equal) {
+            NextTurnState other = (NextTurnState) obj;
+            equal &= board.equals(other.board) && score == other.score && moves == other.moves;
+         }
+         return equal;
+      }
+   }
+   
+   /**
+    * Accepts the results of one speculative simulation, as long as its generation is still current.
+    */
+   private class Speculation implements SimulationAcceptor {
+      private final NextTurnState next;
+      private final UUID generation;
+      private final UUID id = UUID.randomUUID();
+      
+      public Speculation(NextTurnState next, UUID generation) {
+         this.next = next;
+         this.generation = generation;
+      }
+      
+      public UUID getId() {
+         return id;
+      }
+      
+      @Override
+      public void acceptResults(Collection<SimulationResult> results) {
+         storeSpeculativeResults(next, generation, results);
+      }
+      
+      @Override
+      public UUID getAcceptedId() {
+         return getSpeculationId(id, generation);
+      }
+   }
+   
    private class UndoRedoItem {
       private final Board board;
       private final int score;
@@ -66,7 +66,22 @@ public class BoardManager {
    public boolean loadFromConfig() {
       boardLoader.setForceReload(true);
       boolean changed = loadBoardFromConfig(boardLoader);
-      loadStageFromConfig();
+      loadStageFromConfig(boardLoader);
+      return changed;
+   }
+   
+   /**
+    * Loads the board and its stage from the given file, which is in the same format as the saved
+    * board. Nothing else about the board manager changes, so the saved board is left as it is.
+    * 
+    * @param file
+    *           The board file
+    * @return True if the board or stage changed, false otherwise.
+    */
+   public boolean loadFromFile(File file) {
+      BoardConfigLoader fileLoader = new BoardConfigLoader(null, Arrays.asList(file.getPath()));
+      boolean changed = loadBoardFromConfig(fileLoader);
+      changed |= loadStageFromConfig(fileLoader);
       return changed;
    }
    
@@ -177,8 +192,8 @@ public class BoardManager {
       return !before.equals(after);
    }
    
-   private boolean loadStageFromConfig() {
-      List<String> stages = boardLoader.getConfiguredStage();
+   private boolean loadStageFromConfig(BoardConfigLoader loader) {
+      List<String> stages = loader.getConfiguredStage();
       Stage oldStage = curStage;
       curStage = factory.getStageManager().getStageMatch(stages);
       return !(curStage == oldStage || curStage != null && curStage.equals(oldStage));
@@ -264,7 +279,7 @@ public class BoardManager {
    
    public Stage getCurrentStage() {
       if (curStage == null) {
-         loadStageFromConfig();
+         loadStageFromConfig(boardLoader);
       }
       return curStage;
    }
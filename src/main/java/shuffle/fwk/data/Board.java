@@ -33,10 +33,15 @@ public class Board {
    public static final int NUM_ROWS = 6;
    public static final int NUM_COLS = 6;
    public static final int NUM_CELLS = NUM_ROWS * NUM_COLS;
+   public static final long ALL_CELLS = (1L << NUM_CELLS) - 1;
    
    private final Species[][] species = new Species[NUM_ROWS][NUM_COLS];
    private final boolean[][] frozen = new boolean[NUM_ROWS][NUM_COLS];
    private final boolean[][] clouded = new boolean[NUM_ROWS][NUM_COLS];
+   // Each species on the board and the mask of its cells, kept up to date by setSpeciesAt
+   private Species[] indexed = new Species[NUM_CELLS];
+   private long[] indexedCells = new long[NUM_CELLS];
+   private int indexedCount = 0;
    private int megaProgress;
    private Status status;
    /**
@@ -85,6 +90,11 @@ public class Board {
       }
    }
    private String toString = null;
+   // The cells read and written while tracking, as bit masks of getCellBit
+   private boolean trackReads = false;
+   private boolean trackWrites = false;
+   private long readMask = 0L;
+   private long writeMask = 0L;
    
    public Board() {
       clear();
@@ -94,18 +104,103 @@ public class Board {
    }
    
    public Board(Board b) {
-      this();
-      for (int row = 1; row <= NUM_ROWS; row++) {
-         for (int col = 1; col <= NUM_COLS; col++) {
-            setSpeciesAt(row, col, b.getSpeciesAt(row, col));
-            setFrozenAt(row, col, b.isFrozenAt(row, col));
-         }
+      for (int row = 0; row < NUM_ROWS; row++) {
+         System.arraycopy(b.species[row], 0, species[row], 0, NUM_COLS);
+         System.arraycopy(b.frozen[row], 0, frozen[row], 0, NUM_COLS);
+         System.arraycopy(b.clouded[row], 0, clouded[row], 0, NUM_COLS);
       }
+      System.arraycopy(b.indexed, 0, indexed, 0, b.indexedCount);
+      System.arraycopy(b.indexedCells, 0, indexedCells, 0, b.indexedCount);
+      indexedCount = b.indexedCount;
       megaProgress = b.getMegaProgress();
       status = b.getStatus();
       statusDuration = b.getStatusDuration();
    }
    
+   /**
+    * Gets the bit which represents the given cell in a cell mask. Coordinates should be within
+    * [1,6]x[1,6].
+    * 
+    * @param row
+    * @param column
+    * @return The bit for the cell, or 0 if the coordinates are outside of the board.
+    */
+   public static long getCellBit(int row, int column) {
+      if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
+         return 0L;
+      }
+      return 1L << (row - 1) * NUM_COLS + column - 1;
+   }
+   
+   /**
+    * Sets if cell reads and writes should be recorded. Tracking is never copied to other boards.
+    * 
+    * @param track
+    *           True to record reads and writes from now on.
+    */
+   public void setTracking(boolean track) {
+      trackReads = track;
+      trackWrites = track;
+   }
+   
+   /**
+    * Sets if cell reads should be recorded, without changing if writes are recorded. This lets a
+    * caller scan the board without adding the whole scan to the read mask.
+    * 
+    * @param track
+    *           True to record reads from now on.
+    * @return The previous read tracking state, so that it can be restored.
+    */
+   public boolean setTrackingReads(boolean track) {
+      boolean wasTracking = trackReads;
+      trackReads = track;
+      return wasTracking;
+   }
+   
+   /**
+    * @return The mask of all cells read while tracking.
+    */
+   public long getReadMask() {
+      return readMask;
+   }
+   
+   /**
+    * @return The mask of all cells written while tracking, whether or not the value changed.
+    */
+   public long getWriteMask() {
+      return writeMask;
+   }
+   
+   /**
+    * @return The mask of all frozen cells, as per {@link #getCellBit(int, int)}.
+    */
+   public long getFrozenMask() {
+      long ret = 0L;
+      for (int row = 1; row <= NUM_ROWS; row++) {
+         for (int col = 1; col <= NUM_COLS; col++) {
+            if (frozen[row - 1][col - 1]) {
+               ret |= getCellBit(row, col);
+            }
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * @return The mask of all clouded cells, as per {@link #getCellBit(int, int)}.
+    */
+   public long getCloudedMask() {
+      long ret = 0L;
+      for (int row = 1; row <= NUM_ROWS; row++) {
+         for (int col = 1; col <= NUM_COLS; col++) {
+            if (clouded[row - 1][col - 1]) {
+               ret |= getCellBit(row, col);
+            }
+         }
+      }
+      return ret;
+   }
+   
    public int getStatusDuration() {
       return statusDuration;
    }
@@ -181,6 +276,9 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
          return Species.AIR;
       }
+      if (trackReads) {
+         readMask |= getCellBit(row, column);
+      }
       return species[row - 1][column - 1];
    }
    
@@ -198,7 +296,14 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS || s == null || s.equals(Species.FREEZE)) {
          return false;
       }
-      boolean changed = !s.equals(getSpeciesAt(row, column));
+      if (trackWrites) {
+         writeMask |= getCellBit(row, column);
+      }
+      Species prev = species[row - 1][column - 1];
+      boolean changed = !s.equals(prev);
+      if (changed) {
+         updateIndex(prev, s, getCellBit(row, column));
+      }
       if (!s.isFreezable()) {
          changed |= setFrozenAt(row, column, false);
       }
@@ -209,10 +314,89 @@ public class Board {
       return changed;
    }
    
+   /**
+    * Moves the given cell from the previous species' cells to the new species' cells.
+    */
+   private void updateIndex(Species prev, Species s, long bit) {
+      if (prev != null) {
+         int i = getIndexOf(prev);
+         indexedCells[i] &= ~bit;
+         if (indexedCells[i] == 0L) {
+            indexedCount--;
+            indexed[i] = indexed[indexedCount];
+            indexedCells[i] = indexedCells[indexedCount];
+            indexed[indexedCount] = null;
+            indexedCells[indexedCount] = 0L;
+         }
+      }
+      int i = getIndexOf(s);
+      if (i < 0) {
+         i = indexedCount++;
+         indexed[i] = s;
+      }
+      indexedCells[i] |= bit;
+   }
+   
+   private int getIndexOf(Species s) {
+      for (int i = 0; i < indexedCount; i++) {
+         if (indexed[i] == s || indexed[i].equals(s)) {
+            return i;
+         }
+      }
+      return -1;
+   }
+   
+   /**
+    * @param s
+    *           The species
+    * @return The mask of every cell holding the given species, as by {@link #getCellBit(int, int)}.
+    *         This reads the whole board.
+    */
+   public long getCellsOf(Species s) {
+      if (trackReads) {
+         readMask |= ALL_CELLS;
+      }
+      int i = s == null ? -1 : getIndexOf(s);
+      return i < 0 ? 0L : indexedCells[i];
+   }
+   
+   /**
+    * @return The number of distinct species on the board, which can be used with
+    *         {@link #getIndexedSpecies(int)} and {@link #getIndexedCells(int)}. This reads the whole
+    *         board.
+    */
+   public int getIndexedCount() {
+      if (trackReads) {
+         readMask |= ALL_CELLS;
+      }
+      return indexedCount;
+   }
+   
+   /**
+    * @param i
+    *           An index below {@link #getIndexedCount()}, in no particular order.
+    * @return The species at that index.
+    */
+   public Species getIndexedSpecies(int i) {
+      return indexed[i];
+   }
+   
+   /**
+    * @param i
+    *           An index below {@link #getIndexedCount()}, in no particular order.
+    * @return The mask of every cell holding the species at that index.
+    */
+   public long getIndexedCells(int i) {
+      return indexedCells[i];
+   }
+   
    public boolean isCloudedAt(int row, int column) {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
          return false;
       }
+      if (trackReads) {
+         readMask |= getCellBit(row, column);
+      }
       return clouded[row - 1][column - 1];
    }
    
@@ -220,7 +404,10 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS || encloud == null) {
          return false;
       }
-      Species s = getSpeciesAt(row, column);
+      if (trackWrites) {
+         writeMask |= getCellBit(row, column);
+      }
+      Species s = species[row - 1][column - 1];
       boolean toSet = s != null && encloud;
       boolean changed = clouded[row - 1][column - 1] != encloud;
       clouded[row - 1][column - 1] = toSet;
@@ -242,6 +429,9 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
          return false;
       }
+      if (trackReads) {
+         readMask |= getCellBit(row, column);
+      }
       return frozen[row - 1][column - 1];
    }
    
@@ -249,7 +439,10 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS || freeze == null) {
          return false;
       }
-      Species s = getSpeciesAt(row, column);
+      if (trackWrites) {
+         writeMask |= getCellBit(row, column);
+      }
+      Species s = species[row - 1][column - 1];
       boolean toSet = s != null && s.isFreezable() && freeze;
       boolean changed = frozen[row - 1][column - 1] != freeze;
       frozen[row - 1][column - 1] = toSet;
@@ -273,6 +466,9 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
          return true;
       }
+      if (trackReads) {
+         readMask |= getCellBit(row, column);
+      }
       return species[row - 1][column - 1].getDefaultEffect().equals(Effect.AIR);
    }
    
@@ -293,6 +489,9 @@ public class Board {
       if (row < 1 || row > NUM_ROWS || column < 1 || column > NUM_COLS) {
          return false;
       }
+      if (trackReads) {
+         readMask |= getCellBit(row, column);
+      }
       return Board.NUM_ROWS == row || frozen[row - 1][column - 1];
    }
    
@@ -342,7 +541,7 @@ public class Board {
          sb.append("\n");
          for (int i = 1; i <= NUM_ROWS; i++) {
             for (int j = 1; j <= NUM_COLS; j++) {
-               sb.append(Boolean.toString(isFrozenAt(i, j)));
+               sb.append(Boolean.toString(frozen[i - 1][j - 1]));
                if (j < NUM_COLS) {
                   sb.append(",");
                }
@@ -354,7 +553,7 @@ public class Board {
          sb.append("\n");
          for (int i = 1; i <= NUM_ROWS; i++) {
             for (int j = 1; j <= NUM_COLS; j++) {
-               sb.append(isCloudedAt(i, j) ? "clouded" : "clear");
+               sb.append(clouded[i - 1][j - 1] ? "clouded" : "clear");
                if (j < NUM_COLS) {
                   sb.append(",");
                }
@@ -24,7 +24,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.BiConsumer;
@@ -40,8 +39,8 @@ import shuffle.fwk.data.simulation.effects.ActivateComboEffect;
 import shuffle.fwk.data.simulation.effects.ActivateMegaComboEffect;
 import shuffle.fwk.data.simulation.effects.ComboEffect;
 import shuffle.fwk.data.simulation.effects.DelayThawEffect;
+import shuffle.fwk.data.simulation.util.CellPredicate;
 import shuffle.fwk.data.simulation.util.NumberSpan;
-import shuffle.fwk.data.simulation.util.TriFunction;
 
 public enum Effect {
    /**
@@ -400,7 +399,7 @@ public enum Effect {
       public boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          SimulationState state = task.getState();
          return super.canActivate(comboEffect, task)
-               && (!task.findMatches(1, true, (r, c, s) -> PkmType.FIRE.equals(state.getSpeciesType(s))).isEmpty()
+               && (state.getCellsOfType(PkmType.FIRE) != 0L
                      || task.getState().getCore().getSupportSpecies().stream().map(s -> state.getSpeciesType(s))
                            .anyMatch(t -> PkmType.FIRE.equals(t)));
       }
@@ -419,7 +418,7 @@ public enum Effect {
       public boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          SimulationState state = task.getState();
          return super.canActivate(comboEffect, task)
-               && (!task.findMatches(1, true, (r, c, s) -> PkmType.DRAGON.equals(state.getSpeciesType(s))).isEmpty()
+               && (state.getCellsOfType(PkmType.DRAGON) != 0L
                      || task.getState().getCore().getSupportSpecies().stream().map(s -> state.getSpeciesType(s))
                            .anyMatch(t -> PkmType.DRAGON.equals(t)));
       }
@@ -549,7 +548,7 @@ public enum Effect {
       public boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          SimulationState state = task.getState();
          return super.canActivate(comboEffect, task)
-               && (!task.findMatches(1, true, (r, c, s) -> PkmType.DARK.equals(state.getSpeciesType(s))).isEmpty()
+               && (state.getCellsOfType(PkmType.DARK) != 0L
                      || task.getState().getCore().getSupportSpecies().stream().map(s -> state.getSpeciesType(s))
                            .anyMatch(t -> PkmType.DARK.equals(t)));
       }
@@ -575,12 +574,8 @@ public enum Effect {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            int num = task
-                  .findMatches(36, true,
-                        (r, c, s) -> (s.equals(
-                              effectSpecies)
-                        && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)))
-                  .size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, true, (r, c, s) -> s.equals(effectSpecies)
+                  && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -608,12 +603,8 @@ public enum Effect {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            int num = task
-                  .findMatches(36, true,
-                        (r, c, s) -> (s.equals(
-                              effectSpecies)
-                        && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)))
-                  .size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, true, (r, c, s) -> s.equals(effectSpecies)
+                  && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -642,7 +633,7 @@ public enum Effect {
       public NumberSpan getBonusValue(ActivateComboEffect comboEffect, SimulationTask task) {
          NumberSpan ret = new NumberSpan();
          if (canActivate(comboEffect, task)) {
-            int num = task.findMatches(36, false, (r, c, s) -> isDisruption(s)).size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, false, (r, c, s) -> isDisruption(s)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -670,7 +661,7 @@ public enum Effect {
       public NumberSpan getBonusValue(ActivateComboEffect comboEffect, SimulationTask task) {
          NumberSpan ret = new NumberSpan();
          if (canActivate(comboEffect, task)) {
-            int num = task.findMatches(36, false, (r, c, s) -> isDisruption(s)).size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, false, (r, c, s) -> isDisruption(s)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -911,14 +902,14 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> s.equals(effectSpecies));
+            List<Integer> matches = task.findMatches(task.getState().getCellsOf(effectSpecies), 36, false);
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 1 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  int blockIndex = getRandomInt(matches.size() / 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   List<Integer> toErase = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -937,15 +928,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> s.equals(effectSpecies));
+            List<Integer> matches = task.findMatches(task.getState().getCellsOf(effectSpecies), 36, false);
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -967,15 +958,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> s.equals(effectSpecies));
+            List<Integer> matches = task.findMatches(task.getState().getCellsOf(effectSpecies), 36, false);
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -997,15 +988,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> s.equals(effectSpecies));
+            List<Integer> matches = task.findMatches(task.getState().getCellsOf(effectSpecies), 36, false);
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -1033,18 +1024,18 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<TriFunction<Integer, Integer, Species, Boolean>> filters = new ArrayList<TriFunction<Integer, Integer, Species, Boolean>>(
+            List<CellPredicate> filters = new ArrayList<CellPredicate>(
                   Arrays.asList((r, c, s) -> isDisruption(s), (r, c, s) -> board.isCloudedAt(r, c),
                         (r, c, s) -> board.isFrozenAt(r, c)));
-            for (TriFunction<Integer, Integer, Species, Boolean> filter : filters) {
-               List<Integer> matches = task.findMatches(36, true, filter);
+            for (CellPredicate filter : filters) {
+               List<Integer> matches = task.findCoords(36, true, filter);
                if (!matches.isEmpty()) {
                   double odds = getOdds(task, comboEffect);
                   if (matches.size() > 1 || odds < 1.0) {
                      task.setIsRandom();
                   }
-                  if (odds >= Math.random()) {
-                     int blockIndex = getRandomInt(matches.size() / 2);
+                  if (odds >= task.getRandom().nextDouble()) {
+                     int blockIndex = getRandomInt(task, matches.size() / 2);
                      int row = matches.get(blockIndex * 2);
                      int col = matches.get(blockIndex * 2 + 1);
                      if (!isDisruption(board.getSpeciesAt(row, col)) && board.isCloudedAt(row, col)) {
@@ -1078,7 +1069,7 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<TriFunction<Integer, Integer, Species, Boolean>> filters = new ArrayList<TriFunction<Integer, Integer, Species, Boolean>>(
+            List<CellPredicate> filters = new ArrayList<CellPredicate>(
                   Arrays.asList((r, c, s) -> isDisruption(s), (r, c, s) -> board.isCloudedAt(r, c),
                         (r, c, s) -> board.isFrozenAt(r, c)));
             int numIcons = (int) getMultiplier(task, comboEffect);
@@ -1086,16 +1077,16 @@ public enum Effect {
             List<Integer> toUncloud = new ArrayList<Integer>();
             List<Integer> toUnfreeze = new ArrayList<Integer>();
             double odds = getOdds(task, comboEffect);
-            for (TriFunction<Integer, Integer, Species, Boolean> filter : filters) {
+            for (CellPredicate filter : filters) {
                if (numIcons <= 0) {
                   break;
                }
-               List<Integer> matches = task.findMatches(36, true, filter);
+               List<Integer> matches = task.findCoords(36, true, filter);
                if (!matches.isEmpty()) {
                   if (odds > 0 && matches.size() / 2 > numIcons) {
                      task.setIsRandom();
                   }
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numIcons);
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numIcons);
                   // List<Integer> toClear = new ArrayList<Integer>(randoms.size() * 2);
                   numIcons -= randoms.size();
                   for (int i : randoms) {
@@ -1118,7 +1109,7 @@ public enum Effect {
                if (odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   if (!toErase.isEmpty()) {
                      eraseBonus(task, toErase, true);
                   }
@@ -1142,7 +1133,7 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> match = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c) || isDisruption(s));
+            List<Integer> match = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c) || isDisruption(s));
             if (!match.isEmpty()) {
                task.setIsRandom();
                if (doesActivate(comboEffect, task)) {
@@ -1160,18 +1151,18 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                if (matches.size() > 2) {
                   task.setIsRandom();
                }
-               int blockIndex = getRandomInt(matches.size() / 2);
+               int blockIndex = getRandomInt(task, matches.size() / 2);
                int row = matches.get(blockIndex * 2);
                int col = matches.get(blockIndex * 2 + 1);
                final List<Integer> toErase = Arrays.asList(row, col);
@@ -1194,20 +1185,20 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board b = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> b.isCloudedAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> b.isCloudedAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board b = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> b.isCloudedAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> b.isCloudedAt(r, c));
             double odds = getOdds(task, comboEffect);
             if (matches.size() / 2 > 1 || odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
-               int blockIndex = getRandomInt(matches.size() / 2);
+            if (odds >= task.getRandom().nextDouble()) {
+               int blockIndex = getRandomInt(task, matches.size() / 2);
                int row = matches.get(blockIndex * 2);
                int col = matches.get(blockIndex * 2 + 1);
                final List<Integer> toClear = Arrays.asList(row, col);
@@ -1229,19 +1220,19 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          boolean canActivate = canActivate(comboEffect, task);
          if (canActivate) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (matches.size() > 2) {
                task.setIsRandom();
             }
             if (!matches.isEmpty() && doesActivate(comboEffect, task)) {
-               int blockIndex = getRandomInt(matches.size() / 2);
+               int blockIndex = getRandomInt(task, matches.size() / 2);
                int row = matches.get(blockIndex * 2);
                int col = matches.get(blockIndex * 2 + 1);
                final List<Integer> toErase = Arrays.asList(row, col);
@@ -1265,21 +1256,21 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 1 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  int blockIndex = getRandomInt(matches.size() / 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   final List<Integer> toErase = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -1303,19 +1294,19 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                if (matches.size() / 2 > 1) {
                   task.setIsRandom();
                }
-               int blockIndex = getRandomInt(matches.size() / 2);
+               int blockIndex = getRandomInt(task, matches.size() / 2);
                int row = matches.get(blockIndex * 2);
                int col = matches.get(blockIndex * 2 + 1);
                task.addFinishedAction((ce, t) -> t.unfreezeAt(Arrays.asList(row, col)));
@@ -1337,21 +1328,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> isDisruption(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> isDisruption(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> isDisruption(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> isDisruption(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 1 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-                  int blockIndex = getRandomInt(matches.size() / 2);
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   List<Integer> toReplace = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -1789,7 +1780,7 @@ public enum Effect {
             if (odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
+            if (odds >= task.getRandom().nextDouble()) {
                task.getState().increaseMegaProgress((int) getMultiplier(task, comboEffect));
             }
          }
@@ -1860,12 +1851,8 @@ public enum Effect {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            int num = task
-                  .findMatches(36, true,
-                        (r, c, s) -> (s.equals(
-                              effectSpecies)
-                        && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)))
-                  .size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, true, (r, c, s) -> s.equals(effectSpecies)
+                  && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -1903,7 +1890,7 @@ public enum Effect {
             if (odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
+            if (odds >= task.getRandom().nextDouble()) {
                task.getState().increaseMegaProgress((int) getMultiplier(task, comboEffect));
             }
          }
@@ -1926,7 +1913,7 @@ public enum Effect {
             if (odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
+            if (odds >= task.getRandom().nextDouble()) {
                task.getState().increaseMegaProgress((int) getMultiplier(task, comboEffect));
             }
          }
@@ -1941,7 +1928,7 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<TriFunction<Integer, Integer, Species, Boolean>> filters = new ArrayList<TriFunction<Integer, Integer, Species, Boolean>>(
+            List<CellPredicate> filters = new ArrayList<CellPredicate>(
                   Arrays.asList((r, c, s) -> isDisruption(s), (r, c, s) -> board.isCloudedAt(r, c),
                         (r, c, s) -> board.isFrozenAt(r, c)));
             int numIcons = (int) getMultiplier(task, comboEffect);
@@ -1949,16 +1936,16 @@ public enum Effect {
             List<Integer> toUncloud = new ArrayList<Integer>();
             List<Integer> toUnfreeze = new ArrayList<Integer>();
             double odds = getOdds(task, comboEffect);
-            for (TriFunction<Integer, Integer, Species, Boolean> filter : filters) {
+            for (CellPredicate filter : filters) {
                if (numIcons <= 0) {
                   break;
                }
-               List<Integer> matches = task.findMatches(36, true, filter);
+               List<Integer> matches = task.findCoords(36, true, filter);
                if (!matches.isEmpty()) {
                   if (odds > 0 && matches.size() / 2 > numIcons) {
                      task.setIsRandom();
                   }
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numIcons);
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numIcons);
                   // List<Integer> toClear = new ArrayList<Integer>(randoms.size() * 2);
                   numIcons -= randoms.size();
                   for (int i : randoms) {
@@ -1981,7 +1968,7 @@ public enum Effect {
                if (odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   if (!toErase.isEmpty()) {
                      eraseBonus(task, toErase, true);
                   }
@@ -2004,21 +1991,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>(randoms.size() * 2);
                   for (int i : randoms) {
                      toErase.add(matches.get(i * 2));
@@ -2038,21 +2025,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>(randoms.size() * 2);
                   for (int i : randoms) {
                      toErase.add(matches.get(i * 2));
@@ -2073,21 +2060,21 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board b = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> b.isCloudedAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> b.isCloudedAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board b = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> b.isCloudedAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> b.isCloudedAt(r, c));
             double odds = getOdds(task, comboEffect);
             int numSwapped = (int) getMultiplier(task, comboEffect);
             if (matches.size() / 2 > numSwapped || odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
-               List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+            if (odds >= task.getRandom().nextDouble()) {
+               List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                List<Integer> toClear = new ArrayList<Integer>();
                for (Integer i : randoms) {
                   int row = matches.get(i * 2);
@@ -2109,21 +2096,21 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board b = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> b.isCloudedAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> b.isCloudedAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board b = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> b.isCloudedAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> b.isCloudedAt(r, c));
             double odds = getOdds(task, comboEffect);
             int numSwapped = (int) getMultiplier(task, comboEffect);
             if (matches.size() / 2 > numSwapped || odds < 1.0) {
                task.setIsRandom();
             }
-            if (odds >= Math.random()) {
-               List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+            if (odds >= task.getRandom().nextDouble()) {
+               List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                List<Integer> toClear = new ArrayList<Integer>();
                for (Integer i : randoms) {
                   int row = matches.get(i * 2);
@@ -2145,21 +2132,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2183,21 +2170,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2221,21 +2208,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2260,22 +2247,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2298,22 +2285,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2335,20 +2322,20 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (int i = 0; i < matches.size() / 2; i++ ) {
                      int row = matches.get(i * 2);
@@ -2370,22 +2357,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toUnfreeze = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2407,22 +2394,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toUnfreeze = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2444,21 +2431,21 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   List<Integer> toUnfreeze = new ArrayList<Integer>();
                   for (Integer i : matches) {
                      int row = matches.get(i * 2);
@@ -2479,22 +2466,22 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> isDisruption(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> isDisruption(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> isDisruption(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> isDisruption(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -2515,22 +2502,22 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> isDisruption(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> isDisruption(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> isDisruption(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> isDisruption(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
+               if (odds >= task.getRandom().nextDouble()) {
                   Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3259,12 +3246,8 @@ public enum Effect {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
             Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-            int num = task
-                  .findMatches(36, true,
-                        (r, c, s) -> (s.getType().equals(
-                              effectSpecies.getType())
-                        && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)))
-                  .size() / 2;
+            int num = Long.bitCount(task.getMatchingCells(36, true, (r, c, s) -> s.getType().equals(effectSpecies.getType())
+                  && (!task.isActive(r, c) || board.isFrozenAt(r, c) || task.getClaimsFor(r, c).size() > 0)));
             ret = new NumberSpan(0, num, getOdds(task, comboEffect)).multiplyBy(getMultiplier(task, comboEffect));
          }
          return ret;
@@ -3380,14 +3363,14 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 2 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, 2);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3445,15 +3428,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3475,15 +3458,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 10;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3505,14 +3488,14 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 2 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  int blockIndex = getRandomInt(matches.size() / 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   List<Integer> toReplace = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -3531,15 +3514,15 @@ public enum Effect {
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 10;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3560,14 +3543,14 @@ public enum Effect {
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 1 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  int blockIndex = getRandomInt(matches.size() / 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   List<Integer> toReplace = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -3585,14 +3568,14 @@ public enum Effect {
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                if (matches.size() / 2 > 1 || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  int blockIndex = getRandomInt(matches.size() / 2);
+               if (odds >= task.getRandom().nextDouble()) {
+                  int blockIndex = getRandomInt(task, matches.size() / 2);
                   int row = matches.get(blockIndex * 2);
                   int col = matches.get(blockIndex * 2 + 1);
                   List<Integer> toReplace = new ArrayList<Integer>(Arrays.asList(row, col));
@@ -3612,22 +3595,22 @@ public enum Effect {
          if (canActivate(comboEffect, task)) {
             Species thisSpecies = task.getEffectSpecies(comboEffect.getCoords());
             List<Species> otherSupports = getOtherSupportSpecies(comboEffect, task);
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> s.equals(thisSpecies));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> s.equals(thisSpecies));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = (int) getMultiplier(task, comboEffect);
                if (matches.size() / 2 > numSwapped || odds < 1.0 || otherSupports.size() > 1) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toReplace = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
                      int col = matches.get(i * 2 + 1);
                      toReplace.addAll(Arrays.asList(row, col));
                   }
-                  Species randomOtherSpecies = otherSupports.get(getRandomInt(otherSupports.size()));
+                  Species randomOtherSpecies = otherSupports.get(getRandomInt(task, otherSupports.size()));
                   handleReplaceOf(comboEffect, task, toReplace, randomOtherSpecies);
                }
             }
@@ -3657,22 +3640,22 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          boolean canActivate = canActivate(comboEffect, task);
          if (canActivate) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3699,22 +3682,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3742,22 +3725,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isFrozenAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isFrozenAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isFrozenAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isFrozenAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 7;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3784,21 +3767,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3824,21 +3807,21 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 7;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3865,22 +3848,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Board board = task.getState().getBoard();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> board.isCloudedAt(r, c)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> board.isCloudedAt(r, c)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Board board = task.getState().getBoard();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> board.isCloudedAt(r, c));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> board.isCloudedAt(r, c));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3908,22 +3891,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3950,22 +3933,22 @@ public enum Effect {
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> nonSupports.contains(s)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> nonSupports.contains(s)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          if (canActivate(comboEffect, task)) {
             Collection<Species> nonSupports = task.getState().getCore().getNonSupportSpecies();
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> nonSupports.contains(s));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> nonSupports.contains(s));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 2;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -3986,22 +3969,22 @@ public enum Effect {
       @Override
       protected boolean canActivate(ActivateComboEffect comboEffect, SimulationTask task) {
          return super.canActivate(comboEffect, task)
-               && !task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)).isEmpty();
+               && task.getMatchingCells(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL)) != 0L;
       }
       
       @Override
       protected void doSpecial(ActivateComboEffect comboEffect, SimulationTask task) {
          boolean canActivate = canActivate(comboEffect, task);
          if (canActivate) {
-            List<Integer> matches = task.findMatches(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+            List<Integer> matches = task.findCoords(36, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
             if (!matches.isEmpty()) {
                double odds = getOdds(task, comboEffect);
                int numSwapped = 1;
                if (matches.size() / 2 > numSwapped || odds < 1.0) {
                   task.setIsRandom();
                }
-               if (odds >= Math.random()) {
-                  List<Integer> randoms = getUniqueRandoms(0, matches.size() / 2, numSwapped);
+               if (odds >= task.getRandom().nextDouble()) {
+                  List<Integer> randoms = getUniqueRandoms(task, 0, matches.size() / 2, numSwapped);
                   final List<Integer> toErase = new ArrayList<Integer>();
                   for (Integer i : randoms) {
                      int row = matches.get(i * 2);
@@ -4188,16 +4171,16 @@ public enum Effect {
             // No matter what, this will always be inherently random.
             task.setIsRandom();
             ActivateMegaComboEffect effect = new ActivateMegaComboEffect(comboEffect);
-            int col1 = 1 + getRandomInt(6); // [1,6]
-            int col2 = 1 + getRandomInt(5); // [1,5]
+            int col1 = 1 + getRandomInt(task, 6); // [1,6]
+            int col2 = 1 + getRandomInt(task, 5); // [1,5]
             if (col2 >= col1) {
                col2++; // offset for map of [1,5] around the choice for col1
             }
             // First step
             effect.addPlannedOptions(Arrays.asList(1, col1, 1, col2));
             for (int row = 2; row <= Board.NUM_ROWS; row++) {
-               col1 = getNextColumn(col1);
-               col2 = getNextColumn(col2);
+               col1 = getNextColumn(col1, task);
+               col2 = getNextColumn(col2, task);
                effect.addPlannedOptions(Arrays.asList(row, col1, row, col2));
             }
             return effect;
@@ -4206,18 +4189,19 @@ public enum Effect {
       
       /**
        * @param col
+       * @param task
        * @return
        */
-      private int getNextColumn(int col) {
+      private int getNextColumn(int col, SimulationTask task) {
          int ret = col;
          if (ret <= 1) {
-            ret += getRandomInt(3) == 0 ? 1 : 0;
+            ret += getRandomInt(task, 3) == 0 ? 1 : 0;
             // 2/3 chance of staying in the same column, 1/3 chance of changing
          } else if (ret >= 6) {
-            ret -= getRandomInt(3) == 0 ? 1 : 0;
+            ret -= getRandomInt(task, 3) == 0 ? 1 : 0;
             // same as above
          } else {
-            ret += getRandomInt(3) - 1;
+            ret += getRandomInt(task, 3) - 1;
             // 1/3 chance of moving left, staying the same, or moving right
          }
          return ret;
@@ -4230,7 +4214,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -4308,7 +4292,7 @@ public enum Effect {
       
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -4474,7 +4458,7 @@ public enum Effect {
       
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false,
+         return task.filterPlan(getNextPlan(comboEffect), false,
                (r, c, s) -> (s.isFreezable() && !task.isFalling(r, c)));
       }
       
@@ -4524,7 +4508,7 @@ public enum Effect {
       
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -4837,11 +4821,11 @@ public enum Effect {
             Species dontMatch = task.getEffectSpecies(effect.getCoords());
             Species sel = getRandomSpeciesOfTypeFrom(task.getState().getSpeciesType(dontMatch),
                   task.getState().getBoard(), dontMatch, task);
-            List<Integer> coords = task.findMatches(33, false, (r, c, s) -> s.equals(sel));
+            List<Integer> coords = task.findCoords(33, false, (r, c, s) -> s.equals(sel));
             if (coords.size() / 2 > 3) {
                task.setIsRandom();
             }
-            List<Integer> indexOrder = getUniqueRandoms(0, coords.size() / 2, 3);
+            List<Integer> indexOrder = getUniqueRandoms(task, 0, coords.size() / 2, 3);
             // 3 random selections at most, of a single type-matched species.
             List<Integer> plan = new ArrayList<Integer>(coords.size());
             for (int i = 0; i < indexOrder.size(); i++) {
@@ -5069,7 +5053,7 @@ public enum Effect {
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
          Species effectSpecies = task.getEffectSpecies(comboEffect.getCoords());
-         List<Integer> toErase = task.findMatches(1, false, (r, c, s) -> s.equals(effectSpecies));
+         List<Integer> toErase = task.findCoords(1, false, (r, c, s) -> s.equals(effectSpecies));
          return toErase.isEmpty() ? null : toErase;
       }
       
@@ -5218,7 +5202,7 @@ public enum Effect {
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
          Board b = task.getState().getBoard();
-         List<Integer> toErase = task.findMatches(1, false, (r, c, s) -> b.isFrozenAt(r, c));
+         List<Integer> toErase = task.findCoords(1, false, (r, c, s) -> b.isFrozenAt(r, c));
          return toErase.isEmpty() ? null : toErase;
       }
       
@@ -5255,7 +5239,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         List<Integer> toErase = task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
+         List<Integer> toErase = task.findCoords(1, false, (r, c, s) -> task.getEffectFor(s).equals(METAL));
          return toErase.isEmpty() ? null : toErase;
       }
       
@@ -5293,7 +5277,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         List<Integer> toErase = task.findMatches(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)
+         List<Integer> toErase = task.findCoords(1, false, (r, c, s) -> task.getEffectFor(s).equals(WOOD)
                || task.getEffectFor(s).equals(METAL) || task.getEffectFor(s).equals(COIN));
          return toErase.isEmpty() ? null : toErase;
       }
@@ -5353,7 +5337,7 @@ public enum Effect {
          
          List<Integer> toErase = Collections.emptyList();
          if (toMatch != null) {
-            toErase = task.findMatches(1, true, (r, c, s) -> {
+            toErase = task.findCoords(1, true, (r, c, s) -> {
                boolean ret = toMatch.equals(s);
                if (ret) {
                   for (ComboEffect effect : task.getActiveEffectsFor(r, c)) {
@@ -5425,7 +5409,7 @@ public enum Effect {
          
          List<Integer> toErase = Collections.emptyList();
          if (toMatch != null) {
-            toErase = task.findMatches(1, true, (r, c, s) -> {
+            toErase = task.findCoords(1, true, (r, c, s) -> {
                boolean ret = toMatch.equals(s);
                if (ret) {
                   for (ComboEffect effect : task.getActiveEffectsFor(r, c)) {
@@ -5484,11 +5468,11 @@ public enum Effect {
             Species dontMatch = task.getEffectSpecies(effect.getCoords());
             Species sel = getRandomSpeciesOfTypeFrom(task.getState().getSpeciesType(dontMatch),
                   task.getState().getBoard(), dontMatch, task);
-            List<Integer> coords = task.findMatches(33, false, (r, c, s) -> s.equals(sel));
+            List<Integer> coords = task.findCoords(33, false, (r, c, s) -> s.equals(sel));
             if (coords.size() / 2 > 3) {
                task.setIsRandom();
             }
-            List<Integer> indexOrder = getUniqueRandoms(0, coords.size() / 2, 3);
+            List<Integer> indexOrder = getUniqueRandoms(task, 0, coords.size() / 2, 3);
             // 3 random selections at most, of a single type-matched species.
             List<Integer> plan = new ArrayList<Integer>(coords.size());
             for (int i = 0; i < indexOrder.size(); i++) {
@@ -5591,8 +5575,8 @@ public enum Effect {
          } else {
             task.setIsRandom();
             ActivateMegaComboEffect effect = new ActivateMegaComboEffect(comboEffect);
-            int row1 = 1 + getRandomInt(3); // [1,3]
-            int row2 = 4 + getRandomInt(3); // [4,6]
+            int row1 = 1 + getRandomInt(task, 3); // [1,3]
+            int row2 = 4 + getRandomInt(task, 3); // [4,6]
             effect.addPlannedOptions(Arrays.asList(row1, 1, row2, 1));
             if (row2 >= 6) {
                row2--;
@@ -5613,7 +5597,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -5652,8 +5636,8 @@ public enum Effect {
          } else {
             task.setIsRandom();
             ActivateMegaComboEffect effect = new ActivateMegaComboEffect(comboEffect);
-            int row1 = 1 + getRandomInt(3); // [1,3]
-            int row2 = 4 + getRandomInt(3); // [4,6]
+            int row1 = 1 + getRandomInt(task, 3); // [1,3]
+            int row2 = 4 + getRandomInt(task, 3); // [4,6]
             effect.addPlannedOptions(Arrays.asList(row1, 1, row2, 1));
             if (row2 >= 6) {
                row2--;
@@ -5674,7 +5658,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -5714,8 +5698,8 @@ public enum Effect {
          } else {
             task.setIsRandom();
             ActivateMegaComboEffect effect = new ActivateMegaComboEffect(comboEffect);
-            int col1 = 1 + getRandomInt(3); // [1,3]
-            int col2 = 4 + getRandomInt(3); // [4,6]
+            int col1 = 1 + getRandomInt(task, 3); // [1,3]
+            int col2 = 4 + getRandomInt(task, 3); // [4,6]
             effect.addPlannedOptions(Arrays.asList(1, col1, 1, col2));
             if (col2 >= 6) {
                col2--;
@@ -5736,7 +5720,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (task.getEffectFor(s).equals(AIR)));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (task.getEffectFor(s).equals(AIR)));
       }
       
       @Override
@@ -5918,16 +5902,16 @@ public enum Effect {
             // No matter what, this will always be inherently random.
             task.setIsRandom();
             ActivateMegaComboEffect effect = new ActivateMegaComboEffect(comboEffect);
-            int row1 = 1 + getRandomInt(6); // [1,6]
-            int row2 = 1 + getRandomInt(5); // [1,5]
+            int row1 = 1 + getRandomInt(task, 6); // [1,6]
+            int row2 = 1 + getRandomInt(task, 5); // [1,5]
             if (row2 >= row1) {
                row2++; // offset for map of [1,5] around the choice for col1
             }
             // First step
             effect.addPlannedOptions(Arrays.asList(row1, 1, row2, 1));
             for (int col = 2; col <= Board.NUM_COLS; col++) {
-               row1 = getNextRow(row1);
-               row2 = getNextRow(row2);
+               row1 = getNextRow(row1, task);
+               row2 = getNextRow(row2, task);
                effect.addPlannedOptions(Arrays.asList(row1, col, row2, col));
             }
             return effect;
@@ -5936,18 +5920,19 @@ public enum Effect {
       
       /**
        * @param row
+       * @param task
        * @return
        */
-      private int getNextRow(int row) {
+      private int getNextRow(int row, SimulationTask task) {
          int ret = row;
          if (ret <= 1) {
-            ret += getRandomInt(3) == 0 ? 1 : 0;
+            ret += getRandomInt(task, 3) == 0 ? 1 : 0;
             // 2/3 chance of staying in the same row, 1/3 chance of changing
          } else if (ret >= 6) {
-            ret -= getRandomInt(3) == 0 ? 1 : 0;
+            ret -= getRandomInt(task, 3) == 0 ? 1 : 0;
             // same as above
          } else {
-            ret += getRandomInt(3) - 1;
+            ret += getRandomInt(task, 3) - 1;
             // 1/3 chance of moving up, staying the same, or moving down
          }
          return ret;
@@ -5960,7 +5945,7 @@ public enum Effect {
        */
       @Override
       public List<Integer> getExtraBlocks(ActivateComboEffect comboEffect, SimulationTask task) {
-         return task.filterPlanBy(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
+         return task.filterPlan(getNextPlan(comboEffect), false, (r, c, s) -> (s.isFreezable()));
       }
       
       @Override
@@ -6748,14 +6733,16 @@ public enum Effect {
     * Gets n random numbers in the range [start, end) <br>
     * this is inclusive at start, exclusive at end. Order is not guaranteed.
     * 
+    * @param task
+    *           The task whose random draws are used
     * @param start
     * @param end
     * @param n
     * @return
     */
-   protected List<Integer> getUniqueRandoms(int start, int end, int n) {
+   protected List<Integer> getUniqueRandoms(SimulationTask task, int start, int end, int n) {
       List<Integer> allIndexes = IntStream.range(start, end).boxed().collect(Collectors.toList());
-      Collections.shuffle(allIndexes, r);
+      Collections.shuffle(allIndexes, task.getRandom());
       return allIndexes.subList(0, Math.max(0, Math.min(n, allIndexes.size())));
    }
    
@@ -6777,7 +6764,7 @@ public enum Effect {
       }
       Species result = null;
       if (!options.isEmpty()) {
-         int randomFoundSpecies = getRandomInt(options.size());
+         int randomFoundSpecies = getRandomInt(task, options.size());
          result = options.get(randomFoundSpecies);
       }
       return result;
@@ -6796,20 +6783,17 @@ public enum Effect {
    
    public List<Species> getSpeciesOfOtherTypeFrom(PkmType type, Board board, SimulationTask task,
          boolean includeActive) {
-      List<Species> options = new ArrayList<Species>();
-      Set<Species> contained = new HashSet<Species>();
       SimulationState state = task.getState();
-      for (int row = 1; row <= Board.NUM_ROWS; row++) {
-         for (int col = 1; col <= Board.NUM_COLS; col++) {
-            Species cur = board.getSpeciesAt(row, col);
-            if (!contained.contains(cur) && !state.getSpeciesType(cur).equals(type)
-                  && (includeActive || !task.isActive(row, col)) && task.getEffectFor(cur).canLevel()) {
-               contained.add(cur);
-               options.add(cur);
-            }
+      long available = includeActive ? Board.ALL_CELLS : ~task.getActiveCells();
+      long firstCells = 0L;
+      for (int i = 0; i < board.getIndexedCount(); i++) {
+         Species cur = board.getIndexedSpecies(i);
+         long cells = board.getIndexedCells(i) & available;
+         if (cells != 0L && !state.getSpeciesType(cur).equals(type) && task.getEffectFor(cur).canLevel()) {
+            firstCells |= Long.lowestOneBit(cells);
          }
       }
-      return options;
+      return getSpeciesAt(board, firstCells);
    }
    
    /**
@@ -6825,7 +6809,7 @@ public enum Effect {
       }
       Species result = null;
       if (!options.isEmpty()) {
-         int randomFoundSpecies = getRandomInt(options.size());
+         int randomFoundSpecies = getRandomInt(task, options.size());
          result = options.get(randomFoundSpecies);
       }
       return result;
@@ -6839,20 +6823,33 @@ public enum Effect {
     * @return
     */
    public List<Species> getSpeciesOfTypeFrom(PkmType type, Board board, Species dontMatch, SimulationTask task) {
-      List<Species> options = new ArrayList<Species>();
-      Set<Species> contained = new HashSet<Species>();
       SimulationState state = task.getState();
-      for (int row = 1; row <= Board.NUM_ROWS; row++) {
-         for (int col = 1; col <= Board.NUM_COLS; col++) {
-            Species cur = board.getSpeciesAt(row, col);
-            if (!contained.contains(cur) && state.getSpeciesType(cur).equals(type) && !cur.equals(dontMatch)
-                  && !task.isActive(row, col)) {
-               contained.add(cur);
-               options.add(cur);
-            }
+      long available = ~task.getActiveCells();
+      long firstCells = 0L;
+      for (int i = 0; i < board.getIndexedCount(); i++) {
+         Species cur = board.getIndexedSpecies(i);
+         long cells = board.getIndexedCells(i) & available;
+         if (cells != 0L && state.getSpeciesType(cur).equals(type) && !cur.equals(dontMatch)) {
+            firstCells |= Long.lowestOneBit(cells);
          }
       }
-      return options;
+      return getSpeciesAt(board, firstCells);
+   }
+   
+   /**
+    * @param board
+    *           The board
+    * @param cells
+    *           The mask of cells, as by {@link Board#getCellBit(int, int)}
+    * @return The species in each of the given cells, in the order the board is scanned.
+    */
+   private static List<Species> getSpeciesAt(Board board, long cells) {
+      List<Species> ret = new ArrayList<Species>(Long.bitCount(cells));
+      for (; cells != 0L; cells &= cells - 1) {
+         int index = Long.numberOfTrailingZeros(cells);
+         ret.add(board.getSpeciesAt(index / Board.NUM_COLS + 1, index % Board.NUM_COLS + 1));
+      }
+      return ret;
    }
    
    protected void addPlansForSurroundingBlocks(ActivateMegaComboEffect effect, SimulationTask task, int radius) {
@@ -7124,17 +7121,16 @@ public enum Effect {
       return new NumberSpan();
    }
    
-   private static Random r = new Random(System.nanoTime());
-   
    /**
     * Returns an integer between 0 and the given bound, inclusive at 0 and exclusive at the bound.
     * 
+    * @param task
+    *           The task whose random draws are used
     * @param bound
     * @return
     */
-   protected static final int getRandomInt(int bound) {
-      r.setSeed(r.nextLong());
-      return r.nextInt(bound);
+   protected static final int getRandomInt(SimulationTask task, int bound) {
+      return task.getRandom().nextInt(bound);
    }
    
    /**
@@ -7221,7 +7217,7 @@ public enum Effect {
    
    protected boolean doesActivate(ActivateComboEffect comboEffect, SimulationTask task) {
       double odds = getOdds(task, comboEffect);
-      return odds >= 1.0 || odds >= Math.random();
+      return odds >= 1.0 || odds >= task.getRandom().nextDouble();
    }
    
    protected boolean canAndDoesActivate(ActivateComboEffect comboEffect, SimulationTask task) {
@@ -7278,7 +7274,7 @@ public enum Effect {
          double odds = getOdds(task, comboEffect);
          if (odds > 0) {
             task.setIsRandom();
-            if (odds >= Math.random()) {
+            if (odds >= task.getRandom().nextDouble()) {
                b.setStatus(status);
                b.setStatusDuration(turns > 0 ? turns : 1);
             }
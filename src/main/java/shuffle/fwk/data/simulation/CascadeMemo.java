@@ -0,0 +1,342 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * A fixed capacity table of the outcomes of cascades which have already been simulated. A cascade
+ * is deterministic once its first combo is chosen, unless an effect rolls for its outcome, so two
+ * tasks which start from the same board with the same first combo and the same feeder always end
+ * the same way. This happens for every pair of moves which swap the same two cells, across the
+ * turns searched ahead, and across simulations of the same board.<br>
+ * <br>
+ * Outcomes are stored in fixed size slots of a direct buffer, so the table adds nothing for the
+ * garbage collector to trace no matter how full it gets. The keys are 64 bit hashes of the start
+ * of each cascade, held in an atomic array so that workers can claim slots by linear probing
+ * without locking. Slots are never overwritten, once the table is full further outcomes are
+ * dropped.
+ * 
+ * @author Andrew Meyers
+ */
+public class CascadeMemo {
+   
+   // The number of slots, must be a power of two
+   public static final int CAPACITY = 1 << 13;
+   // The most slots to probe for a key before giving up
+   public static final int MAX_PROBES = 16;
+   // Reserved keys for slots which are empty, and slots which are being written
+   private static final long EMPTY = 0L;
+   private static final long BUSY = 1L;
+   
+   // The layout of each slot, in bytes
+   private static final int SCORE_MIN = 0;
+   private static final int SCORE_MAX = 8;
+   private static final int SCORE_TOTAL = 16;
+   private static final int SCORE_DEVIATIONS = 24;
+   private static final int SCORE_COUNT = 32;
+   private static final int WEIGHT = 36;
+   private static final int GOLD = 40;
+   private static final int BLOCKS = 44;
+   private static final int DISRUPTIONS = 48;
+   private static final int COMBOS = 52;
+   private static final int DEPENDENCIES = 56;
+   private static final int FROZEN = 64;
+   private static final int MEGA_PROGRESS = 72;
+   private static final int STATUS = 76;
+   private static final int STATUS_DURATION = 80;
+   private static final int SPECIES = 84;
+   private static final int SLOT_BYTES = SPECIES + 2 * Board.NUM_CELLS + 4;
+   
+   private static final Board.Status[] STATUSES = Board.Status.values();
+   
+   private final List<Object> settings;
+   private final AtomicLongArray keys = new AtomicLongArray(CAPACITY);
+   private final ByteBuffer slots = ByteBuffer.allocateDirect(CAPACITY * SLOT_BYTES);
+   private final Map<Species, Integer> speciesIndices = new ConcurrentHashMap<Species, Integer>();
+   private volatile Species[] indexedSpecies = new Species[0];
+   
+   private final LongAdder hits = new LongAdder();
+   private final LongAdder misses = new LongAdder();
+   private final LongAdder stored = new LongAdder();
+   private final LongAdder dropped = new LongAdder();
+   
+   /**
+    * @param settings
+    *           Everything other than the board, remaining health and remaining moves which a cascade
+    *           depends upon
+    */
+   public CascadeMemo(List<Object> settings) {
+      this.settings = settings;
+   }
+   
+   public boolean hasSettings(List<Object> otherSettings) {
+      return settings.equals(otherSettings);
+   }
+   
+   /**
+    * @return True if at least three quarters of the slots are taken, such that a fresh table would
+    *         serve better.
+    */
+   public boolean isNearlyFull() {
+      return stored.sum() >= CAPACITY / 4 * 3;
+   }
+   
+   /**
+    * Gets the key for a cascade, which must be fetched before the first combo changes the board.
+    * 
+    * @param core
+    *           The core of the cascade, whose remaining health and moves are part of the key
+    * @param startBoard
+    *           The board after the swap
+    * @param firstCombo
+    *           The coordinates of the first combo
+    * @param moveMask
+    *           The swapped cells, as per {@link Board#getCellBit(int, int)}
+    * @param feeder
+    *           The feeder of the cascade, which is keyed by its seed and what it feeds, as every task
+    *           simulates its own copy
+    * @param tracking
+    *           True if the cascade tracks the cells it reads
+    * @return The key, which is never {@link #EMPTY} or {@link #BUSY}.
+    */
+   public long getKey(SimulationCore core, Board startBoard, List<Integer> firstCombo, long moveMask,
+         SimulationFeeder feeder, boolean tracking) {
+      long h = mix(moveMask, tracking ? 1 : 2);
+      h = mix(h, core.getRemainingHealth());
+      h = mix(h, core.getRemainingMoves());
+      if (!feeder.isEmpty()) {
+         h = mix(h, feeder.getSeed());
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            for (Species species : feeder.getQueue(col)) {
+               h = mix(h, getSpeciesIndex(species));
+            }
+            h = mix(h, -col);
+         }
+      }
+      h = mix(h, startBoard.getMegaProgress());
+      h = mix(h, startBoard.getStatus().ordinal());
+      h = mix(h, startBoard.getStatusDuration());
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            long cell = getSpeciesIndex(startBoard.getSpeciesAt(row, col)) << 2;
+            cell |= startBoard.isFrozenAt(row, col) ? 1 : 0;
+            cell |= startBoard.isCloudedAt(row, col) ? 2 : 0;
+            h = mix(h, cell);
+         }
+      }
+      for (Integer coord : firstCombo) {
+         h = mix(h, coord);
+      }
+      h = mix(h, firstCombo.size());
+      return h == EMPTY || h == BUSY ? h + 2 : h;
+   }
+   
+   /**
+    * Gets the outcome of a cascade which has already been simulated.
+    * 
+    * @param key
+    *           The key of the cascade
+    * @param core
+    *           The core of the cascade
+    * @return The outcome, or null if the cascade has not been simulated.
+    */
+   public Outcome get(long key, SimulationCore core) {
+      int slot = find(key, false);
+      if (slot < 0) {
+         misses.increment();
+         return null;
+      }
+      hits.increment();
+      int base = slot * SLOT_BYTES;
+      NumberSpan score = new NumberSpan(slots.getDouble(base + SCORE_MIN), slots.getDouble(base + SCORE_MAX),
+            slots.getDouble(base + SCORE_TOTAL), slots.getInt(base + SCORE_COUNT),
+            slots.getDouble(base + SCORE_DEVIATIONS));
+      Species[] species = indexedSpecies;
+      long frozen = slots.getLong(base + FROZEN);
+      Board board = new Board();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            int cell = (row - 1) * Board.NUM_COLS + col - 1;
+            board.setSpeciesAt(row, col, species[slots.getShort(base + SPECIES + 2 * cell)]);
+            board.setFrozenAt(row, col, (frozen & Board.getCellBit(row, col)) != 0);
+         }
+      }
+      board.setMegaProgress(slots.getInt(base + MEGA_PROGRESS));
+      board.setStatus(STATUSES[slots.getInt(base + STATUS)]);
+      board.setStatusDuration(slots.getInt(base + STATUS_DURATION));
+      SimulationState state = new SimulationState(core, board, slots.getFloat(base + WEIGHT), score,
+            slots.getInt(base + GOLD), slots.getInt(base + BLOCKS), slots.getInt(base + DISRUPTIONS),
+            slots.getInt(base + COMBOS));
+      return new Outcome(state, slots.getLong(base + DEPENDENCIES));
+   }
+   
+   /**
+    * Stores the outcome of a cascade. Random outcomes must never be stored.
+    * 
+    * @param key
+    *           The key of the cascade
+    * @param state
+    *           The final state of the cascade
+    * @param dependencyMask
+    *           The cells the cascade depends upon
+    */
+   public void put(long key, SimulationState state, long dependencyMask) {
+      int slot = find(key, true);
+      if (slot < 0) {
+         if (slot == -1) {
+            dropped.increment();
+         }
+         return;
+      }
+      int base = slot * SLOT_BYTES;
+      NumberSpan score = state.getScore();
+      slots.putDouble(base + SCORE_MIN, score.getMinimum());
+      slots.putDouble(base + SCORE_MAX, score.getMaximum());
+      slots.putDouble(base + SCORE_TOTAL, score.getTotal());
+      slots.putDouble(base + SCORE_DEVIATIONS, score.getSquaredDeviations());
+      slots.putInt(base + SCORE_COUNT, score.getCount());
+      slots.putFloat(base + WEIGHT, state.getWeight());
+      slots.putInt(base + GOLD, state.getGold());
+      slots.putInt(base + BLOCKS, state.getBlocksCleared());
+      slots.putInt(base + DISRUPTIONS, state.getDisruptionsCleared());
+      slots.putInt(base + COMBOS, state.getCombosCleared());
+      slots.putLong(base + DEPENDENCIES, dependencyMask);
+      Board board = state.getResultBoard();
+      long frozen = 0L;
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            int cell = (row - 1) * Board.NUM_COLS + col - 1;
+            slots.putShort(base + SPECIES + 2 * cell, (short) getSpeciesIndex(board.getSpeciesAt(row, col)));
+            if (board.isFrozenAt(row, col)) {
+               frozen |= Board.getCellBit(row, col);
+            }
+         }
+      }
+      slots.putLong(base + FROZEN, frozen);
+      slots.putInt(base + MEGA_PROGRESS, board.getMegaProgress());
+      slots.putInt(base + STATUS, board.getStatus().ordinal());
+      slots.putInt(base + STATUS_DURATION, board.getStatusDuration());
+      // Publishing the key makes the slot visible to every other worker
+      keys.set(slot, key);
+      stored.increment();
+   }
+   
+   /**
+    * Probes for the slot of the given key.
+    * 
+    * @param key
+    *           The key
+    * @param claim
+    *           True to claim an empty slot for the key
+    * @return The slot of the key, or the newly claimed slot if claiming. -1 if there is no such
+    *         slot, and -2 if claiming but the key is already stored or being stored.
+    */
+   private int find(long key, boolean claim) {
+      int slot = (int) (key ^ key >>> 32) & CAPACITY - 1;
+      for (int i = 0; i < MAX_PROBES; i++) {
+         long cur = keys.get(slot);
+         if (claim) {
+            if (cur == EMPTY && keys.compareAndSet(slot, EMPTY, BUSY)) {
+               return slot;
+            }
+            // Another worker may be storing the same key here, which is only known once it is published
+            while ((cur = keys.get(slot)) == BUSY) {
+               Thread.yield();
+            }
+         }
+         if (cur == key) {
+            return claim ? -2 : slot;
+         } else if (cur == EMPTY) {
+            return -1;
+         }
+         slot = slot + 1 & CAPACITY - 1;
+      }
+      return -1;
+   }
+   
+   private int getSpeciesIndex(Species species) {
+      Integer index = speciesIndices.get(species);
+      if (index == null) {
+         synchronized (speciesIndices) {
+            index = speciesIndices.get(species);
+            if (index == null) {
+               Species[] next = Arrays.copyOf(indexedSpecies, indexedSpecies.length + 1);
+               index = indexedSpecies.length;
+               next[index] = species;
+               indexedSpecies = next;
+               speciesIndices.put(species, index);
+            }
+         }
+      }
+      return index;
+   }
+   
+   private static long mix(long h, long value) {
+      h ^= value;
+      h *= 0xff51afd7ed558ccdL;
+      return h ^ h >>> 33;
+   }
+   
+   /**
+    * @return The chance that a cascade was found in the table, so far.
+    */
+   public double getHitRate() {
+      long found = hits.sum();
+      long total = found + misses.sum();
+      return total == 0 ? 0 : (double) found / total;
+   }
+   
+   @Override
+   public String toString() {
+      return String.format("%d hits, %d misses (%.1f%% hit rate), %d stored, %d dropped", hits.sum(), misses.sum(),
+            getHitRate() * 100, stored.sum(), dropped.sum());
+   }
+   
+   /**
+    * The outcome of a cascade.
+    */
+   public static class Outcome {
+      private final SimulationState state;
+      private final long dependencyMask;
+      
+      public Outcome(SimulationState state, long dependencyMask) {
+         this.state = state;
+         this.dependencyMask = dependencyMask;
+      }
+      
+      public SimulationState getState() {
+         return state;
+      }
+      
+      public long getDependencyMask() {
+         return dependencyMask;
+      }
+   }
+}
@@ -0,0 +1,103 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+
+/**
+ * Keeps track of which columns of a {@link SimulationTask} are at rest, so that gravity can skip
+ * them. A column is quiet once a gravity pass leaves nothing in it falling and nothing for its
+ * feeder to fill. A quiet column's pass does nothing for as long as its blocks, their frozen state,
+ * their fall positions, and the claims and actives in it do not change, so it is only looked at
+ * again once one of those does.<br>
+ * <br>
+ * The blocks, frozen state and fall positions are remembered when the column goes quiet and
+ * compared before each pass. The claims and actives are kept by the task, which marks a column as
+ * changed whenever it adds or removes any in that column.
+ * 
+ * @author Andrew Meyers
+ */
+public class GravityColumns {
+   
+   // How each column was when it went quiet, one column after another from the top row down
+   private final Species[] species = new Species[Board.NUM_COLS * Board.NUM_ROWS];
+   private final boolean[] frozen = new boolean[Board.NUM_COLS * Board.NUM_ROWS];
+   private final int[] positions = new int[Board.NUM_COLS * Board.NUM_ROWS];
+   // A bit per column, set while that column is quiet
+   private int quiet = 0;
+   
+   /**
+    * @param col
+    *           The column
+    * @param state
+    *           The state to check against
+    * @return True if the column is quiet and unchanged in the given state, so its gravity pass can
+    *         be skipped.
+    */
+   boolean isQuiet(int col, SimulationState state) {
+      if ((quiet & 1 << col - 1) == 0) {
+         return false;
+      }
+      Board b = state.getBoard();
+      for (int row = 1, i = (col - 1) * Board.NUM_ROWS; row <= Board.NUM_ROWS; row++, i++) {
+         if (species[i] != b.getSpeciesAt(row, col) || frozen[i] != b.isFrozenAt(row, col)
+               || positions[i] != state.getFallingPositionAt(row, col)) {
+            quiet &= ~(1 << col - 1);
+            return false;
+         }
+      }
+      return true;
+   }
+   
+   /**
+    * Marks the column as quiet, remembering how it is now in the given state.
+    * 
+    * @param col
+    *           The column
+    * @param state
+    *           The state after the column's gravity pass
+    */
+   void setQuiet(int col, SimulationState state) {
+      Board b = state.getBoard();
+      for (int row = 1, i = (col - 1) * Board.NUM_ROWS; row <= Board.NUM_ROWS; row++, i++) {
+         species[i] = b.getSpeciesAt(row, col);
+         frozen[i] = b.isFrozenAt(row, col);
+         positions[i] = state.getFallingPositionAt(row, col);
+      }
+      quiet |= 1 << col - 1;
+   }
+   
+   /**
+    * @param col
+    *           The column which changed, which will have its next gravity pass.
+    */
+   void setChanged(int col) {
+      if (col >= 1 && col <= Board.NUM_COLS) {
+         quiet &= ~(1 << col - 1);
+      }
+   }
+   
+   /**
+    * Every column will have its next gravity pass.
+    */
+   void setAllChanged() {
+      quiet = 0;
+   }
+}
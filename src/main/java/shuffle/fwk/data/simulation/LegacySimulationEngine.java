@@ -0,0 +1,229 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+
+import shuffle.fwk.GradingMode;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * The reference engine, which simulates every move frame by frame with a {@link SimulationTask} per
+ * feeder. If the core prunes moves, each move is first simulated with a few pilot feeders, and moves
+ * which are very unlikely to be the best are not simulated with the rest. As that is only decided
+ * from the pilot feeders, pruning may change the best move, so it is off unless asked for.
+ * 
+ * @author Andrew Meyers
+ */
+public class LegacySimulationEngine implements SimulationEngine {
+   
+   public static final String NAME = "legacy";
+   
+   private static final Logger LOG = Logger.getLogger(LegacySimulationEngine.class.getName());
+   
+   // The feeders each random move is simulated with before deciding if it could be the best move
+   private static final int PILOT_FEEDERS = 8;
+   
+   @Override
+   public String getName() {
+      return NAME;
+   }
+   
+   @Override
+   public Map<List<Integer>, SimulationOutcome> simulate(SimulationCore core, List<List<Integer>> moves,
+         Collection<SimulationFeeder> feeders, Collection<SimulationResult> knownResults) {
+      List<ToDoubleFunction<SimulationResult>> boundableKeys = core.getBoundableKeys();
+      // Search ahead ranks by the lookahead score, which cannot be bounded by the first turn.
+      int pilotCount = boundableKeys.isEmpty() || core.getLookaheadDepth() > 1 ? Integer.MAX_VALUE : PILOT_FEEDERS;
+      
+      Map<List<Integer>, SimulationCreationTask> moveToTaskCreatorMap = new HashMap<List<Integer>, SimulationCreationTask>();
+      // Go through all moves and create a task for each feeder, and add it.
+      for (List<Integer> move : moves) {
+         SimulationCreationTask distTask = new SimulationCreationTask(core, move, feeders, pilotCount);
+         distTask.fork();
+         moveToTaskCreatorMap.put(move, distTask);
+      }
+      
+      Map<List<Integer>, Collection<SimulationTask>> moveToTasksMap = new HashMap<List<Integer>, Collection<SimulationTask>>();
+      for (List<Integer> move : moves) {
+         Collection<SimulationTask> taskSet = moveToTaskCreatorMap.get(move).join();
+         moveToTasksMap.put(move, new ArrayList<SimulationTask>(taskSet));
+      }
+      
+      Set<List<Integer>> prunedMoves = Collections.emptySet();
+      if (pilotCount < feeders.size()) {
+         prunedMoves = getPrunedMoves(core, boundableKeys, moves, moveToTaskCreatorMap, moveToTasksMap,
+               knownResults);
+         for (List<Integer> move : moves) {
+            SimulationCreationTask distTask = moveToTaskCreatorMap.get(move);
+            if (distTask.hasRemaining() && !prunedMoves.contains(move)) {
+               moveToTasksMap.get(move).addAll(distTask.forkRemaining());
+            }
+         }
+         LOG.fine("Pruned " + prunedMoves.size() + " of " + moves.size() + " moves");
+      }
+      
+      // Once done, we go through the results and combine each move's results
+      Map<List<Integer>, SimulationResultsAssembler> compiledResultsMap = new HashMap<List<Integer>, SimulationResultsAssembler>();
+      for (List<Integer> move : moves) {
+         SimulationResultsAssembler assembler = new SimulationResultsAssembler(move, core.getId(),
+               moveToTasksMap.get(move), core.getStartTime());
+         assembler.fork();
+         compiledResultsMap.put(move, assembler);
+      }
+      Map<List<Integer>, SimulationOutcome> ret = new HashMap<List<Integer>, SimulationOutcome>();
+      for (List<Integer> move : moves) {
+         SimulationResultsAssembler assembler = compiledResultsMap.get(move);
+         SimulationResult result = assembler.join();
+         if (result != null) {
+            boolean pruned = prunedMoves.contains(move);
+            ret.put(move, new SimulationOutcome(pruned ? result.asPruned() : result, assembler.getDependencyMask(),
+                  assembler.getBoardChances(), !pruned));
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * Gets the random moves which are unlikely to be the best move, given the feeders simulated so
+    * far. The leading keys of the grading mode are bounded for every move, from the wider of the 95%
+    * confidence interval and the observed range of each metric. The leader is the move with the best
+    * worst case. A random move is pruned if, at the first key where it and the leader are not tied
+    * exactly, even its best bound is worse than the leader's worst bound. Its remaining feeders are
+    * then never simulated. These bounds are only estimates, so the best move is rarely pruned.
+    * 
+    * @param core
+    *           The core being simulated
+    * @param keys
+    *           The leading keys of the user's grading mode, as per
+    *           {@link GradingMode#getBoundableKeys()}
+    * @param moves
+    *           The moves being simulated
+    * @param moveToTaskCreatorMap
+    *           The task which created each move's simulations
+    * @param moveToTasksMap
+    *           The simulations of each move so far
+    * @param knownResults
+    *           The results which are already known, and so are complete
+    * @return The pruned moves.
+    */
+   private Set<List<Integer>> getPrunedMoves(SimulationCore core, List<ToDoubleFunction<SimulationResult>> keys,
+         List<List<Integer>> moves, Map<List<Integer>, SimulationCreationTask> moveToTaskCreatorMap,
+         Map<List<Integer>, Collection<SimulationTask>> moveToTasksMap, Collection<SimulationResult> knownResults) {
+      UUID processUUID = core.getId();
+      Map<List<Integer>, SimulationResultsAssembler> pilots = new HashMap<List<Integer>, SimulationResultsAssembler>();
+      for (List<Integer> move : moves) {
+         SimulationResultsAssembler assembler = new SimulationResultsAssembler(move, processUUID,
+               moveToTasksMap.get(move), core.getStartTime());
+         assembler.fork();
+         pilots.put(move, assembler);
+      }
+      double[][] leader = null;
+      for (SimulationResult result : knownResults) {
+         leader = getLeader(leader, getKeyBounds(keys, result));
+      }
+      Map<List<Integer>, double[][]> bounds = new HashMap<List<Integer>, double[][]>();
+      for (List<Integer> move : moves) {
+         SimulationResult result = pilots.get(move).join();
+         if (result != null) {
+            double[][] keyBounds = getKeyBounds(keys, result);
+            bounds.put(move, keyBounds);
+            leader = getLeader(leader, keyBounds);
+         }
+      }
+      Set<List<Integer>> ret = new HashSet<List<Integer>>();
+      for (List<Integer> move : bounds.keySet()) {
+         if (moveToTaskCreatorMap.get(move).hasRemaining() && isDominated(bounds.get(move), leader)) {
+            ret.add(move);
+         }
+      }
+      return ret;
+   }
+   
+   // Keeps whichever has the lexicographically smaller upper bounds, as smaller keys are better.
+   private static double[][] getLeader(double[][] leader, double[][] other) {
+      if (leader == null) {
+         return other;
+      }
+      for (int i = 0; i < other[1].length; i++) {
+         if (other[1][i] != leader[1][i]) {
+            return other[1][i] < leader[1][i] ? other : leader;
+         }
+      }
+      return leader;
+   }
+   
+   private static boolean isDominated(double[][] bounds, double[][] leader) {
+      for (int i = 0; i < bounds[0].length; i++) {
+         boolean tied = bounds[0][i] == bounds[1][i] && leader[0][i] == leader[1][i] && bounds[0][i] == leader[0][i];
+         if (!tied) {
+            return bounds[0][i] > leader[1][i];
+         }
+      }
+      return false;
+   }
+   
+   /**
+    * @param keys
+    *           Keys which are each monotone in the average of a single metric
+    * @param result
+    *           The result
+    * @return The lowest and highest value of each key, for any averages within the bounds of the
+    *         result's metrics.
+    */
+   private static double[][] getKeyBounds(List<ToDoubleFunction<SimulationResult>> keys, SimulationResult result) {
+      SimulationResult lower = getBoundingResult(result, false);
+      SimulationResult upper = getBoundingResult(result, true);
+      double[][] ret = new double[2][keys.size()];
+      for (int i = 0; i < keys.size(); i++) {
+         double low = keys.get(i).applyAsDouble(lower);
+         double high = keys.get(i).applyAsDouble(upper);
+         ret[0][i] = Math.min(low, high);
+         ret[1][i] = Math.max(low, high);
+      }
+      return ret;
+   }
+   
+   private static SimulationResult getBoundingResult(SimulationResult result, boolean upper) {
+      return new SimulationResult(result.getMove(), result.getBoard(), getBound(result.getNetScore(), upper),
+            getBound(result.getNetGold(), upper), getBound(result.getProgress(), upper), result.getID(),
+            getBound(result.getBlocksCleared(), upper), getBound(result.getDisruptionsCleared(), upper),
+            getBound(result.getCombosCleared(), upper), result.getStartTime());
+   }
+   
+   private static NumberSpan getBound(NumberSpan span, boolean upper) {
+      double bound;
+      if (upper) {
+         bound = Math.max(span.getUpperConfidenceBound(), span.getMaximum());
+      } else {
+         bound = Math.min(span.getLowerConfidenceBound(), span.getMinimum());
+      }
+      return new NumberSpan(bound, bound, bound, 1);
+   }
+}
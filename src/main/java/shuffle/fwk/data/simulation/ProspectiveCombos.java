@@ -0,0 +1,170 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.simulation.effects.ActivateComboEffect;
+
+/**
+ * The combos which are recognized but not yet activated, ordered by their priority. Only a handful
+ * exist at once, so they are kept in a small array sorted by priority, along with the mask of each
+ * combo's cells as by {@link Board#getCellBit(int, int)}.<br>
+ * <br>
+ * Combos are told apart by their priority alone: adding a combo with the same priority as one
+ * already here does nothing, and removing a combo removes whichever has its priority.
+ * 
+ * @author Andrew Meyers
+ */
+public class ProspectiveCombos {
+   
+   private static final int INITIAL_CAPACITY = 8;
+   
+   private ActivateComboEffect[] combos = new ActivateComboEffect[INITIAL_CAPACITY];
+   private int[] priorities = new int[INITIAL_CAPACITY];
+   private long[] masks = new long[INITIAL_CAPACITY];
+   private int size = 0;
+   
+   public int size() {
+      return size;
+   }
+   
+   public boolean isEmpty() {
+      return size == 0;
+   }
+   
+   public void clear() {
+      Arrays.fill(combos, 0, size, null);
+      size = 0;
+   }
+   
+   /**
+    * @param effect
+    *           The combo to add
+    * @return True if it was added, false if a combo with the same priority is already here.
+    */
+   public boolean add(ActivateComboEffect effect) {
+      int index = Arrays.binarySearch(priorities, 0, size, effect.getPriority());
+      if (index >= 0) {
+         return false;
+      }
+      index = -index - 1;
+      if (size == combos.length) {
+         combos = Arrays.copyOf(combos, size * 2);
+         priorities = Arrays.copyOf(priorities, size * 2);
+         masks = Arrays.copyOf(masks, size * 2);
+      }
+      System.arraycopy(combos, index, combos, index + 1, size - index);
+      System.arraycopy(priorities, index, priorities, index + 1, size - index);
+      System.arraycopy(masks, index, masks, index + 1, size - index);
+      combos[index] = effect;
+      priorities[index] = effect.getPriority();
+      masks[index] = getMask(effect.getCoords());
+      size++;
+      return true;
+   }
+   
+   /**
+    * @param effect
+    *           The combo to remove
+    * @return True if a combo with its priority was removed.
+    */
+   public boolean remove(ActivateComboEffect effect) {
+      int index = Arrays.binarySearch(priorities, 0, size, effect.getPriority());
+      if (index < 0) {
+         return false;
+      }
+      removeAt(index);
+      return true;
+   }
+   
+   /**
+    * @return The combo of the lowest priority, which is removed, or null if there is none.
+    */
+   public ActivateComboEffect pollFirst() {
+      if (size == 0) {
+         return null;
+      }
+      ActivateComboEffect ret = combos[0];
+      removeAt(0);
+      return ret;
+   }
+   
+   /**
+    * @param row
+    * @param col
+    * @return The combo of the lowest priority which contains the given cell, or null if there is
+    *         none.
+    */
+   public ActivateComboEffect getFirstAt(int row, int col) {
+      long bit = Board.getCellBit(row, col);
+      for (int i = 0; i < size; i++) {
+         if ((masks[i] & bit) != 0) {
+            return combos[i];
+         }
+      }
+      return null;
+   }
+   
+   /**
+    * Removes every combo which contains any of the given cells.
+    * 
+    * @param coords
+    *           The cells, as row, column pairs
+    * @return The combos removed, by priority.
+    */
+   public List<ActivateComboEffect> removeColliding(List<Integer> coords) {
+      long mask = getMask(coords);
+      List<ActivateComboEffect> ret = new ArrayList<ActivateComboEffect>();
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+         if ((masks[i] & mask) != 0) {
+            ret.add(combos[i]);
+         } else {
+            combos[kept] = combos[i];
+            priorities[kept] = priorities[i];
+            masks[kept] = masks[i];
+            kept++;
+         }
+      }
+      Arrays.fill(combos, kept, size, null);
+      size = kept;
+      return ret;
+   }
+   
+   private void removeAt(int index) {
+      int moved = size - index - 1;
+      System.arraycopy(combos, index + 1, combos, index, moved);
+      System.arraycopy(priorities, index + 1, priorities, index, moved);
+      System.arraycopy(masks, index + 1, masks, index, moved);
+      size--;
+      combos[size] = null;
+   }
+   
+   private static long getMask(List<Integer> coords) {
+      long mask = 0L;
+      for (int i = 0; i * 2 + 1 < coords.size(); i++) {
+         mask |= Board.getCellBit(coords.get(i * 2), coords.get(i * 2 + 1));
+      }
+      return mask;
+   }
+}
@@ -0,0 +1,108 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Arrays;
+
+import shuffle.fwk.data.Board;
+
+/**
+ * The scratch grids used by every frame of a {@link SimulationTask}, kept once per worker thread
+ * instead of allocated per frame. A frame acquires its thread's arena, which is reset, and releases it
+ * as soon as it is done with it. Nothing from an arena may be kept after the arena is released.<br>
+ * <br>
+ * When poisoning is enabled every released grid is filled with garbage, and acquiring an arena which
+ * is already in use fails, so that any misuse shows up immediately. It can be enabled with the
+ * <code>shuffle.arena.poison</code> system property.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationArena {
+   
+   private static final ThreadLocal<SimulationArena> ARENAS = ThreadLocal.withInitial(SimulationArena::new);
+   private static final int POISON = Integer.MIN_VALUE / 2;
+   private static volatile boolean poisoning = Boolean.getBoolean("shuffle.arena.poison");
+   
+   // For combo checks
+   final boolean[][] hAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
+   final boolean[][] vAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
+   final boolean[][] isAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
+   final int[][] hLines = new int[Board.NUM_ROWS][Board.NUM_COLS];
+   final int[][] vLines = new int[Board.NUM_ROWS][Board.NUM_COLS];
+   // For gravity, the heights of a column before and after it moves
+   final int[] initialHeight = new int[Board.NUM_ROWS];
+   final int[] postMoveHeight = new int[Board.NUM_ROWS];
+   
+   private boolean inUse = false;
+   
+   /**
+    * @param enabled
+    *           True to poison every released arena, and fail on any arena acquired twice.
+    */
+   public static void setPoisoning(boolean enabled) {
+      poisoning = enabled;
+   }
+   
+   public static boolean isPoisoning() {
+      return poisoning;
+   }
+   
+   /**
+    * @return The current thread's arena, reset. If it is somehow in use already, a new arena is used
+    *         instead unless poisoning is enabled.
+    */
+   public static SimulationArena acquire() {
+      SimulationArena arena = ARENAS.get();
+      if (arena.inUse) {
+         if (poisoning) {
+            throw new IllegalStateException("Arena acquired while in use by " + Thread.currentThread().getName());
+         }
+         arena = new SimulationArena();
+      }
+      arena.inUse = true;
+      arena.reset();
+      return arena;
+   }
+   
+   /**
+    * Releases this arena, so it can be reused by the next task on this thread.
+    */
+   public void release() {
+      if (poisoning) {
+         fill(true, POISON);
+      }
+      inUse = false;
+   }
+   
+   private void reset() {
+      fill(false, 0);
+   }
+   
+   private void fill(boolean flag, int value) {
+      for (int row = 0; row < Board.NUM_ROWS; row++) {
+         Arrays.fill(hAvailable[row], flag);
+         Arrays.fill(vAvailable[row], flag);
+         Arrays.fill(isAvailable[row], flag);
+         Arrays.fill(hLines[row], value);
+         Arrays.fill(vLines[row], value);
+      }
+      Arrays.fill(initialHeight, value);
+      Arrays.fill(postMoveHeight, value);
+   }
+}
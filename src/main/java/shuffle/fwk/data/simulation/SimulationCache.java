@@ -0,0 +1,81 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import shuffle.fwk.data.Board;
+
+/**
+ * The results of one simulation along with the cells each move's result depends upon, so that a
+ * later simulation of an edited board can reuse the results which the edit could not affect.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationCache {
+   
+   private final Board board;
+   private final List<Object> settings;
+   private final Map<List<Integer>, SimulationResult> results;
+   private final Map<List<Integer>, Long> dependencies;
+   
+   /**
+    * @param board
+    *           The board which was simulated, a copy is used.
+    * @param settings
+    *           Everything other than the board which the results depend upon
+    * @param results
+    *           The result for each move
+    * @param dependencies
+    *           The mask of cells each move's result depends upon
+    */
+   public SimulationCache(Board board, List<Object> settings, Map<List<Integer>, SimulationResult> results,
+         Map<List<Integer>, Long> dependencies) {
+      this.board = new Board(board);
+      this.settings = settings;
+      this.results = new HashMap<List<Integer>, SimulationResult>(results);
+      this.dependencies = new HashMap<List<Integer>, Long>(dependencies);
+   }
+   
+   public Board getBoard() {
+      return new Board(board);
+   }
+   
+   public boolean hasSettings(List<Object> otherSettings) {
+      return settings.equals(otherSettings);
+   }
+   
+   public Map<List<Integer>, SimulationResult> getResults() {
+      return Collections.unmodifiableMap(results);
+   }
+   
+   /**
+    * @param move
+    *           The move
+    * @return The mask of cells which the result for the given move depends upon, or every cell if
+    *         the move is unknown.
+    */
+   public long getDependencyMask(List<Integer> move) {
+      Long mask = dependencies.get(move);
+      return mask == null ? -1L : mask.longValue();
+   }
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -29,9 +30,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.RecursiveAction;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -92,25 +96,72 @@ public class SimulationCore extends RecursiveAction {
    private final EffectManager effectManager;
    private final GradingMode defaultGradingMode;
    private final boolean mobileMode;
+   // Everything other than the board which the results depend upon, to check if results can be reused.
+   private final List<Object> settings;
+   // Everything other than the board, health and moves which a cascade depends upon, to share memos.
+   private final List<Object> cascadeSettings;
+   private CascadeMemo cascadeMemo = null;
+   private boolean trackReads = false;
+   private SimulationCache previousCache = null;
+   private volatile SimulationCache cache = null;
+   // The number of turns to search, and the most turns which may be simulated while searching.
+   private final int lookaheadDepth;
+   private final int lookaheadNodes;
+   private final Map<List<Integer>, Map<Board, Float>> boardChances;
+   // The leading keys of the user's grading mode if moves are pruned by them, empty otherwise.
+   private final List<ToDoubleFunction<SimulationResult>> boundableKeys;
+   // The number of the best estimated moves which are simulated, or 0 to simulate every move.
+   private final int approximateCandidates;
+   private final SimulationEngine engine;
+   // Seeds the random draws of every simulation, along with each move and feeder.
+   private long randomSeed = System.nanoTime();
+   // Set once this simulation is no longer wanted, shared with the cores used to search ahead.
+   private final AtomicBoolean stopped;
+   private LongConsumer stopListener = null;
    
    // Gets all the data it needs from the user, as deep copies of all relevant information.
    public SimulationCore(SimulationUser user, UUID processUUID) {
+      this(user, processUUID, user.getBoardManager().getBoard(), user.getMegaProgress(), user.getRemainingHealth(),
+            user.getRemainingMoves(), user);
+   }
+   
+   /**
+    * Creates a core for a board which is not necessarily the user's current board, such as the
+    * likely board after a move. Everything else is taken from the user as normal.
+    * 
+    * @param user
+    *           The user to get all other settings from
+    * @param processUUID
+    *           The id of this process
+    * @param userBoard
+    *           The board to simulate, a copy is used.
+    * @param megaProgress
+    *           The mega progress at the start of the simulation
+    * @param remainingHealth
+    *           The health remaining for the stage
+    * @param remainingMoves
+    *           The moves remaining for the stage, including the move to simulate
+    * @param acceptor
+    *           The acceptor for the results
+    */
+   public SimulationCore(SimulationUser user, UUID processUUID, Board userBoard, int megaProgress,
+         int remainingHealth, int remainingMoves, SimulationAcceptor acceptor) {
       this.processUUID = processUUID;
+      stopped = new AtomicBoolean();
       minHeight = 0; // Math.max(0, user.getPreferredFeederHeight());
       preferredCount = Math.max(1, user.getPreferredNumFeeders());
-      Board userBoard = user.getBoardManager().getBoard();
       RosterManager rosterManager = user.getRosterManager();
       SpeciesManager speciesManager = user.getSpeciesManager();
       board = new Board(userBoard);
       stage = user.getBoardManager().getCurrentStage();
       Team userTeam = user.getCurrentTeam();
       megaSlot = speciesManager.getSpeciesByName(userTeam.getMegaSlotName());
-      megaProgress = user.getMegaProgress();
+      this.megaProgress = megaProgress;
       megaAllowed = user.isMegaAllowed();
       effectManager = new EffectManager(user.getEffectManager());
       megaThreshold = userTeam.getMegaThreshold(speciesManager, rosterManager, effectManager);
-      remainingHealth = user.getRemainingHealth();
-      remainingMoves = user.getRemainingMoves() - 1;
+      this.remainingHealth = remainingHealth;
+      this.remainingMoves = remainingMoves - 1;
       possibleBlocks = new HashSet<Species>();
       
       /*
@@ -150,18 +201,204 @@ public class SimulationCore extends RecursiveAction {
          speciesLevels.put(s, rosterManager.getLevelForSpecies(s));
          speciesSkillLevels.put(s, rosterManager.getSkillLevelForSpecies(s));
       }
-      acceptor = user;
+      this.acceptor = acceptor;
       disabledEffects = user.getDisabledEffects();
       attackPowerUp = user.getAttackPowerUp();
       effectThreshold = user.getEffectThreshold();
       defaultGradingMode = user.getGradingModeManager().getDefaultGradingMode();
       mobileMode = user.isMobileMode();
+      List<String> effectConfigs = new ArrayList<String>();
+      for (Effect e : Effect.values()) {
+         effectConfigs.add(effectManager.getStringValue(e.toString()));
+      }
+      cascadeSettings = Arrays.asList(preferredCount, minHeight, stage, megaSlot, megaProgress, megaAllowed,
+            megaThreshold, new HashSet<Species>(possibleBlocks), supportSpecies, nonSupportSpecies,
+            new HashMap<Species, Integer>(speciesLevels), speciesSkillLevels, speciesEffects,
+            new HashSet<Effect>(disabledEffects), attackPowerUp, effectThreshold, mobileMode, effectConfigs);
+      settings = new ArrayList<Object>(cascadeSettings);
+      settings.addAll(Arrays.asList(remainingHealth, this.remainingMoves, board.getStatus(),
+            board.getStatusDuration(), board.getMegaProgress()));
+      lookaheadDepth = user.getLookaheadDepth();
+      lookaheadNodes = user.getLookaheadNodes();
+      boundableKeys = user.isPruningMoves() ? user.getGradingModeManager().getCurrentGradingMode()
+            .getBoundableKeys() : Collections.<ToDoubleFunction<SimulationResult>> emptyList();
+      approximateCandidates = user.getApproximateCandidates();
+      engine = SimulationEngines.getSelectedEngine(user.getSimulationEngine());
+      settings.add(engine.getName());
+      boardChances = lookaheadDepth > 1 ? new HashMap<List<Integer>, Map<Board, Float>>() : null;
+   }
+   
+   /**
+    * Creates a core for the next turn after one of the given core's moves, with all other settings
+    * as they were for the given core. Used while searching ahead, so it never searches by itself.
+    * 
+    * @param parent
+    *           The core for the current turn
+    * @param nextBoard
+    *           The board for the next turn, a copy is used.
+    * @param nextHealth
+    *           The health remaining for the next turn
+    */
+   private SimulationCore(SimulationCore parent, Board nextBoard, int nextHealth) {
+      processUUID = parent.processUUID;
+      stopped = parent.stopped;
+      minHeight = parent.minHeight;
+      preferredCount = parent.preferredCount;
+      board = new Board(nextBoard);
+      stage = parent.stage;
+      megaSlot = parent.megaSlot;
+      megaProgress = nextBoard.getMegaProgress();
+      megaAllowed = parent.megaAllowed;
+      effectManager = parent.effectManager;
+      megaThreshold = parent.megaThreshold;
+      remainingHealth = nextHealth;
+      remainingMoves = parent.remainingMoves - 1;
+      possibleBlocks = parent.possibleBlocks;
+      supportSpecies = parent.supportSpecies;
+      nonSupportSpecies = parent.nonSupportSpecies;
+      speciesEffects = parent.speciesEffects;
+      speciesLevels = parent.speciesLevels;
+      speciesSkillLevels = parent.speciesSkillLevels;
+      acceptor = parent.acceptor;
+      disabledEffects = parent.disabledEffects;
+      attackPowerUp = parent.attackPowerUp;
+      effectThreshold = parent.effectThreshold;
+      defaultGradingMode = parent.defaultGradingMode;
+      mobileMode = parent.mobileMode;
+      settings = parent.settings;
+      cascadeSettings = parent.cascadeSettings;
+      cascadeMemo = parent.cascadeMemo;
+      startTime = parent.startTime;
+      lookaheadDepth = 1;
+      lookaheadNodes = 0;
+      boundableKeys = parent.boundableKeys;
+      approximateCandidates = parent.approximateCandidates;
+      engine = parent.engine;
+      randomSeed = parent.randomSeed;
+      boardChances = new HashMap<List<Integer>, Map<Board, Float>>();
+   }
+   
+   /**
+    * @param nextBoard
+    *           The board after one of this core's moves
+    * @param nextHealth
+    *           The health remaining after that move
+    * @return A core which simulates the next turn.
+    */
+   protected SimulationCore getNextTurnCore(Board nextBoard, int nextHealth) {
+      return new SimulationCore(this, nextBoard, nextHealth);
+   }
+   
+   /**
+    * @param move
+    *           A simulated move
+    * @return The total weight of each result board for the move. Only available while searching
+    *         ahead.
+    */
+   protected Map<Board, Float> getBoardChances(List<Integer> move) {
+      Map<Board, Float> ret = boardChances == null ? null : boardChances.get(move);
+      return ret == null ? Collections.emptyMap() : ret;
+   }
+   
+   public Comparator<SimulationResult> getGradingMetric() {
+      return defaultGradingMode.getGradingMetric();
+   }
+   
+   /**
+    * Enables incremental simulation. Every move's result records the cells it depends upon, and the
+    * results of the previous simulation are reused for the moves which no edit since could affect.
+    * Must be called before this core is executed.
+    * 
+    * @param previous
+    *           The cache of the previous simulation, or null if there is none.
+    */
+   public void setIncremental(SimulationCache previous) {
+      trackReads = true;
+      previousCache = previous;
+   }
+   
+   /**
+    * Enables the memoisation of cascades. Must be called before this core is executed.
+    * 
+    * @param previous
+    *           The memo of a previous simulation, which is shared if its settings are the same and it
+    *           has room left. A new memo is used otherwise.
+    */
+   public void setCascadeMemo(CascadeMemo previous) {
+      if (previous != null && previous.hasSettings(cascadeSettings) && !previous.isNearlyFull()) {
+         cascadeMemo = previous;
+      } else {
+         cascadeMemo = new CascadeMemo(cascadeSettings);
+      }
+   }
+   
+   /**
+    * @return The memo of cascades, or null if cascades are not memoised.
+    */
+   public CascadeMemo getCascadeMemo() {
+      return cascadeMemo;
+   }
+   
+   /**
+    * Fixes the seed of the random draws made by skills, so that simulating the same board again
+    * with the same seed gives the same results. Must be called before this core is executed.
+    * 
+    * @param seed
+    *           The seed
+    */
+   public void setRandomSeed(long seed) {
+      randomSeed = seed;
+   }
+   
+   public long getRandomSeed() {
+      return randomSeed;
+   }
+   
+   public boolean isTrackingReads() {
+      return trackReads;
+   }
+   
+   /**
+    * @return The results of this simulation along with their dependencies, or null if this core is
+    *         not incremental or has not finished simulating the moves.
+    */
+   public SimulationCache getCache() {
+      return cache;
    }
    
    public UUID getId() {
       return processUUID;
    }
    
+   /**
+    * @return The time this simulation started, in milliseconds.
+    */
+   public long getStartTime() {
+      return startTime;
+   }
+   
+   /**
+    * @return The engine which simulates the moves.
+    */
+   public SimulationEngine getEngine() {
+      return engine;
+   }
+   
+   /**
+    * @return The leading keys of the user's grading mode if moves which cannot be the best may stop
+    *         being simulated early, empty otherwise.
+    */
+   public List<ToDoubleFunction<SimulationResult>> getBoundableKeys() {
+      return boundableKeys;
+   }
+   
+   /**
+    * @return The number of turns searched, 1 if only this turn is.
+    */
+   public int getLookaheadDepth() {
+      return lookaheadDepth;
+   }
+   
    // Getters for use when creating primary SimulationStates
    protected Board getBoardCopy() {
       return new Board(board);
@@ -239,8 +476,14 @@ public class SimulationCore extends RecursiveAction {
          Collection<SimulationResult> results = getResults();
          submitResults(results);
          releaseResources();
+      } catch (CancellationException e) {
+         LOG.fine("Simulation stopped - out of date info");
       } catch (Exception e) {
          LOG.log(Level.FINE, "Can't simulate because: " + e.getMessage(), e);
+      } finally {
+         if (stopListener != null && isStopped()) {
+            stopListener.accept(System.nanoTime());
+         }
       }
    }
    
@@ -254,9 +497,13 @@ public class SimulationCore extends RecursiveAction {
    }
    
    /**
+    * Simulates the board without submitting the results, for anything which compares or times
+    * simulations directly.
     * 
+    * @return The result of every valid move, best first, or the settled board's result alone if the
+    *         board is not settled.
     */
-   private Collection<SimulationResult> getResults() {
+   public Collection<SimulationResult> getResults() {
       Collection<SimulationResult> results = computeWithoutMove();
       if (results != null) {
          return results;
@@ -265,36 +512,38 @@ public class SimulationCore extends RecursiveAction {
       LOG.fine("Preparing board, moves & feeder");
       // First, generate the valid moves and the feeders required.
       List<List<Integer>> validMoves = getPossibleMoves(board);
+      Map<List<Integer>, SimulationResult> reusedResults = getReusableResults(validMoves);
+      List<List<Integer>> movesToSimulate = new ArrayList<List<Integer>>(validMoves);
+      movesToSimulate.removeAll(reusedResults.keySet());
+      LOG.fine("Reusing " + reusedResults.size() + " of " + validMoves.size() + " results");
+      Map<List<Integer>, SimulationResult> estimatedResults = getEstimatedResults(movesToSimulate);
+      movesToSimulate.removeAll(estimatedResults.keySet());
       Collection<SimulationFeeder> feeders = SimulationFeeder.getFeedersFor(minHeight, getStage(), possibleBlocks,
             preferredCount);
             
-      Map<List<Integer>, SimulationCreationTask> moveToTaskCreatorMap = new HashMap<List<Integer>, SimulationCreationTask>();
-      
       long diff = System.currentTimeMillis() - start;
-      LOG.fine("Making tasks, prep took " + diff + "ms");
+      LOG.fine("Simulating with the " + engine.getName() + " engine, prep took " + diff + "ms");
       start = System.currentTimeMillis();
-      
-      // Go through all moves and create a task for each feeder, and add it.
-      for (List<Integer> move : validMoves) {
-         SimulationCreationTask distTask = new SimulationCreationTask(this, move, feeders);
-         distTask.fork();
-         moveToTaskCreatorMap.put(move, distTask);
-      }
-      
-      Map<List<Integer>, Collection<SimulationTask>> moveToTasksMap = new HashMap<List<Integer>, Collection<SimulationTask>>();
-      for (List<Integer> move : validMoves) {
-         Collection<SimulationTask> taskSet = moveToTaskCreatorMap.get(move).join();
-         moveToTasksMap.put(move, taskSet);
-      }
-      
+      Map<List<Integer>, SimulationOutcome> outcomes = engine.simulate(this, movesToSimulate, feeders,
+            reusedResults.values());
       diff = System.currentTimeMillis() - start;
-      LOG.fine("Getting results, init took " + diff + "ms");
+      LOG.fine("Simulating " + movesToSimulate.size() + " of " + validMoves.size() + " moves took " + diff + "ms");
       
       start = System.currentTimeMillis();
       // Once done, we go through the results and find the best on-average result
-      results = getBestResults(validMoves, moveToTasksMap);
+      results = getBestResults(movesToSimulate, outcomes, reusedResults);
+      results.addAll(estimatedResults.values());
       diff = System.currentTimeMillis() - start;
       LOG.fine("Returning best results, the decision took " + diff + "ms");
+      if (cascadeMemo != null) {
+         LOG.fine("Cascade memo: " + cascadeMemo);
+      }
+      if (lookaheadDepth > 1 && remainingMoves > 0) {
+         start = System.currentTimeMillis();
+         results = new SimulationLookahead(this, lookaheadDepth, lookaheadNodes).apply(results);
+         diff = System.currentTimeMillis() - start;
+         LOG.fine("Searching " + lookaheadDepth + " turns ahead took " + diff + "ms");
+      }
       return results;
    }
    
@@ -330,30 +579,128 @@ public class SimulationCore extends RecursiveAction {
    }
    
    /**
+    * Gets the results of the previous simulation which can be reused as-is for this board. A result
+    * is reusable if all other settings are the same, and none of the edited cells are in the cells
+    * its simulation depended upon. Edits to metal, or within a column containing air, change board
+    * wide scans which are not tracked, so they never allow reuse.
+    * 
     * @param validMoves
-    * @param moveToTasksMap
-    * @return
+    *           The valid moves for this board
+    * @return The reusable results, by move.
     */
-   private Collection<SimulationResult> getBestResults(List<List<Integer>> validMoves,
-         Map<List<Integer>, Collection<SimulationTask>> moveToTasksMap) {
-      // Now we need to combine all the results and obtain the best move and likely SimulationResult
-      
-      Map<List<Integer>, RecursiveTask<SimulationResult>> compiledResultsMap = new HashMap<List<Integer>, RecursiveTask<SimulationResult>>();
-      
+   private Map<List<Integer>, SimulationResult> getReusableResults(List<List<Integer>> validMoves) {
+      Map<List<Integer>, SimulationResult> ret = new HashMap<List<Integer>, SimulationResult>();
+      if (previousCache == null || !previousCache.hasSettings(settings)) {
+         return ret;
+      }
+      Board previous = previousCache.getBoard();
+      long edited = 0L;
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            Species before = previous.getSpeciesAt(row, col);
+            Species after = board.getSpeciesAt(row, col);
+            if (!before.equals(after) || previous.isFrozenAt(row, col) != board.isFrozenAt(row, col)
+                  || previous.isCloudedAt(row, col) != board.isCloudedAt(row, col)) {
+               if (Effect.METAL.equals(getEffectFor(before)) || Effect.METAL.equals(getEffectFor(after))) {
+                  return ret;
+               }
+               for (int other = 1; other <= Board.NUM_ROWS; other++) {
+                  if (previous.isAir(other, col) || board.isAir(other, col)) {
+                     return ret;
+                  }
+               }
+               edited |= Board.getCellBit(row, col);
+            }
+         }
+      }
+      Map<List<Integer>, SimulationResult> previousResults = previousCache.getResults();
       for (List<Integer> move : validMoves) {
-         Collection<SimulationTask> results = moveToTasksMap.get(move);
-         SimulationResultsAssembler assembler = new SimulationResultsAssembler(move, processUUID, results, startTime);
-         assembler.fork();
-         compiledResultsMap.put(move, assembler);
+         SimulationResult result = previousResults.get(move);
+         if (result != null && (previousCache.getDependencyMask(move) & edited) == 0) {
+            // The edited cells were never touched, so they are exactly as they are in this board.
+            Board resultBoard = new Board(result.getBoard());
+            for (int row = 1; row <= Board.NUM_ROWS; row++) {
+               for (int col = 1; col <= Board.NUM_COLS; col++) {
+                  if ((edited & Board.getCellBit(row, col)) != 0) {
+                     resultBoard.setSpeciesAt(row, col, board.getSpeciesAt(row, col));
+                     resultBoard.setFrozenAt(row, col, board.isFrozenAt(row, col));
+                     resultBoard.setClouded(row, col, board.isCloudedAt(row, col));
+                  }
+               }
+            }
+            ret.put(move, result.copyFor(processUUID, resultBoard, startTime));
+         }
       }
-      
+      return ret;
+   }
+   
+   /**
+    * Estimates the given moves if only the best few of them should be simulated, as per
+    * {@link SimulationEstimator}. The estimates are ranked by the grading metric, and all but the
+    * best few are returned. They are never simulated.
+    * 
+    * @param moves
+    *           The moves which would otherwise be simulated
+    * @return The estimated results of the moves which will not be simulated, by move.
+    */
+   private Map<List<Integer>, SimulationResult> getEstimatedResults(List<List<Integer>> moves) {
+      if (approximateCandidates <= 0 || moves.size() <= approximateCandidates) {
+         return Collections.emptyMap();
+      }
+      long start = System.currentTimeMillis();
+      Map<List<Integer>, SimulationResult> ret = new SimulationEstimator(this).getEstimates(moves, processUUID,
+            startTime);
+      List<SimulationResult> ranked = new ArrayList<SimulationResult>(ret.values());
+      Collections.sort(ranked, getGradingMetric());
+      for (SimulationResult candidate : ranked.subList(0, approximateCandidates)) {
+         ret.remove(candidate.getMove());
+      }
+      LOG.fine("Estimated " + moves.size() + " moves in " + (System.currentTimeMillis() - start) + "ms, simulating "
+            + approximateCandidates);
+      return ret;
+   }
+   
+   /**
+    * @param moves
+    *           The simulated moves
+    * @param outcomes
+    *           The outcome of each simulated move. Incomplete outcomes are never cached.
+    * @param reusedResults
+    *           The results which were reused
+    * @return The results of every move, best first.
+    */
+   private Collection<SimulationResult> getBestResults(List<List<Integer>> moves,
+         Map<List<Integer>, SimulationOutcome> outcomes, Map<List<Integer>, SimulationResult> reusedResults) {
       TreeSet<SimulationResult> bestResultSet = new TreeSet<SimulationResult>(defaultGradingMode.getGradingMetric());
-      for (List<Integer> move : validMoves) {
-         SimulationResult result = compiledResultsMap.get(move).join();
-         if (result != null) {
-            bestResultSet.add(result);
+      Map<List<Integer>, SimulationResult> cachedResults = new HashMap<List<Integer>, SimulationResult>(reusedResults);
+      Map<List<Integer>, Long> dependencies = new HashMap<List<Integer>, Long>();
+      for (List<Integer> move : reusedResults.keySet()) {
+         dependencies.put(move, previousCache.getDependencyMask(move));
+      }
+      for (List<Integer> move : moves) {
+         SimulationOutcome outcome = outcomes.get(move);
+         if (outcome == null) {
+            continue;
+         }
+         SimulationResult result = outcome.getResult();
+         bestResultSet.add(result);
+         if (outcome.isComplete()) {
+            cachedResults.put(move, result);
+            dependencies.put(move, outcome.getDependencyMask());
+         }
+         if (boardChances != null) {
+            boardChances.put(move, outcome.getBoardChances());
+         }
+      }
+      bestResultSet.addAll(reusedResults.values());
+      if (boardChances != null) {
+         for (SimulationResult result : reusedResults.values()) {
+            boardChances.put(result.getMove(), Collections.singletonMap(result.getBoard(), 1f));
          }
       }
+      if (trackReads) {
+         cache = new SimulationCache(board, settings, cachedResults, dependencies);
+      }
       return bestResultSet;
    }
    
@@ -463,6 +810,44 @@ public class SimulationCore extends RecursiveAction {
       return acceptor.getAcceptedId().equals(processUUID);
    }
    
+   /**
+    * Stops this simulation, along with any search ahead from it. Every task checks this before each
+    * frame, so the stopped simulation gives up its threads soon after, without results.
+    */
+   public void stop() {
+      stopped.set(true);
+   }
+   
+   /**
+    * Sets the listener to tell when this simulation has actually finished, if it was stopped before
+    * then. Only valid before the simulation starts.
+    * 
+    * @param listener
+    *           Accepts the {@link System#nanoTime()} at which the stopped simulation finished
+    */
+   public void setStopListener(LongConsumer listener) {
+      stopListener = listener;
+   }
+   
+   /**
+    * @return True if this simulation was stopped.
+    */
+   public boolean isStopped() {
+      return stopped.get();
+   }
+   
+   /**
+    * Cheap enough to call for every frame of every task.
+    * 
+    * @throws CancellationException
+    *            If this simulation was stopped.
+    */
+   public void checkStopped() {
+      if (stopped.get()) {
+         throw new CancellationException("Simulation stopped");
+      }
+   }
+   
    /**
     * @return
     */
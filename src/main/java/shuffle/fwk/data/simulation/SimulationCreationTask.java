@@ -34,11 +34,30 @@ public class SimulationCreationTask extends RecursiveTask<Collection<SimulationT
    private final Collection<SimulationFeeder> feeders;
    private final List<Integer> move;
    private final SimulationCore simulationCore;
+   private final int pilotCount;
+   private final List<SimulationFeeder> remainingFeeders = new ArrayList<SimulationFeeder>();
    
    public SimulationCreationTask(SimulationCore simulationCore, List<Integer> move, Collection<SimulationFeeder> feeders) {
+      this(simulationCore, move, feeders, Integer.MAX_VALUE);
+   }
+   
+   /**
+    * @param simulationCore
+    *           The core
+    * @param move
+    *           The move to simulate
+    * @param feeders
+    *           The feeders to simulate the move with, if it turns out to be random
+    * @param pilotCount
+    *           The most feeders to simulate at first. The rest are only simulated once
+    *           {@link #forkRemaining()} is called.
+    */
+   public SimulationCreationTask(SimulationCore simulationCore, List<Integer> move,
+         Collection<SimulationFeeder> feeders, int pilotCount) {
       this.simulationCore = simulationCore;
       this.move = move;
       this.feeders = feeders;
+      this.pilotCount = pilotCount;
    }
    
    @Override
@@ -48,6 +67,11 @@ public class SimulationCreationTask extends RecursiveTask<Collection<SimulationT
       if (result.isRandom()) {
          Collection<SimulationTask> ret = new ArrayList<SimulationTask>(feeders.size());
          for (SimulationFeeder feeder : feeders) {
+            if (ret.size() >= pilotCount) {
+               remainingFeeders.add(feeder);
+               continue;
+            }
+            simulationCore.checkStopped();
             SimulationTask task = new SimulationTask(simulationCore, move, feeder);
             task.fork();
             ret.add(task);
@@ -58,4 +82,29 @@ public class SimulationCreationTask extends RecursiveTask<Collection<SimulationT
       }
    }
    
+   /**
+    * @return True if the move turned out to be random, and some of its feeders are yet to be
+    *         simulated. Only valid once this task is done.
+    */
+   public boolean hasRemaining() {
+      return !remainingFeeders.isEmpty();
+   }
+   
+   /**
+    * Starts simulating the feeders which were held back. Only valid once this task is done.
+    * 
+    * @return The tasks for the feeders which were held back, in the order of the feeders.
+    */
+   public Collection<SimulationTask> forkRemaining() {
+      Collection<SimulationTask> ret = new ArrayList<SimulationTask>(remainingFeeders.size());
+      for (SimulationFeeder feeder : remainingFeeders) {
+         simulationCore.checkStopped();
+         SimulationTask task = new SimulationTask(simulationCore, move, feeder);
+         task.fork();
+         ret.add(task);
+      }
+      remainingFeeders.clear();
+      return ret;
+   }
+   
 }
@@ -0,0 +1,61 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simulates the moves of a board. The {@link SimulationCore} prepares each job: it takes a snapshot
+ * of the board, team and settings, finds the valid moves, and reuses or estimates whichever it can.
+ * The engine then simulates the rest against every feeder, and the core grades, caches and searches
+ * ahead from the outcomes.<br>
+ * <br>
+ * Every engine must give the same statistics for a move as the {@link LegacySimulationEngine},
+ * within the error of its samples. Engines are chosen by name through {@link SimulationEngines}, so
+ * a new engine can be compared against the legacy engine on the same boards before it is trusted.
+ * 
+ * @author Andrew Meyers
+ */
+public interface SimulationEngine {
+   
+   /**
+    * @return The name this engine is selected by, which is unique.
+    */
+   public String getName();
+   
+   /**
+    * Simulates each of the given moves on the core's board, once for every feeder. The core must not
+    * be changed by the engine.
+    * 
+    * @param core
+    *           The core whose board and settings are simulated
+    * @param moves
+    *           The moves to simulate
+    * @param feeders
+    *           The feeders to simulate each move with
+    * @param knownResults
+    *           The results of other moves of the same board which are already known. An engine may
+    *           stop simulating a move once it cannot be better than one of these.
+    * @return The outcome of each move which could be simulated, by move.
+    */
+   public Map<List<Integer>, SimulationOutcome> simulate(SimulationCore core, List<List<Integer>> moves,
+         Collection<SimulationFeeder> feeders, Collection<SimulationResult> knownResults);
+}
@@ -0,0 +1,101 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The simulation engines which are available, by name. The {@link LegacySimulationEngine} is always
+ * available, and any other engine can be added by registering it as a {@link ServiceLoader} provider
+ * of {@link SimulationEngine}.<br>
+ * <br>
+ * The engine is chosen by the <code>SIMULATION_ENGINE</code> preference, unless the
+ * <code>shuffle.engine</code> system property names one, so that engines can be compared on the same
+ * boards without changing any preferences.
+ * 
+ * @author Andrew Meyers
+ */
+public final class SimulationEngines {
+   
+   public static final String PROPERTY = "shuffle.engine";
+   
+   private static final Logger LOG = Logger.getLogger(SimulationEngines.class.getName());
+   private static final SimulationEngine DEFAULT = new LegacySimulationEngine();
+   private static final Map<String, SimulationEngine> ENGINES = loadEngines();
+   
+   private SimulationEngines() {
+   }
+   
+   private static Map<String, SimulationEngine> loadEngines() {
+      Map<String, SimulationEngine> ret = new LinkedHashMap<String, SimulationEngine>();
+      ret.put(DEFAULT.getName(), DEFAULT);
+      try {
+         for (SimulationEngine engine : ServiceLoader.load(SimulationEngine.class)) {
+            if (ret.containsKey(engine.getName())) {
+               LOG.warning("Ignoring duplicate simulation engine: " + engine.getName());
+            } else {
+               ret.put(engine.getName(), engine);
+            }
+         }
+      } catch (ServiceConfigurationError e) {
+         LOG.log(Level.WARNING, "Cannot load simulation engines: " + e.getMessage(), e);
+      }
+      return Collections.unmodifiableMap(ret);
+   }
+   
+   /**
+    * @return The names of every available engine, the legacy engine first.
+    */
+   public static Set<String> getNames() {
+      return ENGINES.keySet();
+   }
+   
+   /**
+    * @param name
+    *           The name of the engine
+    * @return The engine of the given name, or the legacy engine if there is no such engine.
+    */
+   public static SimulationEngine getEngine(String name) {
+      SimulationEngine ret = name == null ? null : ENGINES.get(name.trim());
+      if (ret == null) {
+         if (name != null && !name.trim().isEmpty()) {
+            LOG.warning("Unknown simulation engine " + name + ", using " + DEFAULT.getName());
+         }
+         ret = DEFAULT;
+      }
+      return ret;
+   }
+   
+   /**
+    * @param preferred
+    *           The name of the engine chosen by preference
+    * @return The engine named by the <code>shuffle.engine</code> system property if it is set, or the
+    *         preferred engine otherwise.
+    */
+   public static SimulationEngine getSelectedEngine(String preferred) {
+      return getEngine(System.getProperty(PROPERTY, preferred));
+   }
+}
@@ -0,0 +1,317 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Effect;
+import shuffle.fwk.data.PkmType;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * A static estimate of a move's result, for when there is no time to simulate every move. The
+ * combos made by the move are scored as they would be by a {@link SimulationTask}, with each skill
+ * counted by its odds times its multiplier. Then the matched blocks are removed and the known
+ * blocks fall once, and any combos this makes are scored as a follow-up. Wood next to a combo, and
+ * frozen or clouded blocks within one, are counted as disruptions cleared.<br>
+ * <br>
+ * Nothing is simulated frame by frame, nothing falls in from the feeder and no skill is activated,
+ * so the estimate is only good for ranking which moves are worth a full simulation.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationEstimator {
+   
+   private final SimulationCore core;
+   private final Board board;
+   private final boolean megaActive;
+   
+   public SimulationEstimator(SimulationCore core) {
+      this.core = core;
+      board = core.getBoardCopy();
+      megaActive = core.isMegaAllowed() && core.getMegaThreshold() <= core.getMegaProgress();
+   }
+   
+   /**
+    * @param moves
+    *           The moves to estimate
+    * @param processUUID
+    *           The id of the process
+    * @param startTime
+    *           The start time of the process
+    * @return The estimated result of each move, by move.
+    */
+   public Map<List<Integer>, SimulationResult> getEstimates(Collection<List<Integer>> moves, UUID processUUID,
+         long startTime) {
+      Map<List<Integer>, SimulationResult> ret = new LinkedHashMap<List<Integer>, SimulationResult>();
+      for (List<Integer> move : moves) {
+         ret.put(move, getEstimate(move, processUUID, startTime));
+      }
+      return ret;
+   }
+   
+   /**
+    * @param move
+    *           The move, as pickup row, column then drop row, column.
+    * @param processUUID
+    *           The id of the process
+    * @param startTime
+    *           The start time of the process
+    * @return The estimated result of the move.
+    */
+   public SimulationResult getEstimate(List<Integer> move, UUID processUUID, long startTime) {
+      Board b = new Board(board);
+      Species picked = b.getSpeciesAt(move.get(0), move.get(1));
+      Species dropped = b.getSpeciesAt(move.get(2), move.get(3));
+      b.setSpeciesAt(move.get(2), move.get(3), picked);
+      b.setSpeciesAt(move.get(0), move.get(1), dropped);
+      long swapped = Board.getCellBit(move.get(0), move.get(1)) | Board.getCellBit(move.get(2), move.get(3));
+      
+      Map<Long, Species> combos = getCombos(b, swapped);
+      int blocks = getBlocksCleared(b, combos.keySet());
+      Map<Long, Species> followUps = new LinkedHashMap<Long, Species>();
+      if (!combos.isEmpty()) {
+         clear(b, combos);
+         followUps = getCombos(b, fall(b));
+         blocks += getBlocksCleared(b, followUps.keySet());
+      }
+      List<Species> species = new ArrayList<Species>(combos.values());
+      species.addAll(followUps.values());
+      List<Long> cells = new ArrayList<Long>(combos.keySet());
+      cells.addAll(followUps.keySet());
+      
+      double score = 0;
+      int progress = 0;
+      for (int i = 0; i < cells.size(); i++) {
+         int size = Long.bitCount(cells.get(i));
+         score += getScore(species.get(i), size, i);
+         if (species.get(i).equals(core.getMegaSlot())) {
+            progress += size;
+         }
+      }
+      return new SimulationResult(move, b, new NumberSpan(score), new NumberSpan(), new NumberSpan(progress),
+            processUUID, new NumberSpan(blocks), new NumberSpan(getDisruptions(combos.keySet())),
+            new NumberSpan(cells.size()), startTime).asApproximate();
+   }
+   
+   /**
+    * @param species
+    *           The species of the combo
+    * @param size
+    *           The number of blocks in the combo
+    * @param previousCombos
+    *           The number of combos before this one
+    * @return The expected score of the combo.
+    */
+   private double getScore(Species species, int size, int previousCombos) {
+      PkmType type = species.getType();
+      if (megaActive && species.equals(core.getMegaSlot()) && species.getMegaType() != null
+            && !PkmType.NONE.equals(species.getMegaType())) {
+         type = species.getMegaType();
+      }
+      // floored per combo, as the simulation does
+      double score = (int) (species.getAttack(core.getLevel(species))
+            * PkmType.getMultiplier(type, core.getStage().getType()) * SimulationTask.getBlocksMultiplier(size)
+            * SimulationTask.getComboMultiplier(previousCombos + 1));
+      Effect effect = core.getEffectFor(species);
+      // As in the simulation, only the first combo of a move can activate a skill
+      if (previousCombos == 0 && !core.isDisabledEffect(effect)) {
+         int skillLevel = core.getSkillLevel(species);
+         double odds = Math.max(0, Math.min(1, core.getOdds(effect, size, skillLevel)));
+         if (odds >= core.getEffectThreshold() / 100.0) {
+            score *= 1 + odds * (core.getMultiplier(effect, skillLevel) - 1);
+         }
+      }
+      return core.isAttackPowerUp() ? score * 2 : score;
+   }
+   
+   /**
+    * @param cells
+    *           The cells of each combo
+    * @return The number of frozen or clouded cells in the combos, plus the wood next to them.
+    */
+   private int getDisruptions(Collection<Long> cells) {
+      long matched = getCells(cells);
+      long cleared = 0L;
+      int[] nearby = new int[] { 0, -1, 0, 1, 1, 0, -1, 0 };
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if ((matched & Board.getCellBit(row, col)) == 0) {
+               continue;
+            }
+            if (board.isFrozenAt(row, col) || board.isCloudedAt(row, col)) {
+               cleared |= Board.getCellBit(row, col);
+            }
+            for (int k = 0; k * 2 + 1 < nearby.length; k++) {
+               int r = row + nearby[k * 2];
+               int c = col + nearby[k * 2 + 1];
+               long bit = Board.getCellBit(r, c);
+               if (bit != 0 && (matched & bit) == 0
+                     && Effect.WOOD.equals(core.getEffectFor(board.getSpeciesAt(r, c)))) {
+                  cleared |= bit;
+               }
+            }
+         }
+      }
+      return Long.bitCount(cleared);
+   }
+   
+   /**
+    * Finds every line of three or more matching blocks through the given cells.
+    * 
+    * @param b
+    *           The board
+    * @param cells
+    *           The cells to check, as a mask of {@link Board#getCellBit(int, int)}
+    * @return The species of each combo, by the mask of its cells.
+    */
+   private Map<Long, Species> getCombos(Board b, long cells) {
+      Map<Long, Species> ret = new LinkedHashMap<Long, Species>();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if ((cells & Board.getCellBit(row, col)) == 0 || !isMatchable(b, row, col)) {
+               continue;
+            }
+            Species species = b.getSpeciesAt(row, col);
+            int left = col;
+            int right = col;
+            while (left > 1 && isMatch(b, row, left - 1, species)) {
+               left--;
+            }
+            while (right < Board.NUM_COLS && isMatch(b, row, right + 1, species)) {
+               right++;
+            }
+            if (right - left >= 2) {
+               long mask = 0L;
+               for (int c = left; c <= right; c++) {
+                  mask |= Board.getCellBit(row, c);
+               }
+               ret.put(mask, species);
+            }
+            int top = row;
+            int bottom = row;
+            while (top > 1 && isMatch(b, top - 1, col, species)) {
+               top--;
+            }
+            while (bottom < Board.NUM_ROWS && isMatch(b, bottom + 1, col, species)) {
+               bottom++;
+            }
+            if (bottom - top >= 2) {
+               long mask = 0L;
+               for (int r = top; r <= bottom; r++) {
+                  mask |= Board.getCellBit(r, col);
+               }
+               ret.put(mask, species);
+            }
+         }
+      }
+      return ret;
+   }
+   
+   private boolean isMatchable(Board b, int row, int col) {
+      Species species = b.getSpeciesAt(row, col);
+      return !b.isAir(row, col) && core.getEffectFor(species).isPickable();
+   }
+   
+   private boolean isMatch(Board b, int row, int col, Species species) {
+      return isMatchable(b, row, col) && b.getSpeciesAt(row, col).equals(species);
+   }
+   
+   /**
+    * @param b
+    *           The board before the combos are cleared
+    * @param combos
+    *           The cells of each combo
+    * @return The number of blocks the combos clear. A block in crossing combos is only cleared
+    *         once, and frozen blocks are only thawed.
+    */
+   private int getBlocksCleared(Board b, Collection<Long> combos) {
+      long cleared = getCells(combos);
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if (b.isFrozenAt(row, col)) {
+               cleared &= ~Board.getCellBit(row, col);
+            }
+         }
+      }
+      return Long.bitCount(cleared);
+   }
+   
+   private static long getCells(Collection<Long> combos) {
+      long ret = 0L;
+      for (Long mask : combos) {
+         ret |= mask;
+      }
+      return ret;
+   }
+   
+   /**
+    * Removes every block in the given combos, except frozen blocks which are thawed instead.
+    */
+   private void clear(Board b, Map<Long, Species> combos) {
+      long cleared = getCells(combos.keySet());
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if ((cleared & Board.getCellBit(row, col)) == 0) {
+               continue;
+            } else if (b.isFrozenAt(row, col)) {
+               b.setFrozenAt(row, col, false);
+            } else {
+               b.setSpeciesAt(row, col, Species.AIR);
+            }
+         }
+      }
+   }
+   
+   /**
+    * Drops every block which can fall into the air below it, stopping at frozen blocks and anything
+    * else which cannot fall.
+    * 
+    * @return The mask of every cell a block fell into.
+    */
+   private long fall(Board b) {
+      long ret = 0L;
+      for (int col = 1; col <= Board.NUM_COLS; col++) {
+         int target = Board.NUM_ROWS;
+         for (int row = Board.NUM_ROWS; row >= 1; row--) {
+            Species species = b.getSpeciesAt(row, col);
+            if (b.isAir(row, col)) {
+               continue;
+            } else if (b.isFrozenAt(row, col) || !species.isFreezable()) {
+               target = row - 1;
+               continue;
+            }
+            if (target != row) {
+               b.setSpeciesAt(target, col, species);
+               b.setSpeciesAt(row, col, Species.AIR);
+               ret |= Board.getCellBit(target, col);
+            }
+            target--;
+         }
+      }
+      return ret;
+   }
+}
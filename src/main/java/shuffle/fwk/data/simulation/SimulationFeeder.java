@@ -21,6 +21,8 @@ package shuffle.fwk.data.simulation;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -45,6 +47,8 @@ public class SimulationFeeder {
    private List<Queue<Species>> feederQueue;
    private int[] sizes = new int[] { 0, 0, 0, 0, 0, 0 };
    private final UUID feederID;
+   // Seeds the random draws of every simulation with this feeder, along with the core and move.
+   private long seed = 0L;
    
    public SimulationFeeder() {
       this(0);
@@ -68,6 +72,15 @@ public class SimulationFeeder {
       return feederID;
    }
    
+   /**
+    * @return The seed for the random draws of every simulation with this feeder. Feeders which are
+    *         made the same way by {@link #getFeedersFor(int, Stage, Collection, int)} have the same
+    *         seed.
+    */
+   public long getSeed() {
+      return seed;
+   }
+   
    /**
     * @param other
     */
@@ -80,6 +93,7 @@ public class SimulationFeeder {
             feederQueue.add(new LinkedList<Species>(column));
             sizes[i++] = column.size();
          }
+         seed = other.seed;
       }
    }
    
@@ -119,6 +133,27 @@ public class SimulationFeeder {
       return sizes[column - 1] > 0;
    }
    
+   /**
+    * @return True if no column has anything more to feed.
+    */
+   public boolean isEmpty() {
+      for (int size : sizes) {
+         if (size > 0) {
+            return false;
+         }
+      }
+      return true;
+   }
+   
+   /**
+    * @param column
+    *           The column, from 1 to {@link Board#NUM_COLS}
+    * @return The species still to be fed into the column, in order.
+    */
+   public Collection<Species> getQueue(int column) {
+      return Collections.unmodifiableCollection(feederQueue.get(column - 1));
+   }
+   
    public Species pollColumn(int column) {
       return feederQueue.get(column - 1).poll();
    }
@@ -168,7 +203,7 @@ public class SimulationFeeder {
     * @param stage
     * @param possibleBlocks
     * @param preferredCount
-    * @return
+    * @return The feeders, by seed so that they are always simulated and combined in the same order.
     */
    public static Collection<SimulationFeeder> getFeedersFor(int minHeight, Stage stage,
          Collection<Species> possibleBlocks, int preferredCount) {
@@ -192,11 +227,16 @@ public class SimulationFeeder {
       int numPermutations = Math.max(1, preferredCount / ret.size());
       temp = new HashSet<SimulationFeeder>(numPermutations * ret.size());
       for (SimulationFeeder simFeeder : ret) {
+         long baseSeed = simFeeder.toString().hashCode();
          for (int i = 0; i < numPermutations; i++) {
-            temp.add(fillToLevel(simFeeder, minHeight, possibleBlockList));
+            SimulationFeeder filled = fillToLevel(simFeeder, minHeight, possibleBlockList);
+            filled.seed = baseSeed * 31 + i;
+            temp.add(filled);
          }
       }
-      return temp;
+      List<SimulationFeeder> sorted = new ArrayList<SimulationFeeder>(temp);
+      sorted.sort(Comparator.comparingLong(SimulationFeeder::getSeed));
+      return sorted;
    }
    
    /**
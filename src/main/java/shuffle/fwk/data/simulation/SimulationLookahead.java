@@ -0,0 +1,284 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import shuffle.fwk.data.Board;
+
+/**
+ * An expectimax search over the next few turns. Each of the best few moves, by the grading metric,
+ * is expanded into its most likely result boards. Each of those boards is then simulated as the
+ * next turn, in which the best move is the one with the highest expected score. Scores are capped
+ * at the remaining health, since nothing is gained past a KO.<br>
+ * <br>
+ * Turns are simulated on the current ForkJoin pool, at most the node budget of them in total, and
+ * each board is only simulated once per search.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationLookahead {
+   private static final Logger LOG = Logger.getLogger(SimulationLookahead.class.getName());
+   
+   // How many of the best moves are expanded in each turn
+   private static final int MOVES_TO_EXPAND = 4;
+   // How many of the most likely result boards are expanded for each move
+   private static final int BOARDS_TO_EXPAND = 3;
+   
+   private final SimulationCore core;
+   private final int depth;
+   private final int nodeBudget;
+   private final AtomicInteger nodesLeft;
+   private final Map<TurnKey, Double> transpositions = new ConcurrentHashMap<TurnKey, Double>();
+   private final AtomicInteger transpositionHits = new AtomicInteger();
+   
+   /**
+    * @param core
+    *           The core for the current turn
+    * @param depth
+    *           The number of turns to search, including the current turn
+    * @param nodeBudget
+    *           The most turns which may be simulated while searching
+    */
+   public SimulationLookahead(SimulationCore core, int depth, int nodeBudget) {
+      this.core = core;
+      this.depth = depth;
+      this.nodeBudget = nodeBudget;
+      nodesLeft = new AtomicInteger(nodeBudget);
+   }
+   
+   /**
+    * Searches ahead from the given results of the current turn.
+    * 
+    * @param results
+    *           The results of the current turn, in order of the grading metric
+    * @return The results with their lookahead scores, in order of the grading metric. Moves which
+    *         could not be searched have no future score, but are still capped at the remaining
+    *         health.
+    */
+   public Collection<SimulationResult> apply(Collection<SimulationResult> results) {
+      Map<SimulationResult, Double> futures = getFutures(core, results, depth - 1);
+      TreeSet<SimulationResult> ret = new TreeSet<SimulationResult>(core.getGradingMetric());
+      for (SimulationResult result : results) {
+         Double future = futures.get(result);
+         ret.add(result.withLookaheadScore(getTotal(core, result, future == null ? 0 : future.doubleValue())));
+      }
+      LOG.fine(String.format("Searched ahead %d moves, %d transposition hits, %d nodes left", futures.size(),
+            getTranspositionHits(), nodeBudget - getNodesSearched()));
+      return ret;
+   }
+   
+   /**
+    * @return The number of turns which were simulated so far, at most the node budget.
+    */
+   public int getNodesSearched() {
+      return nodeBudget - Math.max(0, nodesLeft.get());
+   }
+   
+   /**
+    * @return The number of turns which were answered by an earlier search of the same board.
+    */
+   public int getTranspositionHits() {
+      return transpositionHits.get();
+   }
+   
+   /**
+    * Gets the expected future score after each of the best few moves.
+    * 
+    * @param node
+    *           The core for the turn
+    * @param results
+    *           The results of that turn, in order of the grading metric
+    * @param turnsLeft
+    *           The number of turns to search after this turn
+    * @return The expected future score by result, for every result which could be searched.
+    */
+   private Map<SimulationResult, Double> getFutures(SimulationCore node, Collection<SimulationResult> results,
+         int turnsLeft) {
+      Map<SimulationResult, Double> ret = new HashMap<SimulationResult, Double>();
+      if (turnsLeft <= 0 || node.getRemainingMoves() <= 0) {
+         return ret;
+      }
+      Map<SimulationResult, List<TurnTask>> tasks = new LinkedHashMap<SimulationResult, List<TurnTask>>();
+      int expanded = 0;
+      for (SimulationResult result : results) {
+         if (expanded >= MOVES_TO_EXPAND) {
+            break;
+         } else if (result.getMove().isEmpty()) {
+            continue;
+         }
+         expanded++;
+         int nextHealth = node.getRemainingHealth() - (int) result.getNetScore().getAverage();
+         if (node.getRemainingHealth() > 0 && nextHealth <= 0) {
+            // Already a KO, there is nothing left to gain
+            ret.put(result, 0.0);
+            continue;
+         }
+         List<Entry<Board, Float>> chances = new ArrayList<Entry<Board, Float>>(
+               node.getBoardChances(result.getMove()).entrySet());
+         Collections.sort(chances, (a, b) -> Float.compare(b.getValue(), a.getValue()));
+         List<TurnTask> boardTasks = new ArrayList<TurnTask>();
+         for (int i = 0; i < BOARDS_TO_EXPAND && i < chances.size(); i++) {
+            Entry<Board, Float> chance = chances.get(i);
+            TurnTask task = new TurnTask(node, chance.getKey(), Math.max(0, nextHealth), turnsLeft, chance.getValue());
+            task.fork();
+            boardTasks.add(task);
+         }
+         tasks.put(result, boardTasks);
+      }
+      for (SimulationResult result : tasks.keySet()) {
+         double total = 0;
+         double weight = 0;
+         for (TurnTask task : tasks.get(result)) {
+            double value = task.join();
+            if (!Double.isNaN(value)) {
+               total += value * task.getWeight();
+               weight += task.getWeight();
+            }
+         }
+         if (weight > 0) {
+            ret.put(result, total / weight);
+         }
+      }
+      return ret;
+   }
+   
+   /**
+    * @param node
+    *           The core for the turn
+    * @param results
+    *           The results of that turn, in order of the grading metric
+    * @param turnsLeft
+    *           The number of turns to search, including this turn
+    * @return The best expected score from this turn onwards.
+    */
+   private double getValue(SimulationCore node, Collection<SimulationResult> results, int turnsLeft) {
+      Map<SimulationResult, Double> futures = getFutures(node, results, turnsLeft - 1);
+      double best = 0;
+      for (SimulationResult result : results) {
+         Double future = futures.get(result);
+         best = Math.max(best, getTotal(node, result, future == null ? 0 : future.doubleValue()));
+      }
+      return best;
+   }
+   
+   private static double getTotal(SimulationCore node, SimulationResult result, double future) {
+      double total = result.getNetScore().getAverage() + future;
+      int health = node.getRemainingHealth();
+      return health > 0 ? Math.min(health, total) : total;
+   }
+   
+   /**
+    * Simulates one likely board of the next turn, and finds its value.
+    */
+   @SuppressWarnings("serial")
+   private class TurnTask extends RecursiveTask<Double> {
+      private final SimulationCore parent;
+      private final Board board;
+      private final int health;
+      private final int turnsLeft;
+      private final float weight;
+      
+      public TurnTask(SimulationCore parent, Board board, int health, int turnsLeft, float weight) {
+         this.parent = parent;
+         this.board = board;
+         this.health = health;
+         this.turnsLeft = turnsLeft;
+         this.weight = weight;
+      }
+      
+      public float getWeight() {
+         return weight;
+      }
+      
+      @Override
+      protected Double compute() {
+         TurnKey key = new TurnKey(board, health, parent.getRemainingMoves(), turnsLeft);
+         Double known = transpositions.get(key);
+         if (known != null) {
+            transpositionHits.incrementAndGet();
+            return known;
+         }
+         if (core.isStopped() || !core.isCurrent() || nodesLeft.getAndDecrement() <= 0) {
+            return Double.NaN;
+         }
+         try {
+            SimulationCore next = parent.getNextTurnCore(board, health);
+            double value = getValue(next, next.getResults(), turnsLeft);
+            transpositions.put(key, value);
+            return value;
+         } catch (RuntimeException e) {
+            LOG.log(Level.FINE, "Cannot search ahead because: " + e.getMessage(), e);
+            return Double.NaN;
+         }
+      }
+   }
+   
+   /**
+    * A turn which has been searched, keyed by its board. The frozen and clouded cells are part of the
+    * key in their own right, so that boards which only differ in those are never confused.
+    */
+   private static class TurnKey {
+      private final Board board;
+      private final long frozen;
+      private final long clouded;
+      private final int health;
+      private final int moves;
+      private final int turnsLeft;
+      
+      public TurnKey(Board board, int health, int moves, int turnsLeft) {
+         this.board = board;
+         frozen = board.getFrozenMask();
+         clouded = board.getCloudedMask();
+         this.health = health;
+         this.moves = moves;
+         this.turnsLeft = turnsLeft;
+      }
+      
+      @Override
+      public int hashCode() {
+         int ret = board.hashCode() * 31 + Long.hashCode(frozen);
+         ret = ret * 31 + Long.hashCode(clouded);
+         return ((ret * 31 + health) * 31 + moves) * 31 + turnsLeft;
+      }
+      
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof TurnKey)) {
+            return false;
+         }
+         TurnKey other = (TurnKey) o;
+         return frozen == other.frozen && clouded == other.clouded && health == other.health
+               && moves == other.moves && turnsLeft == other.turnsLeft && board.equals(other.board);
+      }
+   }
+}
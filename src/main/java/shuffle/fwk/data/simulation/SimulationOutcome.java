@@ -0,0 +1,78 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import shuffle.fwk.data.Board;
+
+/**
+ * The outcome of a move as simulated by a {@link SimulationEngine}: its result, the cells of the
+ * board which that result depends upon, and how likely each result board is.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationOutcome {
+   
+   private final SimulationResult result;
+   private final long dependencyMask;
+   private final Map<Board, Float> boardChances;
+   private final boolean complete;
+   
+   /**
+    * @param result
+    *           The result of the move
+    * @param dependencyMask
+    *           The cells the result depends upon, as by {@link Board#getCellBit(int, int)}. Engines
+    *           which do not track this should give {@link Board#ALL_CELLS}.
+    * @param boardChances
+    *           The total weight of each result board
+    * @param complete
+    *           False if the move was not simulated with every feeder, such as if it could not be the
+    *           best move.
+    */
+   public SimulationOutcome(SimulationResult result, long dependencyMask, Map<Board, Float> boardChances,
+         boolean complete) {
+      this.result = result;
+      this.dependencyMask = dependencyMask;
+      this.boardChances = Collections.unmodifiableMap(new HashMap<Board, Float>(boardChances));
+      this.complete = complete;
+   }
+   
+   public SimulationResult getResult() {
+      return result;
+   }
+   
+   public long getDependencyMask() {
+      return dependencyMask;
+   }
+   
+   public Map<Board, Float> getBoardChances() {
+      return boardChances;
+   }
+   
+   /**
+    * @return True if the move was simulated with every feeder, so its result may be reused.
+    */
+   public boolean isComplete() {
+      return complete;
+   }
+}
@@ -24,6 +24,7 @@ import java.util.UUID;
 
 import shuffle.fwk.data.Board;
 import shuffle.fwk.data.simulation.util.NumberSpan;
+import shuffle.fwk.data.simulation.util.ScoreHistogram;
 
 /**
  * @author Andrew Meyers
@@ -42,10 +43,27 @@ public class SimulationResult {
    private final NumberSpan numCombosCleared;
    private final int hash;
    private final long startTime;
+   private final ScoreHistogram scoreHistogram;
+   private final double koChance;
+   // The expected score over the lookahead horizon, including this move.
+   private final double lookaheadScore;
+   // True if this is a static estimate rather than the result of a simulation.
+   private final boolean approximate;
+   // True if this move was pruned, and so was only simulated with the first few feeders.
+   private final boolean pruned;
+   // Grading keys for the most recent grading metric which asked for them
+   private volatile GradingKeys gradingKeys = null;
    
    public SimulationResult(List<Integer> sourceMove, Board resultBoard, NumberSpan givenScore, NumberSpan givenGold,
          NumberSpan progress, UUID id, NumberSpan blocksCleared, NumberSpan disruptionsCleared,
          NumberSpan combosCleared, long startTime) {
+      this(sourceMove, resultBoard, givenScore, givenGold, progress, id, blocksCleared, disruptionsCleared,
+            combosCleared, startTime, new ScoreHistogram(), 0);
+   }
+   
+   public SimulationResult(List<Integer> sourceMove, Board resultBoard, NumberSpan givenScore, NumberSpan givenGold,
+         NumberSpan progress, UUID id, NumberSpan blocksCleared, NumberSpan disruptionsCleared,
+         NumberSpan combosCleared, long startTime, ScoreHistogram histogram, double chanceToKO) {
       if (resultBoard == null) {
          throw new NullPointerException("Cannot create a SimulaitonResult with a null board.");
       }
@@ -59,9 +77,75 @@ public class SimulationResult {
       move = sourceMove;
       board = resultBoard;
       this.startTime = startTime;
+      scoreHistogram = histogram.clone();
+      koChance = chanceToKO;
+      lookaheadScore = score.getAverage();
+      approximate = false;
+      pruned = false;
+      hash = generateHash();
+   }
+   
+   private SimulationResult(SimulationResult other, UUID id, Board resultBoard, long otherStartTime,
+         double otherLookaheadScore, boolean isApproximate, boolean isPruned) {
+      numBlocksCleared = other.numBlocksCleared;
+      numDisruptionsCleared = other.numDisruptionsCleared;
+      numCombosCleared = other.numCombosCleared;
+      score = other.score;
+      gold = other.gold;
+      megaProgress = other.megaProgress;
+      processUUID = id;
+      move = other.move;
+      board = resultBoard;
+      startTime = otherStartTime;
+      scoreHistogram = other.scoreHistogram;
+      koChance = other.koChance;
+      lookaheadScore = otherLookaheadScore;
+      approximate = isApproximate;
+      pruned = isPruned;
       hash = generateHash();
    }
    
+   /**
+    * Creates a copy of this result for another process, such as when a later simulation reuses
+    * this result because its edits could not have changed it.
+    * 
+    * @param id
+    *           The id of the other process
+    * @param resultBoard
+    *           The result board for the other process
+    * @param otherStartTime
+    *           The start time of the other process
+    * @return The copy
+    */
+   public SimulationResult copyFor(UUID id, Board resultBoard, long otherStartTime) {
+      return new SimulationResult(this, id, resultBoard, otherStartTime, score.getAverage(), approximate, pruned);
+   }
+   
+   /**
+    * @param expectedScore
+    *           The expected score over the lookahead horizon, including this move.
+    * @return A copy of this result with the given lookahead score.
+    */
+   public SimulationResult withLookaheadScore(double expectedScore) {
+      return new SimulationResult(this, processUUID, board, startTime, expectedScore, approximate, pruned);
+   }
+   
+   /**
+    * @return A copy of this result which is marked as a static estimate, as per
+    *         {@link SimulationEstimator}.
+    */
+   public SimulationResult asApproximate() {
+      return new SimulationResult(this, processUUID, board, startTime, lookaheadScore, true, pruned);
+   }
+   
+   /**
+    * @return A copy of this result which is marked as pruned, as its move could not be the best move
+    *         after the first few feeders.
+    */
+   public SimulationResult asPruned() {
+      return new SimulationResult(this, processUUID, board, startTime, lookaheadScore, approximate, true);
+   }
+   
    /**
     * @return
     */
@@ -124,6 +208,101 @@ public class SimulationResult {
       return megaProgress;
    }
    
+   /**
+    * @return The chance that this move's score reaches the remaining health of the stage.
+    */
+   public double getKOChance() {
+      return koChance;
+   }
+   
+   /**
+    * @return The expected score over the lookahead horizon, including this move. This is just the
+    *         average score of this move unless a lookahead was performed.
+    */
+   public double getLookaheadScore() {
+      return lookaheadScore;
+   }
+   
+   /**
+    * @return True if this result is only a static estimate of the move, which was never simulated.
+    */
+   public boolean isApproximate() {
+      return approximate;
+   }
+   
+   /**
+    * @return True if this result is only from the first few feeders, as its move was pruned.
+    */
+   public boolean isPruned() {
+      return pruned;
+   }
+   
+   /**
+    * @param quantile
+    *           The quantile, in [0, 1]
+    * @return The score at the given quantile of this move's score distribution.
+    */
+   public double getScoreQuantile(double quantile) {
+      return scoreHistogram.getQuantile(quantile);
+   }
+   
+   /**
+    * Checks if the other result differs from this one only within sampling noise. That is, no
+    * metric differs significantly at 95% confidence, and at least one metric was actually sampled
+    * with some variance.
+    * 
+    * @param other
+    *           The other result
+    * @return True if the two results cannot be told apart with the current number of samples.
+    */
+   public boolean isIndistinguishableFrom(SimulationResult other) {
+      NumberSpan[] mine = { score, gold, numCombosCleared, numBlocksCleared, numDisruptionsCleared, megaProgress };
+      NumberSpan[] theirs = { other.score, other.gold, other.numCombosCleared, other.numBlocksCleared,
+            other.numDisruptionsCleared, other.megaProgress };
+      boolean sampled = false;
+      for (int i = 0; i < mine.length; i++) {
+         if (mine[i].isDistinguishableFrom(theirs[i])) {
+            return false;
+         }
+         sampled |= mine[i].getStandardError() > 0 || theirs[i].getStandardError() > 0;
+      }
+      return sampled;
+   }
+   
+   /**
+    * Gets the grading keys previously cached by the given owner.
+    * 
+    * @param owner
+    *           The grading metric which computed the keys
+    * @return The cached keys, or null if the owner has not cached any keys for this result.
+    */
+   public double[] getGradingKeys(Object owner) {
+      GradingKeys keys = gradingKeys;
+      return keys != null && keys.owner == owner ? keys.keys : null;
+   }
+   
+   /**
+    * Caches the grading keys computed by the given owner, replacing any keys cached by another owner.
+    * 
+    * @param owner
+    *           The grading metric which computed the keys
+    * @param keys
+    *           The keys to cache
+    */
+   public void setGradingKeys(Object owner, double[] keys) {
+      gradingKeys = new GradingKeys(owner, keys);
+   }
+   
+   private static class GradingKeys {
+      private final Object owner;
+      private final double[] keys;
+      
+      public GradingKeys(Object owner, double[] keys) {
+         this.owner = owner;
+         this.keys = keys;
+      }
+   }
+   
    @Override
    public String toString() {
       int row1 = 0;
@@ -20,6 +20,7 @@ package shuffle.fwk.data.simulation;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,7 @@ import java.util.concurrent.RecursiveTask;
 
 import shuffle.fwk.data.Board;
 import shuffle.fwk.data.simulation.util.NumberSpan;
+import shuffle.fwk.data.simulation.util.ScoreHistogram;
 
 /**
  * @author Andrew Meyers
@@ -40,6 +42,8 @@ public class SimulationResultsAssembler extends RecursiveTask<SimulationResult>
    private final UUID processUUID;
    private final Collection<SimulationTask> results;
    private final long startTime;
+   private long dependencyMask = 0L;
+   private Map<Board, Float> boardChances = Collections.emptyMap();
    
    public SimulationResultsAssembler(List<Integer> move, UUID processUUID, Collection<SimulationTask> results,
          long startTime) {
@@ -49,6 +53,20 @@ public class SimulationResultsAssembler extends RecursiveTask<SimulationResult>
       this.startTime = startTime;
    }
    
+   /**
+    * @return The union of the cells which every simulation of the move depends upon, once computed.
+    */
+   public long getDependencyMask() {
+      return dependencyMask;
+   }
+   
+   /**
+    * @return The total weight of each result board, once computed.
+    */
+   public Map<Board, Float> getBoardChances() {
+      return Collections.unmodifiableMap(boardChances);
+   }
+   
    /*
     * (non-Javadoc)
     * @see java.util.concurrent.RecursiveTask#compute()
@@ -65,9 +83,11 @@ public class SimulationResultsAssembler extends RecursiveTask<SimulationResult>
       NumberSpan disrupts = new NumberSpan();
       NumberSpan combos = new NumberSpan();
       NumberSpan progress = new NumberSpan();
+      ScoreHistogram scoreHistogram = new ScoreHistogram();
+      int remainingHealth = 0;
       
       // keeps track of all board chances, and the best one.
-      Map<Board, Float> boardChances = new HashMap<Board, Float>();
+      boardChances = new HashMap<Board, Float>();
       Board likelyBoard = null;
       
       for (SimulationTask task : results) {
@@ -77,8 +97,11 @@ public class SimulationResultsAssembler extends RecursiveTask<SimulationResult>
             continue;
          }
          float weight = state.getWeight();
+         dependencyMask |= task.getDependencyMask();
          
          score = score.put(state.getScore());
+         scoreHistogram.put(state.getScore(), weight);
+         remainingHealth = state.getCore().getRemainingHealth();
          gold = gold.put(state.getGold(), weight);
          blocks = blocks.put(state.getBlocksCleared(), weight);
          disrupts = disrupts.put(state.getDisruptionsCleared(), weight);
@@ -98,8 +121,9 @@ public class SimulationResultsAssembler extends RecursiveTask<SimulationResult>
       }
       SimulationResult result = null;
       if (likelyBoard != null) {
+         double koChance = scoreHistogram.getChanceAtLeast(remainingHealth);
          result = new SimulationResult(move, likelyBoard, score, gold, progress, processUUID, blocks, disrupts, combos,
-               startTime);
+               startTime, scoreHistogram, koChance);
       }
       return result;
    }
@@ -46,11 +46,10 @@ public class SimulationState {
    
    private int lastChainPause = 0;
 
-   private boolean[][] falling = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
-   private int[][] fallPosition = new int[Board.NUM_ROWS][Board.NUM_COLS];
-   private boolean[][] original = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
-   
-   private int fallingCount = 0;
+   // Each cell is indexed as by Board.getCellBit, in the masks and in the fall positions alike
+   private long falling = 0L;
+   private final byte[] fallPosition = new byte[Board.NUM_ROWS * Board.NUM_COLS];
+   private long original = 0L;
    
    /**
     * Creates a new SimulationState.
@@ -68,14 +67,14 @@ public class SimulationState {
     * @param curGold
     *           The gold up until now
     * @param originality
-    *           The grid of booleans of [1, Board.NUM_ROWS]x[1,Board.NUM_COLS] dimensions defining
-    *           the originality of each block (should it be included in the result board)
+    *           The mask of every cell, as by {@link Board#getCellBit(int, int)}, whose block is
+    *           original (should it be included in the result board)
     * @param chainPause
     *           The last cumulative combo number when the chain paused due to the only thing
     *           happening being a thawing action
     */
    public SimulationState(SimulationCore simCore, SimulationFeeder feeder, Board b, float weight, NumberSpan curScore,
-         int curGold, boolean[][] originality, int chainPause) {
+         int curGold, long originality, int chainPause) {
       core = simCore;
       simFeeder = new SimulationFeeder(feeder);
       board = new Board(b);
@@ -83,16 +82,12 @@ public class SimulationState {
       score = new NumberSpan(curScore);
       gold = curGold;
       lastChainPause = chainPause;
-      for (int row = 1; row <= Board.NUM_ROWS; row++) {
-         for (int col = 1; col <= Board.NUM_COLS; col++) {
-            original[row - 1][col - 1] = originality[row - 1][col - 1];
-         }
-      }
+      original = originality & Board.ALL_CELLS;
    }
    
    /**
     * Creates a new SimulationState using the given object's values, according to
-    * {@link #SimulationState(SimulationCore, SimulationFeeder, Board, float, NumberSpan, int, boolean[][], int)}
+    * {@link #SimulationState(SimulationCore, SimulationFeeder, Board, float, NumberSpan, int, long, int)}
     * .
     * 
     * @param other
@@ -101,18 +96,48 @@ public class SimulationState {
    public SimulationState(SimulationState other) {
       this(other.getCore(), other.getFeeder(), other.getBoard(), other.getWeight(), other.getScore(), other.getGold(),
             other.original, other.lastChainPause);
-      for (int row = 0; row < Board.NUM_ROWS; row++) {
-         for (int col = 0; col < Board.NUM_COLS; col++) {
-            falling[row][col] = other.falling[row][col];
-            fallPosition[row][col] = other.fallPosition[row][col];
-         }
-      }
-      fallingCount = other.fallingCount;
+      falling = other.falling;
+      System.arraycopy(other.fallPosition, 0, fallPosition, 0, fallPosition.length);
       blocksCleared = other.blocksCleared;
       disruptionsCleared = other.disruptionsCleared;
       numCombos = other.numCombos;
    }
    
+   /**
+    * Creates the final SimulationState of a cascade whose outcome is already known. Every block of
+    * the given result board counts as original.
+    * 
+    * @param simCore
+    *           The core
+    * @param resultBoard
+    *           The result board of the cascade, which is used directly.
+    * @param weight
+    *           The weight of the cascade
+    * @param finalScore
+    *           The score of the cascade
+    * @param finalGold
+    *           The gold of the cascade
+    * @param blocks
+    *           The number of blocks cleared
+    * @param disruptions
+    *           The number of disruptions cleared
+    * @param combos
+    *           The number of combos
+    */
+   public SimulationState(SimulationCore simCore, Board resultBoard, float weight, NumberSpan finalScore,
+         int finalGold, int blocks, int disruptions, int combos) {
+      core = simCore;
+      simFeeder = new SimulationFeeder();
+      board = resultBoard;
+      curWeight = weight;
+      score = finalScore;
+      gold = finalGold;
+      blocksCleared = blocks;
+      disruptionsCleared = disruptions;
+      numCombos = combos;
+      original = Board.ALL_CELLS;
+   }
+   
    public SimulationCore getCore() {
       return core;
    }
@@ -162,11 +187,34 @@ public class SimulationState {
    
    public Board getResultBoard() {
       Board ret = new Board(board);
-      for (int row = 1; row <= Board.NUM_ROWS; row++) {
-         for (int col = 1; col <= Board.NUM_COLS; col++) {
-            if (!isOriginalAt(row, col)) {
-               ret.setSpeciesAt(row, col, Species.AIR);
-            }
+      for (long added = ~original & Board.ALL_CELLS; added != 0L; added &= added - 1) {
+         int index = Long.numberOfTrailingZeros(added);
+         ret.setSpeciesAt(index / Board.NUM_COLS + 1, index % Board.NUM_COLS + 1, Species.AIR);
+      }
+      return ret;
+   }
+   
+   /**
+    * @param species
+    *           The species
+    * @return The mask of every cell on the board holding the given species, as by
+    *         {@link Board#getCellBit(int, int)}.
+    */
+   public long getCellsOf(Species species) {
+      return board.getCellsOf(species);
+   }
+   
+   /**
+    * @param type
+    *           The type
+    * @return The mask of every cell on the board holding a species of the given type, as by
+    *         {@link #getSpeciesType(Species)}.
+    */
+   public long getCellsOfType(PkmType type) {
+      long ret = 0L;
+      for (int i = 0; i < board.getIndexedCount(); i++) {
+         if (getSpeciesType(board.getIndexedSpecies(i)).equals(type)) {
+            ret |= board.getIndexedCells(i);
          }
       }
       return ret;
@@ -257,10 +305,10 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return false; // Invalid coordinates
       }
-      boolean changed = falling[row - 1][column - 1] != fall;
+      long bit = Board.getCellBit(row, column);
+      boolean changed = (falling & bit) != 0 != fall;
       if (changed) {
-         falling[row - 1][column - 1] = fall;
-         fallingCount += fall ? 1 : -1;
+         falling ^= bit;
       }
       return changed;
    }
@@ -269,7 +317,7 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return 0; // Invalid coordinates
       }
-      return fallPosition[row - 1][column - 1];
+      return fallPosition[getIndex(row, column)];
    }
    
    public boolean setFallingPositionAt(int row, int column, int position) {
@@ -281,9 +329,10 @@ public class SimulationState {
       } else if (position > MAX_FALL_POSITION) {
          position = MAX_FALL_POSITION;
       }
-      boolean changed = fallPosition[row - 1][column - 1] != position;
+      int index = getIndex(row, column);
+      boolean changed = fallPosition[index] != position;
       if (changed) {
-         fallPosition[row - 1][column - 1] = position;
+         fallPosition[index] = (byte) position;
       }
       return changed;
    }
@@ -299,7 +348,7 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return false; // Invalid coordinates
       }
-      return falling[row - 1][column - 1];
+      return (falling & Board.getCellBit(row, column)) != 0;
    }
    
    /**
@@ -313,7 +362,7 @@ public class SimulationState {
    public boolean decreaseFallAt(int row, int column) {
       boolean changed = isMidFallAt(row, column);
       if (changed) {
-         fallPosition[row - 1][column - 1] -= 1;
+         fallPosition[getIndex(row, column)] -= 1;
       }
       return changed;
    }
@@ -321,9 +370,8 @@ public class SimulationState {
    public boolean decreaseFallAt(int row, int column, int repeat) {
       boolean changed = isMidFallAt(row, column);
       if (changed) {
-         int prevPosition = fallPosition[row - 1][column - 1];
-         int newPosition = Math.max(0, prevPosition - repeat);
-         fallPosition[row - 1][column - 1] = newPosition;
+         int index = getIndex(row, column);
+         fallPosition[index] = (byte) Math.max(0, fallPosition[index] - repeat);
       }
       return changed;
    }
@@ -339,11 +387,11 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return false; // Invalid coordinates
       }
-      return fallPosition[row - 1][column - 1] > 0;
+      return fallPosition[getIndex(row, column)] > 0;
    }
    
    public int getFallingCount() {
-      return fallingCount;
+      return Long.bitCount(falling);
    }
    
    /**
@@ -360,8 +408,9 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return false; // Invalid coordinates
       }
-      boolean prev = original[row - 1][column - 1];
-      original[row - 1][column - 1] = fall;
+      long bit = Board.getCellBit(row, column);
+      boolean prev = (original & bit) != 0;
+      original = fall ? original | bit : original & ~bit;
       return prev != fall;
    }
    
@@ -376,7 +425,11 @@ public class SimulationState {
       if (row < 1 || row > Board.NUM_ROWS || column < 1 || column > Board.NUM_COLS) {
          return false; // Invalid coordinates
       }
-      return original[row - 1][column - 1];
+      return (original & Board.getCellBit(row, column)) != 0;
+   }
+   
+   private static int getIndex(int row, int column) {
+      return (row - 1) * Board.NUM_COLS + column - 1;
    }
    
    public boolean swapTiles(int row1, int column1, int row2, int column2) {
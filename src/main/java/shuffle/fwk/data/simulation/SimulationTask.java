@@ -29,8 +29,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Random;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -48,6 +49,7 @@ import shuffle.fwk.data.simulation.effects.ActivateMegaComboEffect;
 import shuffle.fwk.data.simulation.effects.ComboEffect;
 import shuffle.fwk.data.simulation.effects.DelayThawEffect;
 import shuffle.fwk.data.simulation.effects.EraseComboEffect;
+import shuffle.fwk.data.simulation.util.CellPredicate;
 import shuffle.fwk.data.simulation.util.NumberSpan;
 import shuffle.fwk.data.simulation.util.TriFunction;
 
@@ -73,6 +75,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
    
    private Integer lastGravityTime = null;
    private Integer nextBumpTime = 0;
+   private final GravityColumns gravityColumns = new GravityColumns();
    
    private int lastComboTime = -COMBO_DELAY;
    
@@ -97,19 +100,29 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
    
    private HashMap<Integer, Collection<ActivateComboEffect>> effectClaims = new HashMap<Integer, Collection<ActivateComboEffect>>();
    private HashMap<Integer, Collection<ComboEffect>> activeEffects = new HashMap<Integer, Collection<ComboEffect>>();
+   // The cells with any active effect, as by Board.getCellBit
+   private long activeCells = 0L;
    
    private List<BiFunction<ActivateComboEffect, SimulationTask, NumberSpan>> scoreModifiers = new ArrayList<BiFunction<ActivateComboEffect, SimulationTask, NumberSpan>>();
    private List<BiConsumer<ActivateComboEffect, SimulationTask>> finishedActions = new ArrayList<BiConsumer<ActivateComboEffect, SimulationTask>>();
    /**
     * The prospective combos that are available to activate.
     */
-   private TreeSet<ActivateComboEffect> prospecticeCombosSet = new TreeSet<ActivateComboEffect>(
-         (a, b) -> Integer.compare(a.getPriority(), b.getPriority()));
+   private final ProspectiveCombos prospecticeCombosSet = new ProspectiveCombos();
          
    private SimulationState state;
    
    private Consumer<SimulationState> finalAction = null;
    
+   // The swapped cells, and every cell which could have changed the outcome once tracked.
+   private long moveMask = 0L;
+   private long dependencyMask = 0L;
+   // The key of this cascade in the core's memo, or 0 if it is not memoised.
+   private long memoKey = 0L;
+   // The random draws of this simulation, made from its seed when first needed.
+   private final long randomSeed;
+   private Random random = null;
+   
    public SimulationTask(SimulationCore simulationCore) {
       this(simulationCore, null, new SimulationFeeder());
    }
@@ -126,6 +139,8 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          moveString = StringUtils.join(move.toArray(new Integer[0]));
       }
       id = moveString + " feeder:" + feeder.getID().toString();
+      randomSeed = simulationCore.getRandomSeed() ^ (move == null ? 0L : move.hashCode() * 0x9E3779B97F4A7C15L)
+            ^ feeder.getSeed() * 0xC2B2AE3D27D4EB4FL;
       createNewStateForMove(simulationCore, move, feeder);
    }
    
@@ -176,6 +191,17 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       return id;
    }
    
+   /**
+    * @return The random draws of this simulation, which are the same for the same core seed, move
+    *         and feeder seed.
+    */
+   public Random getRandom() {
+      if (random == null) {
+         random = new Random(randomSeed);
+      }
+      return random;
+   }
+   
    public void logFinerWithId(String message, Object... args) {
       LOG.finer(String.format(id + ": " + message, args));
    }
@@ -207,10 +233,12 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          logFinerWithId("board created");
       }
       // Check for originality as non-air blocks.
-      boolean[][] originality = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
+      long originality = 0L;
       for (int row = 1; row <= Board.NUM_ROWS; row++) {
          for (int col = 1; col <= Board.NUM_COLS; col++) {
-            originality[row - 1][col - 1] = !startBoard.getSpeciesAt(row, col).equals(Species.AIR);
+            if (!startBoard.getSpeciesAt(row, col).equals(Species.AIR)) {
+               originality |= Board.getCellBit(row, col);
+            }
          }
       }
       if (logFiner) {
@@ -222,6 +250,12 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       if (logFiner) {
          logFinerWithId("state made");
       }
+      if (simulationCore.isTrackingReads()) {
+         getState().getBoard().setTracking(true);
+         if (move != null && move.size() >= 4) {
+            moveMask = Board.getCellBit(move.get(0), move.get(1)) | Board.getCellBit(move.get(2), move.get(3));
+         }
+      }
       
       doComboCheck();
       if (logFiner) {
@@ -236,21 +270,26 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
             logFinerWithId("performing FIRST combo: " + StringUtils.join(firstCombo) + " with species: "
                   + getEffectSpecies(firstCombo.getCoords()));
          }
-         List<Integer> metalBlocks = findMatches(Board.NUM_CELLS, true,
- (r, c, s) -> s.getNextMetal().isAir());
          Board b = getState().getBoard();
+         // Metal is found by scanning every cell, the core never reuses results across metal edits.
+         boolean wasTracking = b.setTrackingReads(false);
+         CascadeMemo memo = simulationCore.getCascadeMemo();
+         if (memo != null && firstCombo != null) {
+            long swapped = Board.getCellBit(move.get(0), move.get(1)) | Board.getCellBit(move.get(2), move.get(3));
+            memoKey = memo.getKey(simulationCore, b, firstCombo.getCoords(), swapped, feeder,
+                  simulationCore.isTrackingReads());
+         }
+         List<Integer> metalBlocks = findCoords(Board.NUM_CELLS, true, (r, c, s) -> s.getNextMetal().isAir());
          // Advance blocks that are not erasing entirely
-         for (int row = 1; row <= Board.NUM_ROWS; row++) {
-            for (int col = 1; col <= Board.NUM_COLS; col++) {
-               Species cur = b.getSpeciesAt(row, col);
-               if (getEffectFor(cur).equals(Effect.METAL)) {
-                  Species next = Species.getNextMetal(cur);
-                  if (!next.isAir()) {
-                     b.setSpeciesAt(row, col, Species.getNextMetal(cur));
-                  }
-               }
-            }
+         long metalCells = getMatchingCells(Board.NUM_CELLS, true,
+               (r, c, s) -> getEffectFor(s).equals(Effect.METAL) && !Species.getNextMetal(s).isAir());
+         for (; metalCells != 0L; metalCells &= metalCells - 1) {
+            int index = Long.numberOfTrailingZeros(metalCells);
+            int row = index / Board.NUM_COLS + 1;
+            int col = index % Board.NUM_COLS + 1;
+            b.setSpeciesAt(row, col, Species.getNextMetal(b.getSpeciesAt(row, col)));
          }
+         b.setTrackingReads(wasTracking);
          if (metalBlocks.size() > 0) {
             // and set in an erasure effect for all the blocks that would fully erase this turn.
             EraseComboEffect metalEffect = new EraseComboEffect(metalBlocks);
@@ -277,21 +316,26 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
    }
    
    private ActivateComboEffect findBestComboFor(int row, int col) {
-      ActivateComboEffect firstCombo = null;
-      for (ActivateComboEffect effect : prospecticeCombosSet) {
-         if (effect.containsCoords(row, col)) {
-            firstCombo = effect;
-            break;
-         }
-      }
-      return firstCombo;
+      return prospecticeCombosSet.getFirstAt(row, col);
    }
    
    @Override
    protected SimulationState compute() {
       // ScheduledEffects should start out with exactly one effect on the queue.
       try {
+         CascadeMemo memo = getState().getCore().getCascadeMemo();
+         if (memoKey != 0L) {
+            CascadeMemo.Outcome known = memo.get(memoKey, getState().getCore());
+            if (known != null) {
+               getState().getBoard().setTracking(false);
+               state = known.getState();
+               gravityColumns.setAllChanged();
+               dependencyMask = known.getDependencyMask();
+               return state;
+            }
+         }
          while (!doneSimulation() && simCounter < SIM_TIMEOUT) {
+            getState().getCore().checkStopped();
             if (logFiner) {
                logFinerWithId("simtime: %s, score: %s, comboQueue:%s", curTimeStamp, getState().getScore(),
                      prospecticeCombosSet.size());
@@ -314,7 +358,15 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          if (finalAction != null) {
             finalAction.accept(getState());
          }
+         Board b = getState().getBoard();
+         dependencyMask = getDependencyMask(b.getReadMask(), b.getWriteMask() | moveMask);
+         b.setTracking(false);
+         if (memoKey != 0L && !getState().isRandom()) {
+            memo.put(memoKey, getState(), dependencyMask);
+         }
          return getState();
+      } catch (CancellationException e) {
+         throw e;
       } catch (Exception e) {
          StringWriter sw = new StringWriter();
          PrintWriter pw = new PrintWriter(sw);
@@ -325,6 +377,44 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       }
    }
    
+   /**
+    * Gets the cells which this simulation depends upon. This is only meaningful once the simulation
+    * is done, and only if the core is tracking reads.
+    * 
+    * @return The mask of cells, as per {@link Board#getCellBit(int, int)}.
+    */
+   public long getDependencyMask() {
+      return dependencyMask;
+   }
+   
+   /**
+    * Combo checks and gravity scan the entire board, so they do not track their reads. Instead, a
+    * cell which was never written can only join a combo within two cells of a written cell in its
+    * row, or a written cell in its column. Gravity only moves blocks in written columns.
+    * 
+    * @param read
+    *           The cells read by effects
+    * @param written
+    *           The cells written
+    * @return The mask of cells which could have changed the outcome.
+    */
+   private static long getDependencyMask(long read, long written) {
+      long ret = read | written;
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            if ((written & Board.getCellBit(row, col)) != 0) {
+               for (int other = 1; other <= Board.NUM_ROWS; other++) {
+                  ret |= Board.getCellBit(other, col);
+               }
+               for (int other = col - 2; other <= col + 2; other++) {
+                  ret |= Board.getCellBit(row, other);
+               }
+            }
+         }
+      }
+      return ret;
+   }
+   
    /**
     * Checks if the only thing happening is a 'thawing' action. If so, then the chain count is set
     * to 0. "only thing happening is a 'thawing' action" means: <br>
@@ -413,11 +503,18 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       }
    }
    
-   private void doGravity() {
+   /**
+    * Moves every block which can fall down by one frame, and fills from the feeder. Package visible
+    * so it can be benchmarked by itself.
+    */
+   void doGravity() {
       int lastTime = lastGravityTime == null ? curTimeStamp : lastGravityTime.intValue();
       int increment = curTimeStamp - lastTime;
       
+      Board b = getState().getBoard();
+      boolean wasTracking = b.setTrackingReads(false);
       Integer minHeightToBump = moveEverythingDownBy(increment);
+      b.setTrackingReads(wasTracking);
       
       nextBumpTime = minHeightToBump == null ? null : minHeightToBump.intValue() + curTimeStamp;
       if (nextBumpTime == null) { // If gravity is done,
@@ -436,10 +533,23 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
     * @return
     */
    private Integer moveEverythingDownBy(int increment) {
+      SimulationArena arena = SimulationArena.acquire();
+      try {
+         return moveEverythingDownBy(increment, arena);
+      } finally {
+         arena.release();
+      }
+   }
+   
+   private Integer moveEverythingDownBy(int increment, SimulationArena arena) {
       Integer minHeight = null;
       SimulationFeeder feeder = getState().getFeeder();
       for (int col = 1; col <= Board.NUM_COLS; col++) { // each column
-         int[] initialHeight = getHeights(col);
+         if (gravityColumns.isQuiet(col, getState())) {
+            continue; // nothing here can fall until the column changes
+         }
+         boolean quiet = true;
+         int[] initialHeight = getHeights(col, arena.initialHeight);
          for (int row = Board.NUM_ROWS; row >= 1; row--) { // going upwards
             int toLowerBy = Math.min(increment, initialHeight[row - 1]);
             if (toLowerBy > 0 && canMove(row, col)) { // not frozen, not claimed by a combo, and not
@@ -489,7 +599,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
             }
          }
          // Maintain states and check for heights
-         int[] postMoveHeight = getHeights(col);
+         int[] postMoveHeight = getHeights(col, arena.postMoveHeight);
          for (int row = Board.NUM_ROWS; row >= 1; row--) { // going upwards
             if (canMove(row, col)) { // not frozen, not claimed by a combo, and not air
                int height = postMoveHeight[row - 1];
@@ -498,24 +608,35 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
                   boardChanged = true;
                } else if (height > 0) {
                   getState().setFallingAt(row, col, true);
+                  quiet = false;
                   if (minHeight == null || minHeight.intValue() > height) {
                      minHeight = height;
                   }
                }
             } else if (row == 1 && feeder.hasMore(col) && getState().getBoard().isAir(row, col)) {
                int height = postMoveHeight[row - 1];
+               quiet = false;
                if (minHeight == null || minHeight.intValue() > height) {
                   minHeight = height;
                }
             }
          }
+         if (quiet) {
+            gravityColumns.setQuiet(col, getState());
+         }
       }
       return minHeight;
    }
    
-   private int[] getHeights(int col) {
+   /**
+    * @param col
+    *           The column
+    * @param heightAt
+    *           The array to fill with the height of each row, which is returned.
+    * @return
+    */
+   private int[] getHeights(int col, int[] heightAt) {
       Board b = getState().getBoard();
-      int[] heightAt = new int[Board.NUM_ROWS];
       for (int row = Board.NUM_ROWS; row >= 1; row--) { // going upwards
          int belowPosition = 0;
          int belowHeight = 0;
@@ -552,11 +673,25 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
             && b.getSpeciesAt(row, col).isFreezable();
    }
    
-   private void doComboCheck() {
+   /**
+    * Finds every combo on the board which is not yet a prospective combo. Package visible so it can
+    * be benchmarked by itself.
+    */
+   void doComboCheck() {
+      SimulationArena arena = SimulationArena.acquire();
+      try {
+         doComboCheck(arena);
+      } finally {
+         arena.release();
+      }
+   }
+   
+   private void doComboCheck(SimulationArena arena) {
       Board b = getState().getBoard();
-      boolean[][] hAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
-      boolean[][] vAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
-      boolean[][] isAvailable = new boolean[Board.NUM_ROWS][Board.NUM_COLS];
+      boolean wasTracking = b.setTrackingReads(false);
+      boolean[][] hAvailable = arena.hAvailable;
+      boolean[][] vAvailable = arena.vAvailable;
+      boolean[][] isAvailable = arena.isAvailable;
       // Find out what is available for combo
       for (int row = 1; row <= Board.NUM_ROWS; row++) {
          for (int col = 1; col <= Board.NUM_COLS; col++) {
@@ -582,8 +717,8 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          }
       }
       // Then map out the exact lines
-      int[][] hLines = new int[Board.NUM_ROWS][Board.NUM_COLS];
-      int[][] vLines = new int[Board.NUM_ROWS][Board.NUM_COLS];
+      int[][] hLines = arena.hLines;
+      int[][] vLines = arena.vLines;
       // This will include the biggest current prospective combos, all of them
       // including possible extensions.
       for (int row = 1; row <= Board.NUM_ROWS; row++) {
@@ -608,6 +743,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          }
       }
       effectClaims.clear();
+      gravityColumns.setAllChanged();
       prospecticeCombosSet.clear();
       // Finally, wipe out the prospective combos and all combo claims.
       // Then, reconstruct them from the grids made above.
@@ -634,7 +770,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
             }
          }
       }
-      
+      b.setTrackingReads(wasTracking);
    }
    
    private boolean isPickable(int row, int col) {
@@ -670,6 +806,13 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       return Board.NUM_COLS * (row - 1) + (col - 1);
    }
    
+   /**
+    * @return The mask of every cell with an active effect, as by {@link Board#getCellBit(int, int)}.
+    */
+   public long getActiveCells() {
+      return activeCells;
+   }
+   
    public boolean isActive(int row, int col) {
       return activeEffects.containsKey(getKeyForCoords(row, col));
    }
@@ -703,8 +846,10 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          Integer row = coords.get(i * 2);
          Integer col = coords.get(i * 2 + 1);
          Integer key = getKeyForCoords(row, col);
+         gravityColumns.setChanged(col);
          if (!activeEffects.containsKey(key)) {
             activeEffects.put(key, new HashSet<ComboEffect>());
+            activeCells |= Board.getCellBit(row, col);
          }
          activeEffects.get(key).add(effect);
       }
@@ -716,10 +861,12 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          Integer row = coords.get(i * 2);
          Integer col = coords.get(i * 2 + 1);
          Integer key = getKeyForCoords(row, col);
+         gravityColumns.setChanged(col);
          if (activeEffects.containsKey(key)) {
             activeEffects.get(key).remove(effect);
             if (activeEffects.get(key).isEmpty()) {
                activeEffects.remove(key);
+               activeCells &= ~Board.getCellBit(row, col);
             }
          }
       }
@@ -756,6 +903,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          Integer row = coords.get(i * 2);
          Integer col = coords.get(i * 2 + 1);
          Integer key = getKeyForCoords(row, col);
+         gravityColumns.setChanged(col);
          if (!effectClaims.containsKey(key)) {
             effectClaims.put(key, new HashSet<ActivateComboEffect>());
          }
@@ -771,6 +919,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
     */
    public void removeClaimsFor(int row, int col) {
       effectClaims.remove(getKeyForCoords(row, col));
+      gravityColumns.setChanged(col);
    }
    
    public void removeClaim(ActivateComboEffect effect) {
@@ -779,6 +928,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          Integer row = coords.get(i * 2);
          Integer col = coords.get(i * 2 + 1);
          Integer key = getKeyForCoords(row, col);
+         gravityColumns.setChanged(col);
          if (effectClaims.containsKey(key)) {
             effectClaims.get(key).remove(effect);
             if (effectClaims.get(key).isEmpty()) {
@@ -932,20 +1082,7 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
       if (logFiner) {
          logFinerWithId("Removing collisions with: %s", StringUtils.join(coords.toArray(new Integer[0])));
       }
-      Set<ActivateComboEffect> toRemove = new HashSet<ActivateComboEffect>();
-      for (ActivateComboEffect combo : prospecticeCombosSet) {
-         boolean shouldRemove = false;
-         for (int i = 0; !shouldRemove && i * 2 + 1 < coords.size(); i++) {
-            int row = coords.get(i * 2);
-            int col = coords.get(i * 2 + 1);
-            shouldRemove |= combo.containsCoords(row, col);
-         }
-         if (shouldRemove) {
-            toRemove.add(combo);
-         }
-      }
-      for (ActivateComboEffect comboEffect : toRemove) {
-         prospecticeCombosSet.remove(comboEffect);
+      for (ActivateComboEffect comboEffect : prospecticeCombosSet.removeColliding(coords)) {
          removeClaim(comboEffect);
       }
    }
@@ -1116,7 +1253,17 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
          }
          n = 6;
       }
-      return NUM_BLOCK_MULTIPLIER[n - 1];
+      return getBlocksMultiplier(n);
+   }
+   
+   /**
+    * @param numBlocks
+    *           The number of blocks in a combo
+    * @return The multiplier for the combo's base score, as per {@link #getNumBlocksMultiplier(int)}
+    *         but without logging.
+    */
+   public static double getBlocksMultiplier(int numBlocks) {
+      return NUM_BLOCK_MULTIPLIER[Math.max(1, Math.min(6, numBlocks)) - 1];
    }
    
    public void addScore(NumberSpan score) {
@@ -1195,38 +1342,104 @@ public class SimulationTask extends RecursiveTask<SimulationState> {
     *           The check for adding a result. (row, column, species) -&gt; boolean value, if true
     *           then include. reject otherwise.
     * @return
+    * @see #findCoords(int, boolean, CellPredicate)
     */
    public List<Integer> findMatches(int limit, boolean includeActive,
          TriFunction<Integer, Integer, Species, Boolean> function) {
-      List<Integer> match = new ArrayList<Integer>();
-      for (int row = 1; match.size() / 2 < limit && row <= Board.NUM_ROWS; row++) {
-         for (int col = 1; match.size() / 2 < limit && col <= Board.NUM_COLS; col++) {
-            if (!includeActive && isActive(row, col)) {
-               continue;
-            }
-            Species thisSpecies = getState().getBoard().getSpeciesAt(row, col);
-            if (function.apply(row, col, thisSpecies)) {
-               match.addAll(Arrays.asList(row, col));
+      return findCoords(limit, includeActive, function::apply);
+   }
+   
+   /**
+    * Finds the cells which match the given check, in order by row then column, up to the limit.
+    * Nothing is boxed or allocated while scanning.
+    * 
+    * @param limit
+    *           The most cells to find
+    * @param includeActive
+    *           False to skip cells with an active effect, which are then never checked.
+    * @param predicate
+    *           The check of each cell
+    * @return The mask of the matching cells, as by {@link Board#getCellBit(int, int)}.
+    */
+   public long getMatchingCells(int limit, boolean includeActive, CellPredicate predicate) {
+      Board b = getState().getBoard();
+      long skipped = includeActive ? 0L : activeCells;
+      long ret = 0L;
+      int found = 0;
+      for (int row = 1; found < limit && row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; found < limit && col <= Board.NUM_COLS; col++) {
+            long bit = Board.getCellBit(row, col);
+            if ((skipped & bit) == 0L && predicate.test(row, col, b.getSpeciesAt(row, col))) {
+               ret |= bit;
+               found++;
             }
          }
       }
+      return ret;
+   }
+   
+   /**
+    * As {@link #getMatchingCells(int, boolean, CellPredicate)}, listing the cells found.
+    * 
+    * @return The matching cells as row, column pairs.
+    */
+   public List<Integer> findCoords(int limit, boolean includeActive, CellPredicate predicate) {
+      return findMatches(getMatchingCells(limit, includeActive, predicate), limit, true);
+   }
+   
+   /**
+    * Lists the given cells in the same order as {@link #getMatchingCells(int, boolean, CellPredicate)}.
+    * 
+    * @param cells
+    *           The mask of cells, as by {@link Board#getCellBit(int, int)}
+    * @param limit
+    *           The most cells to list
+    * @param includeActive
+    *           False to leave out cells with an active effect
+    * @return The cells as row, column pairs.
+    */
+   public List<Integer> findMatches(long cells, int limit, boolean includeActive) {
+      if (!includeActive) {
+         cells &= ~activeCells;
+      }
+      List<Integer> match = new ArrayList<Integer>();
+      for (; cells != 0L && match.size() / 2 < limit; cells &= cells - 1) {
+         int index = Long.numberOfTrailingZeros(cells);
+         match.add(index / Board.NUM_COLS + 1);
+         match.add(index % Board.NUM_COLS + 1);
+      }
       return match;
    }
    
    public List<Integer> filterPlanBy(List<Integer> plan, boolean includeActive,
          TriFunction<Integer, Integer, Species, Boolean> function) {
+      return filterPlan(plan, includeActive, function::apply);
+   }
+   
+   /**
+    * Keeps the cells of the given plan which match the given check, in the order of the plan.
+    * 
+    * @param plan
+    *           The cells, as row, column pairs, or null.
+    * @param includeActive
+    *           False to drop cells with an active effect, which are then never checked.
+    * @param predicate
+    *           The check of each cell
+    * @return The matching cells as row, column pairs, or null if the plan is null.
+    */
+   public List<Integer> filterPlan(List<Integer> plan, boolean includeActive, CellPredicate predicate) {
       if (plan == null) {
          return null;
       }
+      Board b = getState().getBoard();
       List<Integer> ret = new ArrayList<Integer>();
       for (int i = 0; i * 2 + 1 < plan.size(); i++) {
          int row = plan.get(i * 2);
          int col = plan.get(i * 2 + 1);
-         if (!includeActive && isActive(row, col)) {
+         if (!includeActive && (activeCells & Board.getCellBit(row, col)) != 0L) {
             continue;
          }
-         Species thisSpecies = getState().getBoard().getSpeciesAt(row, col);
-         if (function.apply(row, col, thisSpecies)) {
+         if (predicate.test(row, col, b.getSpeciesAt(row, col))) {
             ret.add(row);
             ret.add(col);
          }
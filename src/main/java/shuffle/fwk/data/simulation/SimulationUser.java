@@ -39,5 +39,31 @@ public interface SimulationUser extends SimulationAcceptor, RosterManagerProvide
       PaintsIndicatorUser, EffectManagerProvider, GradingModeManagerProvider, EntryModeManagerProvider {
    
    public boolean isMegaAllowed();
+   
+   /**
+    * @return The number of turns to search ahead, where 1 only simulates the current turn.
+    */
+   public int getLookaheadDepth();
+   
+   /**
+    * @return The most turns which may be simulated while searching ahead.
+    */
+   public int getLookaheadNodes();
+   
+   /**
+    * @return True if moves which cannot be the best should stop being simulated early.
+    */
+   public boolean isPruningMoves();
+   
+   /**
+    * @return The number of moves with the best static estimates which are fully simulated, or 0 if
+    *         every move is fully simulated.
+    */
+   public int getApproximateCandidates();
+   
+   /**
+    * @return The name of the {@link SimulationEngine} to simulate with.
+    */
+   public String getSimulationEngine();
 
 }
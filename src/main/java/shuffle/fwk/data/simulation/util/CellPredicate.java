@@ -18,41 +18,25 @@
 
 package shuffle.fwk.data.simulation.util;
 
-import java.util.Arrays;
-import java.util.List;
-
-import shuffle.fwk.data.Effect;
-import shuffle.fwk.data.PkmType;
 import shuffle.fwk.data.Species;
-import shuffle.fwk.data.Stage;
-import shuffle.fwk.data.simulation.SimulationFeeder;
 
 /**
+ * A check of one cell of a board, taking its coordinates as primitives so that scanning a board
+ * never boxes anything.
+ * 
  * @author Andrew Meyers
- *
  */
-public class SimulationBenchmarks {
-   
-   private static final int N = 100;
-   private static final int MAX = 20000;
-   
-   public static void main(String[] args) {
-      testFeederProduction();
-      
-   }
+@FunctionalInterface
+public interface CellPredicate {
    
    /**
-	 * 
-	 */
-   private static void testFeederProduction() {
-      Stage stage = null;
-      List<Species> blocks = Arrays.asList(Species.AIR, new Species("Wood", 0, PkmType.WOOD, Effect.NONE));
-      for (int height = 0; height <= MAX; height += 200) {
-         long t1 = System.nanoTime();
-         SimulationFeeder.getFeedersFor(height, stage, blocks, N);
-         long t2 = System.nanoTime();
-         System.out.println(String.format("%d,%d,%d", height * N, t2 - t1, (t2 - t1) / Math.max(1, height * N)));
-      }
-   }
-   
+    * @param row
+    *           The row, in [1, Board.NUM_ROWS]
+    * @param col
+    *           The column, in [1, Board.NUM_COLS]
+    * @param species
+    *           The species in the cell
+    * @return True if the cell matches.
+    */
+   boolean test(int row, int col, Species species);
 }
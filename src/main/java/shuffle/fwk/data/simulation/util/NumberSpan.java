@@ -28,17 +28,22 @@ import java.util.Optional;
 public class NumberSpan extends Number implements Cloneable, Comparable<NumberSpan> {
    private static final long serialVersionUID = -6911146707992934793L;
    private static final DecimalFormat FORMAT = new DecimalFormat("##.##");
+   // The two-sided z value for a 95% confidence interval
+   private static final double Z_95 = 1.96;
    
    private final double min;
    private final double max;
    private final double total;
    private final int n;
+   // Sum of squared deviations from the average, kept up to date by Welford's method
+   private final double m2;
    
    public NumberSpan() {
       min = 0;
       max = 0;
       total = 0;
       n = 0;
+      m2 = 0;
    }
    
    public NumberSpan(Number value) {
@@ -48,12 +53,14 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
          max = other.max;
          total = other.total;
          n = other.n;
+         m2 = other.m2;
       } else {
          double doubleValue = value.doubleValue();
          min = Math.max(0, doubleValue);
          max = Math.max(0, doubleValue);
          total = doubleValue;
          n = doubleValue <= 0 ? 0 : 1;
+         m2 = 0;
       }
    }
    
@@ -76,18 +83,24 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
          }
       }
       n = 1;
+      m2 = 0;
    }
    
    public NumberSpan(Number min, Number max, Number total, Number n) {
+      this(min, max, total, n, 0);
+   }
+   
+   public NumberSpan(Number min, Number max, Number total, Number n, double m2) {
       this.min = min.doubleValue();
       this.max = max.doubleValue();
       this.total = total.doubleValue();
       this.n = n.intValue();
+      this.m2 = Math.max(0, m2);
    }
    
    @Override
    public NumberSpan clone() {
-      return new NumberSpan(min, max, total, n);
+      return new NumberSpan(min, max, total, n, m2);
    }
    
    /*
@@ -142,20 +155,80 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
       return max;
    }
    
+   public int getCount() {
+      return n;
+   }
+   
+   /**
+    * @return The sum of all values put into this span.
+    */
+   public double getTotal() {
+      return total;
+   }
+   
+   /**
+    * @return The sum of squared deviations from the average, as used by {@link #getVariance()}.
+    */
+   public double getSquaredDeviations() {
+      return m2;
+   }
+   
+   /**
+    * @return The sample variance of all values put into this span, or 0 if there are fewer than two.
+    */
+   public double getVariance() {
+      return n < 2 ? 0 : m2 / (n - 1);
+   }
+   
+   public double getStandardError() {
+      return n < 2 ? 0 : Math.sqrt(getVariance() / n);
+   }
+   
+   /**
+    * @return The half width of the 95% confidence interval around the average.
+    */
+   public double getConfidenceRadius() {
+      return Z_95 * getStandardError();
+   }
+   
+   public double getLowerConfidenceBound() {
+      return getAverage() - getConfidenceRadius();
+   }
+   
+   public double getUpperConfidenceBound() {
+      return getAverage() + getConfidenceRadius();
+   }
+   
+   /**
+    * Checks if the averages of this and the other span differ by more than sampling noise, at 95%
+    * confidence.
+    * 
+    * @param other
+    *           The other span
+    * @return True if the difference in averages is statistically significant.
+    */
+   public boolean isDistinguishableFrom(NumberSpan other) {
+      double diff = Math.abs(getAverage() - other.getAverage());
+      double se0 = getStandardError();
+      double se1 = other.getStandardError();
+      return diff > Z_95 * Math.sqrt(se0 * se0 + se1 * se1);
+   }
+   
    public NumberSpan add(Number num) {
       NumberSpan ret;
       if (num instanceof NumberSpan) {
          NumberSpan other = (NumberSpan) num;
          if (n == 0) {
-            ret = new NumberSpan(other.min, other.max, other.total, other.n);
+            ret = new NumberSpan(other.min, other.max, other.total, other.n, other.m2);
          } else if (other.n != 0) {
-            ret = new NumberSpan(other.min + min, other.max + max, other.total + total, Math.max(n, other.n));
+            ret = new NumberSpan(other.min + min, other.max + max, other.total + total, Math.max(n, other.n),
+                  m2 + other.m2);
          } else {
             ret = clone();
          }
       } else {
          double val = num.doubleValue();
-         ret = new NumberSpan(min + val, max + val, total + val, Math.max(1, n));
+         ret = new NumberSpan(min + val, max + val, total + val, Math.max(1, n), m2);
       }
       return ret;
    }
@@ -172,7 +245,7 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
          ret = new NumberSpan(min * span.min, max * span.max, total * span.total, Math.max(n, span.n));
       } else {
          double numVal = num.doubleValue();
-         ret = new NumberSpan(min * numVal, max * numVal, total * numVal, Math.max(n, 1));
+         ret = new NumberSpan(min * numVal, max * numVal, total * numVal, Math.max(n, 1), m2 * numVal * numVal);
       }
       return ret;
    }
@@ -182,7 +255,11 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
       if (n == 0) {
          ret = new NumberSpan(other);
       } else if (other.n != 0) {
-         ret = new NumberSpan(Math.min(min, other.min), Math.max(max, other.max), total + other.total, n + other.n);
+         // Chan et al. parallel form of Welford's method, combining both sets of samples
+         double delta = other.getAverage() - getAverage();
+         double combinedM2 = m2 + other.m2 + delta * delta * n * other.n / (n + other.n);
+         ret = new NumberSpan(Math.min(min, other.min), Math.max(max, other.max), total + other.total, n + other.n,
+               combinedM2);
       } else {
          ret = clone();
       }
@@ -197,7 +274,11 @@ public class NumberSpan extends Number implements Cloneable, Comparable<NumberSp
       if (n == 0) {
          ret = new NumberSpan(value, value, value * likelihood, 1);
       } else {
-         ret = new NumberSpan(Math.min(min, value), Math.max(max, value), total + value * likelihood, n + 1);
+         double sample = value * likelihood;
+         double oldAverage = getAverage();
+         double newAverage = (total + sample) / (n + 1);
+         double newM2 = m2 + (sample - oldAverage) * (sample - newAverage);
+         ret = new NumberSpan(Math.min(min, value), Math.max(max, value), total + sample, n + 1, newM2);
       }
       return ret;
    }
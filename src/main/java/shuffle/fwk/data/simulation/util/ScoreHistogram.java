@@ -0,0 +1,185 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.fwk.data.simulation.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed memory, mergeable histogram of weighted score samples. Buckets grow geometrically so
+ * that any quantile is accurate to within {@link #RELATIVE_ERROR} of the true value, no matter how
+ * many samples are added.
+ * 
+ * @author Andrew Meyers
+ */
+public class ScoreHistogram implements Cloneable {
+   
+   public static final double RELATIVE_ERROR = 0.01;
+   private static final double GAMMA = (1 + RELATIVE_ERROR) / (1 - RELATIVE_ERROR);
+   private static final double LOG_GAMMA = Math.log(GAMMA);
+   // Bucket 0 holds everything below 1, the last bucket everything above GAMMA^(NUM_BUCKETS - 2)
+   private static final int NUM_BUCKETS = 1024;
+   
+   private final double[] weights;
+   private double totalWeight = 0;
+   private double min = Double.POSITIVE_INFINITY;
+   private double max = Double.NEGATIVE_INFINITY;
+   
+   public ScoreHistogram() {
+      weights = new double[NUM_BUCKETS];
+   }
+   
+   private ScoreHistogram(ScoreHistogram other) {
+      weights = Arrays.copyOf(other.weights, NUM_BUCKETS);
+      totalWeight = other.totalWeight;
+      min = other.min;
+      max = other.max;
+   }
+   
+   @Override
+   public ScoreHistogram clone() {
+      return new ScoreHistogram(this);
+   }
+   
+   private static int getBucket(double value) {
+      if (value < 1) {
+         return 0;
+      }
+      return Math.min(NUM_BUCKETS - 1, 1 + (int) Math.floor(Math.log(value) / LOG_GAMMA));
+   }
+   
+   private static double getLowerBound(int bucket) {
+      return bucket == 0 ? 0 : Math.pow(GAMMA, bucket - 1);
+   }
+   
+   private double getRepresentative(int bucket) {
+      double value = bucket == 0 ? 0 : 2 * getLowerBound(bucket) * GAMMA / (1 + GAMMA);
+      return Math.max(min, Math.min(max, value));
+   }
+   
+   /**
+    * Adds a single sample of the given value with the given weight.
+    * 
+    * @param value
+    *           The sample value
+    * @param weight
+    *           The weight of the sample, if not positive then nothing is added.
+    */
+   public void put(double value, double weight) {
+      if (weight <= 0) {
+         return;
+      }
+      weights[getBucket(value)] += weight;
+      totalWeight += weight;
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+   }
+   
+   /**
+    * Adds a sample whose value is itself a span. The weight is split between the minimum and the
+    * maximum of the span such that the average of the span is preserved.
+    * 
+    * @param span
+    *           The sample span
+    * @param weight
+    *           The weight of the sample
+    */
+   public void put(NumberSpan span, double weight) {
+      double low = span.getMinimum();
+      double high = span.getMaximum();
+      if (high <= low) {
+         put(span.getAverage(), weight);
+      } else {
+         double highChance = Math.max(0, Math.min(1, (span.getAverage() - low) / (high - low)));
+         put(low, weight * (1 - highChance));
+         put(high, weight * highChance);
+      }
+   }
+   
+   /**
+    * Merges all samples from the other histogram into this one.
+    * 
+    * @param other
+    *           The other histogram
+    */
+   public void merge(ScoreHistogram other) {
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+         weights[i] += other.weights[i];
+      }
+      totalWeight += other.totalWeight;
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+   }
+   
+   public boolean isEmpty() {
+      return totalWeight <= 0;
+   }
+   
+   public double getTotalWeight() {
+      return totalWeight;
+   }
+   
+   /**
+    * Gets the value at the given quantile.
+    * 
+    * @param quantile
+    *           The quantile, in [0, 1]
+    * @return The smallest value v such that the chance of a sample being at most v is at least the
+    *         quantile. This is 0 if there are no samples.
+    */
+   public double getQuantile(double quantile) {
+      if (isEmpty()) {
+         return 0;
+      }
+      double target = Math.max(0, Math.min(1, quantile)) * totalWeight;
+      double cumulative = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+         cumulative += weights[i];
+         if (weights[i] > 0 && cumulative >= target) {
+            return getRepresentative(i);
+         }
+      }
+      return max;
+   }
+   
+   /**
+    * Gets the chance that a sample is at least the given threshold.
+    * 
+    * @param threshold
+    *           The threshold
+    * @return The chance, in [0, 1]. This is 0 if there are no samples.
+    */
+   public double getChanceAtLeast(double threshold) {
+      if (isEmpty() || threshold > max) {
+         return 0;
+      } else if (threshold <= min) {
+         return 1;
+      }
+      int thresholdBucket = getBucket(threshold);
+      double above = 0;
+      for (int i = thresholdBucket + 1; i < NUM_BUCKETS; i++) {
+         above += weights[i];
+      }
+      // Interpolate within the bucket which contains the threshold
+      double low = Math.max(min, getLowerBound(thresholdBucket));
+      double high = Math.min(max, thresholdBucket == NUM_BUCKETS - 1 ? max : getLowerBound(thresholdBucket + 1));
+      double fraction = high > low ? (high - threshold) / (high - low) : 1;
+      above += weights[thresholdBucket] * Math.max(0, Math.min(1, fraction));
+      return Math.min(1, above / totalWeight);
+   }
+}
@@ -53,6 +53,8 @@ public class MoveIndicator extends JPanel implements I18nUser {
    private static final String KEY_SCORE_TO_MOVE = "separator.scoretomove";
    private static final String KEY_PICK_TO_DROP = "separator.picktodrop";
    private static final String KEY_TEXT_MOVE = "text.move";
+   private static final String KEY_TEXT_ESTIMATE = "text.estimate";
+   private static final String KEY_TEXT_PRUNED = "text.pruned";
    private static final String KEY_TEXT_NOMOVE = "text.nomove";
    private static final String KEY_TEXT_SETTLE = "text.settle";
    private static final String KEY_FORMAT_SCORE = "format.score";
@@ -208,6 +210,10 @@ public class MoveIndicator extends JPanel implements I18nUser {
          newMessage = getString(KEY_TEXT_NOMOVE);
       } else if (move == null || move.isEmpty()) {
          newMessage = getString(KEY_TEXT_SETTLE);
+      } else if (result.isApproximate()) {
+         newMessage = getString(KEY_TEXT_ESTIMATE);
+      } else if (result.isPruned()) {
+         newMessage = getString(KEY_TEXT_PRUNED);
       } else {
          newMessage = getString(KEY_TEXT_MOVE);
       }
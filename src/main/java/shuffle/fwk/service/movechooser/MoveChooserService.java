@@ -26,6 +26,7 @@ import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -85,6 +86,8 @@ public class MoveChooserService extends BaseService<ShuffleMenuUser>implements I
    private static final String KEY_TITLE = "text.title";
    private static final String KEY_RESULT_FORMAT_MOVE = "format.result.move";
    private static final String KEY_RESULT_FORMAT_SETTLE = "format.result.settle";
+   private static final String KEY_RESULT_FORMAT_CONFIDENCE = "format.result.confidence";
+   private static final String KEY_RESULT_FORMAT_PARTIAL = "format.result.partial";
    private static final String KEY_HEADER_RANK = "column.rank";
    private static final String KEY_HEADER_MOVE = "column.move";
    private static final String KEY_HEADER_GOLD = "column.gold";
@@ -109,6 +112,9 @@ public class MoveChooserService extends BaseService<ShuffleMenuUser>implements I
    // defaults
    private static final String MOVE_FORMAT = "%d,%d -> %d,%d";
    private static final String SETTLE = "Settle";
+   private static final String CONFIDENCE_TEXT_FORMAT = "%s \u00B1%s";
+   private static final String PARTIAL_TEXT_FORMAT = "~%s";
+   private static final DecimalFormat CONFIDENCE_FORMAT = new DecimalFormat("##.##");
    private static final int DEFAULT_CHOOSER_WIDTH = 400;
    private static final int DEFAULT_CHOOSER_HEIGHT = 400;
    private static final boolean DEFAULT_RESIZE = true;
@@ -533,8 +539,35 @@ public class MoveChooserService extends BaseService<ShuffleMenuUser>implements I
       NumberSpan disrupts = result.getDisruptionsCleared();
       NumberSpan mega = result.getProgress();
       
-      return new Vector<String>(Arrays.asList(Integer.toString(rank), firstPart.toString(), gold.toString(),
-            score.toString(), combos.toString(), blocks.toString(), disrupts.toString(), mega.toString()));
+      boolean partial = result.isApproximate() || result.isPruned();
+      
+      return new Vector<String>(Arrays.asList(Integer.toString(rank), firstPart.toString(), getSpanText(gold, partial),
+            getSpanText(score, partial), getSpanText(combos, partial), getSpanText(blocks, partial),
+            getSpanText(disrupts, partial), getSpanText(mega, partial)));
+   }
+   
+   /**
+    * @param span
+    * @param partial
+    *           True if the span is only estimated, or only from the first few feeders
+    * @return The span's text, followed by its 95% confidence interval if it was sampled with any
+    *         variance, and marked if it is partial.
+    */
+   private String getSpanText(NumberSpan span, boolean partial) {
+      double radius = span.getConfidenceRadius();
+      String ret = span.toString();
+      if (radius > 0) {
+         String radiusText = CONFIDENCE_FORMAT.format(radius);
+         ret = getString(KEY_RESULT_FORMAT_CONFIDENCE, span.toString(), radiusText);
+         if (ret.equals(KEY_RESULT_FORMAT_CONFIDENCE)) {
+            ret = String.format(CONFIDENCE_TEXT_FORMAT, span.toString(), radiusText);
+         }
+      }
+      if (partial) {
+         String partialText = getString(KEY_RESULT_FORMAT_PARTIAL, ret);
+         ret = partialText.equals(KEY_RESULT_FORMAT_PARTIAL) ? String.format(PARTIAL_TEXT_FORMAT, ret) : partialText;
+      }
+      return ret;
    }
    
    private void pushSelectionToUser2() {
@@ -21,15 +21,30 @@ package shuffle.test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
+import shuffle.test.fwk.BatchSolverTest;
+import shuffle.test.fwk.GradingModeTest;
 import shuffle.test.fwk.config.manager.DataIntegrityTest;
 import shuffle.test.fwk.data.BoardTest;
 import shuffle.test.fwk.data.PkmTypeTest;
 import shuffle.test.fwk.data.SpeciesTest;
+import shuffle.test.fwk.data.simulation.CascadeMemoTest;
+import shuffle.test.fwk.data.simulation.IncrementalSimulationTest;
+import shuffle.test.fwk.data.simulation.MovePruningTest;
+import shuffle.test.fwk.data.simulation.ProspectiveCombosTest;
+import shuffle.test.fwk.data.simulation.SimulationDifferentialTest;
+import shuffle.test.fwk.data.simulation.SimulationEnginesTest;
+import shuffle.test.fwk.data.simulation.SimulationEstimatorTest;
+import shuffle.test.fwk.data.simulation.SimulationLookaheadTest;
 import shuffle.test.fwk.data.simulation.SimulationTaskTest;
+import shuffle.test.fwk.data.simulation.util.NumberSpanTest;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ // Make sure this includes all test classes
-      BoardTest.class, PkmTypeTest.class, SpeciesTest.class, SimulationTaskTest.class, DataIntegrityTest.class })
+      BoardTest.class, PkmTypeTest.class, SpeciesTest.class, SimulationTaskTest.class, DataIntegrityTest.class,
+      GradingModeTest.class, NumberSpanTest.class, ProspectiveCombosTest.class,
+      SimulationEnginesTest.class, SimulationDifferentialTest.class, BatchSolverTest.class, CascadeMemoTest.class,
+      SimulationEstimatorTest.class, SimulationLookaheadTest.class, MovePruningTest.class,
+      IncrementalSimulationTest.class })
 public class TestAll {
    
 }
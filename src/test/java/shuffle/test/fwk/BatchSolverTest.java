@@ -0,0 +1,111 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package shuffle.test.fwk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import shuffle.fwk.BatchSolver;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.TeamImpl;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class BatchSolverTest {
+   
+   private static final String BOARD_RESOURCE = "config/defaults/boards/%s.txt";
+   
+   @Rule
+   public TemporaryFolder folder = new TemporaryFolder();
+   
+   @Test
+   public final void testSolveAllInOrder() throws Exception {
+      BatchSolver solver = getSolver();
+      File first = copyBoard("001", "a.txt");
+      File second = copyBoard("001", "b.txt");
+      
+      StringWriter out = new StringWriter();
+      int written = solver.solveAll(Arrays.asList(first, second), 2, new PrintWriter(out), false);
+      assertEquals(2, written);
+      List<String> lines = Arrays.asList(out.toString().split("\\R"));
+      int half = lines.size() / 2;
+      assertTrue("Stage 001 has moves in its default board.", half > 0);
+      for (int i = 0; i < lines.size(); i++) {
+         String prefix = (i < half ? "a.txt" : "b.txt") + ",001," + (i % half + 1) + ",";
+         assertTrue(lines.get(i) + " should start with " + prefix, lines.get(i).startsWith(prefix));
+      }
+   }
+   
+   @Test
+   public final void testUnsettledBoard() throws Exception {
+      BatchSolver solver = getSolver();
+      File board = copyBoard("001", "air.txt");
+      // Air at the bottom left leaves the board to settle before any move
+      List<String> rows = Files.readAllLines(board.toPath(), StandardCharsets.UTF_8);
+      rows.replaceAll(row -> row.startsWith("ROW_6 ") ? row.replaceFirst("Pidgey", "Air") : row);
+      Files.write(board.toPath(), rows, StandardCharsets.UTF_8);
+      
+      StringWriter csv = new StringWriter();
+      assertEquals(1, solver.solveAll(Arrays.asList(board), 1, new PrintWriter(csv), false));
+      String[] csvLines = csv.toString().split("\\R");
+      assertEquals("Only the settled board is written.", 1, csvLines.length);
+      assertTrue(csvLines[0], csvLines[0].startsWith("air.txt,001,1,,,,,"));
+      
+      StringWriter json = new StringWriter();
+      assertEquals(1, solver.solveAll(Arrays.asList(board), 1, new PrintWriter(json), true));
+      String[] jsonLines = json.toString().split("\\R");
+      assertEquals("Only the settled board is written.", 1, jsonLines.length);
+      assertTrue(jsonLines[0], jsonLines[0].contains("\"move\":[]"));
+   }
+   
+   private BatchSolver getSolver() {
+      BatchSolver solver = new BatchSolver();
+      Stage stage = solver.getModel().getStageManager().getStageValue("001");
+      TeamImpl team = new TeamImpl();
+      for (String name : Arrays.asList("Azurill", "Pichu", "Pidgey", "Happiny")) {
+         team.addName(name, null);
+      }
+      solver.getTeamManager().setTeamForStage(team, stage);
+      return solver;
+   }
+   
+   private File copyBoard(String stage, String name) throws Exception {
+      File file = new File(folder.getRoot(), name);
+      try (InputStream is = ClassLoader.getSystemResourceAsStream(String.format(BOARD_RESOURCE, stage))) {
+         Files.copy(is, file.toPath());
+      }
+      return file;
+   }
+}
@@ -0,0 +1,140 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.function.ToDoubleFunction;
+
+import org.junit.Test;
+
+import shuffle.fwk.GradingExpression;
+import shuffle.fwk.GradingMode;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+import shuffle.fwk.data.simulation.util.ScoreHistogram;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class GradingModeTest {
+   
+   private static SimulationResult getResult(int col, int score, int gold, int combos) {
+      NumberSpan zero = new NumberSpan();
+      return new SimulationResult(Arrays.asList(1, col, 2, col), new Board(), new NumberSpan(score),
+            new NumberSpan(gold), zero, UUID.randomUUID(), zero, zero, new NumberSpan(combos), 0L);
+   }
+   
+   @Test
+   public void testKeyOrdering() {
+      SimulationResult low = getResult(1, 100, 0, 1);
+      SimulationResult high = getResult(2, 500, 0, 1);
+      SimulationResult rich = getResult(3, 100, 300, 1);
+      Comparator<SimulationResult> score = GradingMode.getGradingMetric("SCORE");
+      assertTrue("Higher score must be graded first", score.compare(high, low) < 0);
+      Comparator<SimulationResult> reversed = GradingMode.getGradingMetric("-SCORE");
+      assertTrue("Reversed score must grade the lower score first", reversed.compare(low, high) < 0);
+      Comparator<SimulationResult> noCoin = GradingMode.getGradingMetric("NOCOIN");
+      assertTrue("No gold must be graded before some gold", noCoin.compare(high, rich) < 0);
+      Comparator<SimulationResult> threshold = GradingMode.getGradingMetric("400SCORE,GOLD");
+      assertTrue("Results below the threshold fall through to the next key", threshold.compare(rich, low) < 0);
+      assertTrue("Results above the threshold come first", threshold.compare(high, rich) < 0);
+      assertTrue("Distinct moves are never equal", score.compare(low, rich) != 0);
+   }
+   
+   @Test
+   public void testExpressions() {
+      SimulationResult scorer = getResult(1, 1000, 0, 1);
+      SimulationResult comboer = getResult(2, 600, 0, 3);
+      Comparator<SimulationResult> weighted = GradingMode.getGradingMetric("0.7*SCORE+200*COMBOS");
+      assertTrue("0.7*600+600 beats 0.7*1000+200", weighted.compare(comboer, scorer) < 0);
+      Comparator<SimulationResult> clamped = GradingMode.getGradingMetric("CLAMP(SCORE::500)+COMBOS");
+      assertTrue("Clamped scores fall back to combos", clamped.compare(comboer, scorer) < 0);
+      assertTrue(GradingExpression.compile("-(2*SCORE-COMBOS)").applyAsDouble(scorer) == -1999);
+      assertTrue(GradingExpression.compile("CLAMP(GOLD-5:-3:)").applyAsDouble(scorer) == -3);
+      assertTrue(GradingExpression.isExpression("0.7*SCORE+200*COMBOS"));
+      assertTrue(!GradingExpression.isExpression("-DISRUPTIONS"));
+      assertTrue(!GradingExpression.isExpression("3MIN_COMBOS_THRESHOLD"));
+   }
+   
+   @Test
+   public void testDistributionKeys() {
+      ScoreHistogram steady = new ScoreHistogram();
+      ScoreHistogram risky = new ScoreHistogram();
+      for (int i = 0; i < 100; i++) {
+         steady.put(900 + i, 1);
+         risky.put(i < 80 ? 100 : 5000, 1);
+      }
+      NumberSpan zero = new NumberSpan();
+      SimulationResult steadyResult = new SimulationResult(Arrays.asList(1, 1, 2, 1), new Board(), new NumberSpan(950),
+            zero, zero, UUID.randomUUID(), zero, zero, zero, 0L, steady, steady.getChanceAtLeast(1000));
+      SimulationResult riskyResult = new SimulationResult(Arrays.asList(1, 2, 2, 2), new Board(), new NumberSpan(1080),
+            zero, zero, UUID.randomUUID(), zero, zero, zero, 0L, risky, risky.getChanceAtLeast(1000));
+      assertTrue("Risky move has the better chance to KO", riskyResult.getKOChance() > steadyResult.getKOChance());
+      assertTrue(Math.abs(riskyResult.getKOChance() - 0.2) < 0.01);
+      assertTrue(Math.abs(steadyResult.getScoreQuantile(0.1) - 909) < 909 * ScoreHistogram.RELATIVE_ERROR);
+      Comparator<SimulationResult> ko = GradingMode.getGradingMetric("P(KO)");
+      assertTrue("P(KO) grades the risky move first", ko.compare(riskyResult, steadyResult) < 0);
+      Comparator<SimulationResult> safe = GradingMode.getGradingMetric("P10_SCORE");
+      assertTrue("P10_SCORE grades the steady move first", safe.compare(steadyResult, riskyResult) < 0);
+   }
+   
+   @Test
+   public void testLookaheadKeys() {
+      SimulationResult greedy = getResult(1, 500, 0, 1).withLookaheadScore(700);
+      SimulationResult planned = getResult(2, 300, 0, 1).withLookaheadScore(900);
+      assertTrue("Lookahead defaults to the score", getResult(3, 400, 0, 1).getLookaheadScore() == 400);
+      Comparator<SimulationResult> lookahead = GradingMode.getGradingMetric("LOOKAHEAD");
+      assertTrue("LOOKAHEAD grades the better plan first", lookahead.compare(planned, greedy) < 0);
+      Comparator<SimulationResult> score = GradingMode.getGradingMetric("SCORE");
+      assertTrue("SCORE still grades the greedy move first", score.compare(greedy, planned) < 0);
+      assertTrue(GradingExpression.compile("LOOKAHEAD-SCORE").applyAsDouble(planned) == 600);
+   }
+   
+   @Test
+   public void testBoundableKeys() {
+      assertTrue(GradingMode.getBoundableKeys("SCORE,GOLD").size() == 9);
+      assertTrue("NOCOIN has two keys", GradingMode.getBoundableKeys("NOCOIN,MINSCORE").size() == 2);
+      assertTrue("Minimums are not bounded by the average", GradingMode.getBoundableKeys("MINSCORE").isEmpty());
+      assertTrue(GradingMode.getBoundableKeys("LOOKAHEAD,SCORE").isEmpty());
+      assertTrue(GradingMode.getBoundableKeys("0.7*SCORE+200*COMBOS").isEmpty());
+      ToDoubleFunction<SimulationResult> key = GradingMode.getBoundableKeys("-400SCORE").get(0);
+      assertTrue(key.applyAsDouble(getResult(1, 500, 0, 1)) > key.applyAsDouble(getResult(2, 300, 0, 1)));
+   }
+   
+   @Test
+   public void testApproximateResults() {
+      SimulationResult simulated = getResult(1, 100, 0, 1);
+      SimulationResult estimated = getResult(2, 500, 0, 1).asApproximate();
+      assertTrue(estimated.isApproximate() && !simulated.isApproximate());
+      Comparator<SimulationResult> score = GradingMode.getGradingMetric("SCORE");
+      assertTrue("Estimates are graded after simulated results", score.compare(simulated, estimated) < 0);
+      assertTrue(estimated.withLookaheadScore(900).isApproximate());
+   }
+   
+   @Test(expected = IllegalArgumentException.class)
+   public void testBadExpression() {
+      GradingExpression.compile("SCORE+*COMBOS");
+   }
+}
@@ -218,6 +218,65 @@ public class BoardTest {
       }
    }
    
+   /**
+    * Test method for {@link shuffle.fwk.data.Board#getFrozenMask()} and
+    * {@link shuffle.fwk.data.Board#getCloudedMask()}.
+    */
+   @Test
+   public final void testGetFrozenAndCloudedMasks() {
+      Board b = getRandomBoard();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            b.setClouded(row, col, rand.nextBoolean());
+         }
+      }
+      long frozen = b.getFrozenMask();
+      long clouded = b.getCloudedMask();
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            long bit = Board.getCellBit(row, col);
+            assertEquals(b.isFrozenAt(row, col), (frozen & bit) != 0);
+            assertEquals(b.isCloudedAt(row, col), (clouded & bit) != 0);
+         }
+      }
+      b.setAllFrozen(false);
+      assertEquals(0L, b.getFrozenMask());
+      assertEquals(clouded, b.getCloudedMask());
+   }
+   
+   /**
+    * Test method for {@link shuffle.fwk.data.Board#getCellsOf(Species)}.
+    */
+   @Test
+   public final void testGetCellsOf() {
+      Board b = getRandomBoard();
+      for (int i = 0; i < 100; i++) {
+         int[] coords = getRandomCoords();
+         b.setSpeciesAt(coords[0], coords[1], i % 3 == 0 ? Species.AIR : getRandomSpecies());
+      }
+      Board copy = new Board(b);
+      long seen = 0L;
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            Species s = b.getSpeciesAt(row, col);
+            long expected = 0L;
+            for (int r = 1; r <= Board.NUM_ROWS; r++) {
+               for (int c = 1; c <= Board.NUM_COLS; c++) {
+                  if (s.equals(b.getSpeciesAt(r, c))) {
+                     expected |= Board.getCellBit(r, c);
+                  }
+               }
+            }
+            assertEquals("checking cells of " + s, expected, b.getCellsOf(s));
+            assertEquals("checking copied cells of " + s, expected, copy.getCellsOf(s));
+            seen |= expected;
+         }
+      }
+      assertEquals(Board.ALL_CELLS, seen);
+      assertEquals(b.getSpeciesPresent().size(), b.getIndexedCount());
+      assertEquals(0L, b.getCellsOf(Species.FREEZE));
+   }
+   
    /**
     * Test method for {@link shuffle.fwk.data.Board#clear()}.
     */
@@ -0,0 +1,205 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import shuffle.fwk.BatchSolver;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.simulation.CascadeMemo;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationFeeder;
+import shuffle.fwk.data.simulation.SimulationState;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class CascadeMemoTest {
+   
+   private static final int THREADS = 4;
+   
+   @Test
+   public final void testRoundTrip() {
+      CascadeMemo memo = new CascadeMemo(Collections.emptyList());
+      Board board = new Board();
+      board.setSpeciesAt(6, 1, Species.WOOD);
+      board.setSpeciesAt(6, 2, Species.COIN);
+      board.setSpeciesAt(5, 1, Species.METAL);
+      board.setFrozenAt(6, 2, true);
+      board.setMegaProgress(7);
+      board.setStatus(Board.Status.BURN);
+      board.setStatusDuration(2);
+      NumberSpan score = new NumberSpan(100, 300, 400, 2, 20000.0);
+      SimulationState state = new SimulationState(null, board, 0.5f, score, 100, 6, 1, 2);
+      
+      assertNull("Nothing is stored yet", memo.get(42L, null));
+      memo.put(42L, state, 0x3FL);
+      CascadeMemo.Outcome outcome = memo.get(42L, null);
+      assertNotNull(outcome);
+      assertEquals(0x3FL, outcome.getDependencyMask());
+      SimulationState known = outcome.getState();
+      assertEquals(board, known.getBoard());
+      assertTrue(known.getBoard().isFrozenAt(6, 2));
+      assertEquals(7, known.getBoard().getMegaProgress());
+      assertEquals(Board.Status.BURN, known.getBoard().getStatus());
+      assertEquals(2, known.getBoard().getStatusDuration());
+      assertEquals(score, known.getScore());
+      assertEquals(score.getConfidenceRadius(), known.getScore().getConfidenceRadius(), 1e-9);
+      assertEquals(0.5f, known.getWeight(), 0f);
+      assertEquals(100, known.getGold());
+      assertEquals(6, known.getBlocksCleared());
+      assertEquals(1, known.getDisruptionsCleared());
+      assertEquals(2, known.getCombosCleared());
+      assertNull("Other keys are still missing", memo.get(43L, null));
+   }
+   
+   @Test
+   public final void testCollisionsProbe() {
+      CascadeMemo memo = new CascadeMemo(Collections.emptyList());
+      // Keys which differ only by multiples of the capacity all start probing from the same slot
+      long[] keys = new long[CascadeMemo.MAX_PROBES + 1];
+      for (int i = 0; i < keys.length; i++) {
+         keys[i] = 5L + (long) i * CascadeMemo.CAPACITY;
+         memo.put(keys[i], getState(i), i);
+      }
+      for (int i = 0; i < CascadeMemo.MAX_PROBES; i++) {
+         CascadeMemo.Outcome outcome = memo.get(keys[i], null);
+         assertNotNull("Colliding key " + i + " is stored in a later slot", outcome);
+         assertEquals(i, outcome.getState().getGold());
+         assertEquals(i, outcome.getDependencyMask());
+      }
+      assertNull("A key which probes too far is dropped", memo.get(keys[CascadeMemo.MAX_PROBES], null));
+      assertTrue(memo.toString(), memo.toString().contains(CascadeMemo.MAX_PROBES + " stored, 1 dropped"));
+      
+      // Storing a key again keeps the first outcome
+      memo.put(keys[0], getState(99), 99L);
+      assertEquals(0, memo.get(keys[0], null).getState().getGold());
+      assertTrue(memo.toString(), memo.toString().contains(CascadeMemo.MAX_PROBES + " stored, 1 dropped"));
+   }
+   
+   @Test
+   public final void testFullTable() {
+      CascadeMemo memo = new CascadeMemo(Collections.emptyList());
+      // Each of these keys starts probing from its own slot, so they fill the table exactly
+      for (int i = 0; i < CascadeMemo.CAPACITY; i++) {
+         assertEquals(i >= CascadeMemo.CAPACITY / 4 * 3, memo.isNearlyFull());
+         memo.put(CascadeMemo.CAPACITY + i, getState(i), 0L);
+      }
+      assertTrue(memo.isNearlyFull());
+      long extra = 2L * CascadeMemo.CAPACITY + 7;
+      memo.put(extra, getState(-1), 0L);
+      assertNull("A full table drops further outcomes", memo.get(extra, null));
+      assertTrue(memo.toString(), memo.toString().contains(CascadeMemo.CAPACITY + " stored, 1 dropped"));
+      for (int i = 0; i < CascadeMemo.CAPACITY; i++) {
+         assertEquals(i, memo.get(CascadeMemo.CAPACITY + i, null).getState().getGold());
+      }
+   }
+   
+   @Test
+   public final void testConcurrentStores() throws Exception {
+      CascadeMemo memo = new CascadeMemo(Collections.emptyList());
+      int perThread = 500;
+      CountDownLatch start = new CountDownLatch(1);
+      List<Callable<Void>> stores = new ArrayList<Callable<Void>>();
+      for (int t = 0; t < THREADS; t++) {
+         stores.add(() -> {
+            start.await();
+            // Every thread stores the same keys, so they race for every slot
+            for (int i = 0; i < perThread; i++) {
+               memo.put(getKey(i), getState(i), i);
+            }
+            return null;
+         });
+      }
+      ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+      try {
+         List<Future<Void>> futures = new ArrayList<Future<Void>>();
+         for (Callable<Void> store : stores) {
+            futures.add(executor.submit(store));
+         }
+         start.countDown();
+         for (Future<Void> future : futures) {
+            future.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+      for (int i = 0; i < perThread; i++) {
+         CascadeMemo.Outcome outcome = memo.get(getKey(i), null);
+         assertNotNull("Key " + i + " was stored", outcome);
+         assertEquals(i, outcome.getState().getGold());
+         assertEquals(i, outcome.getDependencyMask());
+         assertEquals(getState(i).getBoard(), outcome.getState().getBoard());
+      }
+      assertTrue(memo.toString(), memo.toString().contains(perThread + " stored, 0 dropped"));
+   }
+   
+   @Test
+   public final void testKeyIgnoresFeederCopies() {
+      BatchSolver solver = new BatchSolver();
+      Stage stage = solver.getModel().getStageManager().getStageValue("001");
+      SimulationCore core = new SimulationCore(solver, UUID.randomUUID());
+      CascadeMemo memo = new CascadeMemo(Collections.emptyList());
+      List<SimulationFeeder> feeders = new ArrayList<SimulationFeeder>(SimulationFeeder.getFeedersFor(2, stage,
+            Arrays.asList(Species.WOOD, Species.COIN, Species.METAL), 2));
+      assertEquals(2, feeders.size());
+      Board board = getState(0).getBoard();
+      List<Integer> combo = Arrays.asList(6, 1, 6, 3);
+      long first = memo.getKey(core, board, combo, 3L, feeders.get(0), true);
+      long copy = memo.getKey(core, board, combo, 3L, new SimulationFeeder(feeders.get(0)), true);
+      long second = memo.getKey(core, board, combo, 3L, feeders.get(1), true);
+      assertEquals("A copy of a feeder feeds the same blocks", first, copy);
+      assertNotEquals("Another feeder has another seed", first, second);
+      assertNotEquals(first, memo.getKey(core, board, combo, 3L, feeders.get(0), false));
+   }
+   
+   // Spreads the keys over the table, never giving a reserved key
+   private static long getKey(int i) {
+      return (i * 0x9E3779B97F4A7C15L >>> 1) + 2;
+   }
+   
+   private static SimulationState getState(int i) {
+      Board board = new Board();
+      board.setSpeciesAt(6, 1 + Math.floorMod(i, Board.NUM_COLS), Species.WOOD);
+      board.setSpeciesAt(5, 1 + Math.floorMod(i / Board.NUM_COLS, Board.NUM_COLS), Species.COIN);
+      return new SimulationState(null, board, 1.0f, new NumberSpan(i), i, 0, 0, 1);
+   }
+}
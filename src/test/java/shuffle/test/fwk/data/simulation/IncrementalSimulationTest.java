@@ -0,0 +1,116 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.simulation.SimulationCache;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationResult;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class IncrementalSimulationTest {
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final long SEED = 1L;
+   private static ShuffleController controller;
+   
+   @BeforeClass
+   public static void setUpBeforeClass() {
+      controller = new ShuffleController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 1);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, 2);
+      controller.setCurrentStage(controller.getModel().getStageManager().getStageValue("001"));
+      controller.loadDefaultGrid();
+   }
+   
+   /**
+    * The results reused after freezing or clouding a few cells must match a full simulation of the
+    * edited board.
+    */
+   @Test
+   public final void testDisruptionEdits() {
+      Board board = controller.getBoardManager().getBoard();
+      SimulationCore first = getCore(board);
+      first.setIncremental(null);
+      first.getResults();
+      SimulationCache cache = first.getCache();
+      
+      Board clouded = new Board(board);
+      Board frozen = new Board(board);
+      for (int col = 1; col <= 2; col++) {
+         clouded.setClouded(1, col, true);
+         frozen.setFrozenAt(1, col, true);
+      }
+      for (Board edited : new Board[] { clouded, frozen }) {
+         SimulationCore incremental = getCore(edited);
+         incremental.setIncremental(cache);
+         Map<List<Integer>, SimulationResult> expected = getResults(getCore(edited));
+         Map<List<Integer>, SimulationResult> actual = getResults(incremental);
+         assertEquals(expected.keySet(), actual.keySet());
+         for (List<Integer> move : expected.keySet()) {
+            SimulationResult want = expected.get(move);
+            SimulationResult got = actual.get(move);
+            String text = "Move " + move + " on\n" + edited;
+            assertTrue(text, SimulationDifferential.matches(want.getNetScore(), got.getNetScore()));
+            assertTrue(text,
+                  SimulationDifferential.matches(want.getDisruptionsCleared(), got.getDisruptionsCleared()));
+            assertTrue(text, SimulationDifferential.matches(want.getBlocksCleared(), got.getBlocksCleared()));
+            assertEquals(text, want.getBoard(), got.getBoard());
+            assertEquals(text, want.getBoard().getFrozenMask(), got.getBoard().getFrozenMask());
+            assertEquals(text, want.getBoard().getCloudedMask(), got.getBoard().getCloudedMask());
+         }
+      }
+   }
+   
+   private static SimulationCore getCore(Board board) {
+      SimulationCore core = new SimulationCore(controller, UUID.randomUUID(), board, 0,
+            controller.getRemainingHealth(), controller.getRemainingMoves(), controller);
+      core.setRandomSeed(SEED);
+      return core;
+   }
+   
+   private static Map<List<Integer>, SimulationResult> getResults(SimulationCore core) {
+      Map<List<Integer>, SimulationResult> ret = new HashMap<List<Integer>, SimulationResult>();
+      for (SimulationResult result : core.getResults()) {
+         ret.put(result.getMove(), result);
+      }
+      return ret;
+   }
+}
@@ -0,0 +1,159 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationResult;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class MovePruningTest {
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_APPROXIMATE_MODE = "APPROXIMATE_MODE";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final long SEED = 42L;
+   // More than the pilot feeders, so that there are feeders left to prune
+   private static final int FEEDERS = 24;
+   private static final int BOARDS = 3;
+   private static final String STAGE = "001";
+   private static final List<String> RANDOM_SPECIES = Arrays.asList("Haunter", "Cherubi", "Mime_Jr.", "Yamask");
+   private static ShuffleController controller;
+   
+   @BeforeClass
+   public static void setUpBeforeClass() {
+      controller = new ShuffleController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_APPROXIMATE_MODE, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 1);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, FEEDERS);
+   }
+   
+   @Test
+   public final void testDefaultOff() {
+      ShuffleController fresh = new ShuffleController();
+      assertTrue("Pruning is opt in", !fresh.getModel().isPruningMoves());
+   }
+   
+   /**
+    * Moves are only random, and so only pruned, when a skill picks its targets at random. Each board
+    * is made of species with such a skill, with no match already on it.
+    */
+   @Test
+   public final void testSameBestMove() {
+      controller.setCurrentStage(controller.getModel().getStageManager().getStageValue(STAGE));
+      controller.loadDefaultGrid();
+      List<Species> species = new ArrayList<Species>();
+      for (String name : RANDOM_SPECIES) {
+         species.add(controller.getSpeciesManager().getSpeciesValue(name));
+      }
+      Random rand = new Random(SEED);
+      int pruned = 0;
+      for (int i = 0; i < BOARDS; i++) {
+         pruned += compare("Board " + i, getRandomBoard(species, rand));
+      }
+      assertTrue("Some moves are pruned", pruned > 0);
+   }
+   
+   /**
+    * @return The number of moves which were pruned.
+    */
+   private static int compare(String name, Board board) {
+      List<SimulationResult> full = simulate(board, false);
+      List<SimulationResult> pruning = simulate(board, true);
+      assertEquals(name + " has the same moves", full.size(), pruning.size());
+      if (full.isEmpty()) {
+         return 0;
+      }
+      assertEquals(name + " has the same best move", full.get(0).getMove(), pruning.get(0).getMove());
+      assertTrue(name + " never prunes the best move", !pruning.get(0).isPruned());
+      Map<List<Integer>, SimulationResult> expected = new HashMap<List<Integer>, SimulationResult>();
+      for (SimulationResult result : full) {
+         expected.put(result.getMove(), result);
+      }
+      int pruned = 0;
+      for (SimulationResult result : pruning) {
+         SimulationResult other = expected.get(result.getMove());
+         if (result.isPruned()) {
+            pruned++;
+         } else {
+            String text = name + " has the same result for " + result.getMove();
+            assertTrue(text, SimulationDifferential.matches(other.getNetScore(), result.getNetScore()));
+            assertTrue(text, SimulationDifferential.matches(other.getNetGold(), result.getNetGold()));
+            assertTrue(text, SimulationDifferential.matches(other.getBlocksCleared(), result.getBlocksCleared()));
+            assertTrue(text, SimulationDifferential.matches(other.getCombosCleared(), result.getCombosCleared()));
+            assertEquals(text, other.getBoard(), result.getBoard());
+         }
+      }
+      return pruned;
+   }
+   
+   private static List<SimulationResult> simulate(Board board, boolean prune) {
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, prune);
+      SimulationCore core = new SimulationCore(controller, UUID.randomUUID(), board, controller.getMegaProgress(),
+            controller.getRemainingHealth(), controller.getRemainingMoves(), controller);
+      core.setRandomSeed(SEED);
+      return new ArrayList<SimulationResult>(core.getResults());
+   }
+   
+   private static Board getRandomBoard(List<Species> species, Random rand) {
+      Board ret = new Board(controller.getBoardManager().getBoard());
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            Species next = species.get(rand.nextInt(species.size()));
+            while (isMatch(ret, row, col, next)) {
+               next = species.get(rand.nextInt(species.size()));
+            }
+            ret.setSpeciesAt(row, col, next);
+         }
+      }
+      return ret;
+   }
+   
+   // Only the cells before this one are filled yet
+   private static boolean isMatch(Board board, int row, int col, Species species) {
+      boolean inRow = col > 2 && species.equals(board.getSpeciesAt(row, col - 1))
+            && species.equals(board.getSpeciesAt(row, col - 2));
+      boolean inColumn = row > 2 && species.equals(board.getSpeciesAt(row - 1, col))
+            && species.equals(board.getSpeciesAt(row - 2, col));
+      return inRow || inColumn;
+   }
+}
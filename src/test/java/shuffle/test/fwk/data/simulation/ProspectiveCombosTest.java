@@ -0,0 +1,80 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import shuffle.fwk.data.Effect;
+import shuffle.fwk.data.simulation.ProspectiveCombos;
+import shuffle.fwk.data.simulation.effects.ActivateComboEffect;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class ProspectiveCombosTest {
+   
+   @Test
+   public final void testPriorityOrder() {
+      ProspectiveCombos combos = new ProspectiveCombos();
+      ActivateComboEffect vertical = new ActivateComboEffect(Arrays.asList(1, 1, 2, 1, 3, 1), Effect.NONE);
+      ActivateComboEffect three = new ActivateComboEffect(Arrays.asList(4, 1, 4, 2, 4, 3), Effect.NONE);
+      ActivateComboEffect four = new ActivateComboEffect(Arrays.asList(5, 1, 5, 2, 5, 3, 5, 4), Effect.NONE);
+      assertTrue(combos.add(vertical));
+      assertTrue(combos.add(three));
+      assertTrue(combos.add(four));
+      assertFalse("An equal priority is already present",
+            combos.add(new ActivateComboEffect(Arrays.asList(4, 1, 4, 2, 4, 3), Effect.NONE)));
+      assertEquals(3, combos.size());
+      assertSame(three, combos.getFirstAt(4, 2));
+      assertNull(combos.getFirstAt(6, 6));
+      assertSame("Larger combos come first", four, combos.pollFirst());
+      assertSame("Horizontal combos come before vertical ones", three, combos.pollFirst());
+      assertTrue(combos.remove(vertical));
+      assertTrue(combos.isEmpty());
+      assertNull(combos.pollFirst());
+   }
+   
+   @Test
+   public final void testRemoveColliding() {
+      ProspectiveCombos combos = new ProspectiveCombos();
+      for (int row = 1; row <= 6; row++) {
+         combos.add(new ActivateComboEffect(Arrays.asList(row, 1, row, 2, row, 3), Effect.NONE));
+      }
+      ActivateComboEffect column = new ActivateComboEffect(Arrays.asList(1, 6, 2, 6, 3, 6), Effect.NONE);
+      combos.add(column);
+      assertEquals("Grows past its initial capacity", 7, combos.size());
+      List<ActivateComboEffect> removed = combos.removeColliding(Arrays.asList(2, 2, 3, 2, 3, 6));
+      assertEquals(3, removed.size());
+      assertTrue(removed.get(0).containsCoords(2, 2) && removed.get(1).containsCoords(3, 2));
+      assertSame(column, removed.get(2));
+      assertEquals(4, combos.size());
+      assertNull(combos.getFirstAt(3, 1));
+      assertTrue(combos.getFirstAt(4, 1).containsCoords(4, 3));
+   }
+}
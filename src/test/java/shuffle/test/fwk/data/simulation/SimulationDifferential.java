@@ -0,0 +1,311 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.Stage;
+import shuffle.fwk.data.simulation.LegacySimulationEngine;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * Compares the results of two simulation configurations on the same boards, with the random draws
+ * of both fixed by the same seed. A configuration is the name of an engine, optionally followed by
+ * <code>+memo</code> to memoise cascades. Every move must have the same score, gold, blocks,
+ * disruptions, combos, progress and result board in both.<br>
+ * <br>
+ * A board which does not match is reduced, one cell at a time, to a board which still does not
+ * match with as few blocks as possible. That board is reported in the board file format, so it can
+ * be loaded and debugged as is.<br>
+ * <br>
+ * The main method compares any two configurations on every default board and on random boards:<br>
+ * <code>[reference] [candidate] [random boards] [seed] [feeders]</code><br>
+ * The <code>shuffle.engine</code> system property must not be set, as it would override both.
+ * 
+ * @author Andrew Meyers
+ */
+public class SimulationDifferential {
+   
+   public static final String MEMO_SUFFIX = "+memo";
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_APPROXIMATE_MODE = "APPROXIMATE_MODE";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final String KEY_SIMULATION_ENGINE = "SIMULATION_ENGINE";
+   private static final String BOARD_RESOURCE = "config/defaults/boards/%s.txt";
+   private static final double TOLERANCE = 1e-9;
+   private static final long DEFAULT_SEED = 42L;
+   
+   private final ShuffleController controller;
+   
+   private final String reference;
+   private final String candidate;
+   private final long seed;
+   
+   /**
+    * @param reference
+    *           The configuration which is trusted
+    * @param candidate
+    *           The configuration which is checked against it
+    * @param seed
+    *           The seed for the random draws of both
+    * @param feeders
+    *           The number of feeders to simulate each move with
+    */
+   public SimulationDifferential(String reference, String candidate, long seed, int feeders) {
+      this.reference = reference;
+      this.candidate = candidate;
+      this.seed = seed;
+      controller = new ShuffleController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_APPROXIMATE_MODE, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 1);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, feeders);
+   }
+   
+   public static void main(String[] args) {
+      String reference = args.length > 0 ? args[0] : LegacySimulationEngine.NAME;
+      String candidate = args.length > 1 ? args[1] : LegacySimulationEngine.NAME + MEMO_SUFFIX;
+      int randomBoards = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+      long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+      int feeders = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+      SimulationDifferential differential = new SimulationDifferential(reference, candidate, seed, feeders);
+      List<Stage> stages = new ArrayList<Stage>();
+      for (Stage stage : differential.controller.getModel().getStageManager().getAllStages()) {
+         if (ClassLoader.getSystemResource(String.format(BOARD_RESOURCE, stage.getName())) != null) {
+            stages.add(stage);
+         }
+      }
+      int mismatches = 0;
+      for (Stage stage : stages) {
+         mismatches += report("Stage " + stage.getName(), differential.compareDefaultBoard(stage));
+      }
+      Random rand = new Random(seed);
+      for (int i = 0; i < randomBoards && !stages.isEmpty(); i++) {
+         Stage stage = stages.get(rand.nextInt(stages.size()));
+         mismatches += report("Random board " + i + " for " + stage.getName(),
+               differential.compareRandomBoard(stage, rand));
+      }
+      System.out.println(String.format("%d of %d boards do not match between %s and %s", mismatches,
+            stages.size() + randomBoards, reference, candidate));
+      System.exit(mismatches == 0 ? 0 : 1);
+   }
+   
+   /**
+    * @param name
+    *           The name of the stage
+    * @return The stage, or null if there is no such stage.
+    */
+   public Stage getStage(String name) {
+      return controller.getModel().getStageManager().getStageValue(name);
+   }
+   
+   private static int report(String name, String mismatch) {
+      if (mismatch == null) {
+         return 0;
+      }
+      System.out.println(name + " does not match:\n" + mismatch);
+      return 1;
+   }
+   
+   /**
+    * @param stage
+    *           The stage whose default board is compared
+    * @return A description of the reduced board which does not match, or null if the board matches.
+    */
+   public String compareDefaultBoard(Stage stage) {
+      controller.setCurrentStage(stage);
+      controller.loadDefaultGrid();
+      return compare(stage, controller.getBoardManager().getBoard());
+   }
+   
+   /**
+    * Compares a random board of the species in the stage's default board and team, with some of
+    * them frozen.
+    * 
+    * @param stage
+    *           The stage to compare a random board for
+    * @param rand
+    *           The source of the random board
+    * @return A description of the reduced board which does not match, or null if the board matches.
+    */
+   public String compareRandomBoard(Stage stage, Random rand) {
+      controller.setCurrentStage(stage);
+      controller.loadDefaultGrid();
+      Board board = new Board(controller.getBoardManager().getBoard());
+      Set<Species> present = new HashSet<Species>(board.getSpeciesPresent());
+      present.addAll(controller.getCurrentTeam().getSpecies(controller.getSpeciesManager()));
+      present.remove(Species.AIR);
+      List<Species> options = new ArrayList<Species>(present);
+      if (options.isEmpty()) {
+         return null;
+      }
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            board.setSpeciesAt(row, col, options.get(rand.nextInt(options.size())));
+            board.setFrozenAt(row, col, rand.nextInt(12) == 0);
+         }
+      }
+      return compare(stage, board);
+   }
+   
+   private String compare(Stage stage, Board board) {
+      if (findMismatch(board) == null) {
+         return null;
+      }
+      Board reduced = reduce(board);
+      return findMismatch(reduced) + "\n" + toBoardFile(stage, reduced);
+   }
+   
+   /**
+    * Empties or thaws one cell at a time, as long as the board still does not match, until no cell
+    * can be.
+    */
+   private Board reduce(Board board) {
+      Board current = new Board(board);
+      boolean reduced = true;
+      while (reduced) {
+         reduced = false;
+         for (int row = 1; row <= Board.NUM_ROWS; row++) {
+            for (int col = 1; col <= Board.NUM_COLS; col++) {
+               List<Board> options = new ArrayList<Board>();
+               if (!current.isAir(row, col)) {
+                  Board emptied = new Board(current);
+                  emptied.setSpeciesAt(row, col, Species.AIR);
+                  emptied.setFrozenAt(row, col, false);
+                  options.add(emptied);
+               }
+               if (current.isFrozenAt(row, col)) {
+                  Board thawed = new Board(current);
+                  thawed.setFrozenAt(row, col, false);
+                  options.add(thawed);
+               }
+               for (Board option : options) {
+                  if (findMismatch(option) != null) {
+                     current = option;
+                     reduced = true;
+                     break;
+                  }
+               }
+            }
+         }
+      }
+      return current;
+   }
+   
+   /**
+    * @return A description of the first move which does not match, or null if every move matches.
+    */
+   private String findMismatch(Board board) {
+      Map<List<Integer>, SimulationResult> expected = simulate(board, reference);
+      Map<List<Integer>, SimulationResult> actual = simulate(board, candidate);
+      if (!expected.keySet().equals(actual.keySet())) {
+         return String.format("Moves differ, %s has %s but %s has %s", reference, expected.keySet(), candidate,
+               actual.keySet());
+      }
+      for (List<Integer> move : expected.keySet()) {
+         String mismatch = compareResults(expected.get(move), actual.get(move));
+         if (mismatch != null) {
+            return "Move " + move + ": " + mismatch;
+         }
+      }
+      return null;
+   }
+   
+   private Map<List<Integer>, SimulationResult> simulate(Board board, String configuration) {
+      boolean memo = configuration.endsWith(MEMO_SUFFIX);
+      String engine = memo ? configuration.substring(0, configuration.length() - MEMO_SUFFIX.length())
+            : configuration;
+      controller.getPreferencesManager().setEntry(EntryType.STRING, KEY_SIMULATION_ENGINE, engine);
+      SimulationCore core = new SimulationCore(controller, UUID.randomUUID(), board, controller.getMegaProgress(),
+            controller.getRemainingHealth(), controller.getRemainingMoves(), controller);
+      core.setRandomSeed(seed);
+      if (memo) {
+         core.setCascadeMemo(null);
+      }
+      Collection<SimulationResult> results = core.getResults();
+      Map<List<Integer>, SimulationResult> ret = new HashMap<List<Integer>, SimulationResult>();
+      for (SimulationResult result : results) {
+         ret.put(result.getMove(), result);
+      }
+      return ret;
+   }
+   
+   private String compareResults(SimulationResult expected, SimulationResult actual) {
+      String[] names = { "score", "gold", "blocks", "disruptions", "combos", "progress" };
+      NumberSpan[] expectedSpans = { expected.getNetScore(), expected.getNetGold(), expected.getBlocksCleared(),
+            expected.getDisruptionsCleared(), expected.getCombosCleared(), expected.getProgress() };
+      NumberSpan[] actualSpans = { actual.getNetScore(), actual.getNetGold(), actual.getBlocksCleared(),
+            actual.getDisruptionsCleared(), actual.getCombosCleared(), actual.getProgress() };
+      for (int i = 0; i < names.length; i++) {
+         if (!matches(expectedSpans[i], actualSpans[i])) {
+            return String.format("%s is %s for %s but %s for %s", names[i], expectedSpans[i], reference,
+                  actualSpans[i], candidate);
+         }
+      }
+      if (!expected.getBoard().equals(actual.getBoard())) {
+         return String.format("result board for %s is\n%s\nbut for %s is\n%s", reference, expected.getBoard(),
+               candidate, actual.getBoard());
+      }
+      return null;
+   }
+   
+   // The sums of the same samples may be rounded differently if they are added in another order.
+   static boolean matches(NumberSpan expected, NumberSpan actual) {
+      return expected.getCount() == actual.getCount() && expected.getMinimum() == actual.getMinimum()
+            && expected.getMaximum() == actual.getMaximum() && isClose(expected.getTotal(), actual.getTotal())
+            && isClose(expected.getSquaredDeviations(), actual.getSquaredDeviations());
+   }
+   
+   private static boolean isClose(double expected, double actual) {
+      return Math.abs(expected - actual) <= TOLERANCE * Math.max(1.0, Math.abs(expected));
+   }
+   
+   private static String toBoardFile(Stage stage, Board board) {
+      StringBuilder sb = new StringBuilder("STAGE " + stage.getName());
+      for (int row = 1; row <= Board.NUM_ROWS; row++) {
+         List<String> names = new ArrayList<String>();
+         List<String> frozen = new ArrayList<String>();
+         for (int col = 1; col <= Board.NUM_COLS; col++) {
+            names.add(board.getSpeciesAt(row, col).getName());
+            frozen.add(Boolean.toString(board.isFrozenAt(row, col)));
+         }
+         sb.append(String.format("\nROW_%d %s\nFROW_%d %s", row, String.join(",", names), row,
+               String.join(",", frozen)));
+      }
+      return sb.toString();
+   }
+}
@@ -0,0 +1,63 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import shuffle.fwk.data.simulation.LegacySimulationEngine;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class SimulationDifferentialTest {
+   
+   private static final long SEED = 42L;
+   private static final int FEEDERS = 4;
+   private static final List<String> STAGES = Arrays.asList("001", "008", "014");
+   private static SimulationDifferential differential;
+   
+   @BeforeClass
+   public static void setUpBeforeClass() {
+      differential = new SimulationDifferential(LegacySimulationEngine.NAME,
+            LegacySimulationEngine.NAME + SimulationDifferential.MEMO_SUFFIX, SEED, FEEDERS);
+   }
+   
+   @Test
+   public final void testDefaultBoards() {
+      for (String name : STAGES) {
+         assertNull(differential.compareDefaultBoard(differential.getStage(name)));
+      }
+   }
+   
+   @Test
+   public final void testRandomBoards() {
+      Random rand = new Random(SEED);
+      for (String name : STAGES) {
+         assertNull(differential.compareRandomBoard(differential.getStage(name), rand));
+      }
+   }
+}
@@ -0,0 +1,45 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import shuffle.fwk.data.simulation.LegacySimulationEngine;
+import shuffle.fwk.data.simulation.SimulationEngine;
+import shuffle.fwk.data.simulation.SimulationEngines;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class SimulationEnginesTest {
+   
+   @Test
+   public final void testGetEngine() {
+      SimulationEngine legacy = SimulationEngines.getEngine(LegacySimulationEngine.NAME);
+      assertEquals(LegacySimulationEngine.NAME, legacy.getName());
+      assertTrue(SimulationEngines.getNames().contains(LegacySimulationEngine.NAME));
+      assertSame("Unknown engines fall back to legacy", legacy, SimulationEngines.getEngine("no such engine"));
+      assertSame(legacy, SimulationEngines.getEngine(null));
+   }
+}
@@ -0,0 +1,181 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.Board;
+import shuffle.fwk.data.Species;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationEstimator;
+import shuffle.fwk.data.simulation.SimulationFeeder;
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.SimulationState;
+import shuffle.fwk.data.simulation.SimulationTask;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class SimulationEstimatorTest {
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final String KEY_APPROXIMATE_MODE = "APPROXIMATE_MODE";
+   private static final String KEY_APPROXIMATE_CANDIDATES = "APPROXIMATE_CANDIDATES";
+   private static final String KEY_DISABLED_EFFECTS = "DISABLED_EFFECTS";
+   private static final int CANDIDATES = 5;
+   private static final long SEED = 1L;
+   private static ShuffleController controller;
+   
+   @BeforeClass
+   public static void setUpBeforeClass() {
+      controller = new ShuffleController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 1);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, 4);
+      controller.setCurrentStage(controller.getModel().getStageManager().getStageValue("001"));
+      controller.loadDefaultGrid();
+   }
+   
+   @After
+   public void tearDown() {
+      controller.getPreferencesManager().removeEntry(EntryType.STRING, KEY_DISABLED_EFFECTS);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_APPROXIMATE_MODE, false);
+   }
+   
+   /**
+    * With no skills, no mega progress and no feeder, every move of the default board cascades at most once, so the
+    * estimate finds exactly the combos, blocks and score that the simulation does.
+    */
+   @Test
+   public final void testMatchesSimulation() {
+      disableSkills();
+      Board board = controller.getBoardManager().getBoard();
+      SimulationCore core = getCore(board);
+      SimulationEstimator estimator = new SimulationEstimator(core);
+      List<List<Integer>> moves = core.getPossibleMoves(board);
+      assertTrue("Stage 001 has moves in its default board.", !moves.isEmpty());
+      int followUps = 0;
+      for (List<Integer> move : moves) {
+         SimulationResult estimate = estimator.getEstimate(move, core.getId(), 0L);
+         SimulationState state = new SimulationTask(core, move, new SimulationFeeder()).invoke();
+         String text = "Move " + move;
+         assertTrue(estimate.isApproximate());
+         assertEquals(text, state.getCombosCleared(), estimate.getCombosCleared().getAverage(), 0);
+         assertEquals(text, state.getBlocksCleared(), estimate.getBlocksCleared().getAverage(), 0);
+         assertEquals(text, state.getDisruptionsCleared(), estimate.getDisruptionsCleared().getAverage(), 0);
+         assertEquals(text, state.getScore().getAverage(), estimate.getNetScore().getAverage(), 0);
+         if (state.getCombosCleared() > 1) {
+            followUps++;
+         }
+      }
+      assertTrue("Some moves of the default board make more than one combo.", followUps > 0);
+   }
+   
+   /**
+    * Frozen blocks and wood which combos break must be counted as the simulation counts them.
+    */
+   @Test
+   public final void testDisruptions() {
+      disableSkills();
+      Board board = new Board(controller.getBoardManager().getBoard());
+      board.setFrozenAt(4, 3, true);
+      board.setFrozenAt(5, 4, true);
+      board.setSpeciesAt(1, 6, Species.WOOD);
+      board.setSpeciesAt(6, 1, Species.WOOD);
+      SimulationCore core = getCore(board);
+      SimulationEstimator estimator = new SimulationEstimator(core);
+      int disrupting = 0;
+      for (List<Integer> move : core.getPossibleMoves(board)) {
+         SimulationResult estimate = estimator.getEstimate(move, core.getId(), 0L);
+         SimulationState state = new SimulationTask(core, move, new SimulationFeeder()).invoke();
+         assertEquals("Move " + move, state.getDisruptionsCleared(), estimate.getDisruptionsCleared().getAverage(),
+               0);
+         if (state.getDisruptionsCleared() > 0) {
+            disrupting++;
+         }
+      }
+      assertTrue("Some moves break the disruptions.", disrupting > 0);
+   }
+   
+   @Test
+   public final void testKeepsBestCandidates() {
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_APPROXIMATE_MODE, true);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_APPROXIMATE_CANDIDATES, CANDIDATES);
+      Board board = controller.getBoardManager().getBoard();
+      SimulationCore core = getCore(board);
+      List<List<Integer>> moves = core.getPossibleMoves(board);
+      assertTrue(moves.size() > CANDIDATES);
+      
+      Map<List<Integer>, SimulationResult> estimates = new SimulationEstimator(core).getEstimates(moves, core.getId(),
+            0L);
+      List<SimulationResult> ranked = new ArrayList<SimulationResult>(estimates.values());
+      Collections.sort(ranked, core.getGradingMetric());
+      Set<List<Integer>> expected = new HashSet<List<Integer>>();
+      for (SimulationResult result : ranked.subList(0, CANDIDATES)) {
+         expected.add(result.getMove());
+      }
+      
+      Collection<SimulationResult> results = core.getResults();
+      assertEquals("Every move has a result", moves.size(), results.size());
+      Set<List<Integer>> simulated = new HashSet<List<Integer>>();
+      for (SimulationResult result : results) {
+         if (!result.isApproximate()) {
+            simulated.add(result.getMove());
+         }
+      }
+      assertEquals("Only the best estimated moves are simulated", expected, simulated);
+   }
+   
+   private static SimulationCore getCore(Board board) {
+      SimulationCore core = new SimulationCore(controller, UUID.randomUUID(), board, 0,
+            controller.getRemainingHealth(), controller.getRemainingMoves(), controller);
+      core.setRandomSeed(SEED);
+      return core;
+   }
+   
+   private static void disableSkills() {
+      StringBuilder sb = new StringBuilder();
+      for (Species species : controller.getCurrentTeam().getSpecies(controller.getSpeciesManager())) {
+         sb.append(" ");
+         sb.append(species.getEffect(controller.getRosterManager()));
+      }
+      controller.getPreferencesManager().setEntry(EntryType.STRING, KEY_DISABLED_EFFECTS, sb.toString().trim());
+   }
+}
@@ -0,0 +1,226 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import shuffle.fwk.ShuffleController;
+import shuffle.fwk.config.EntryType;
+import shuffle.fwk.data.simulation.SimulationCore;
+import shuffle.fwk.data.simulation.SimulationLookahead;
+import shuffle.fwk.data.simulation.SimulationResult;
+import shuffle.fwk.data.simulation.util.SimulationAcceptor;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class SimulationLookaheadTest {
+   
+   private static final String KEY_NUM_FEEDERS = "NUM_FEEDERS";
+   private static final String KEY_AUTO_COMPUTE = "AUTO_COMPUTE";
+   private static final String KEY_PRUNE_MOVES = "PRUNE_MOVES";
+   private static final String KEY_LOOKAHEAD_DEPTH = "LOOKAHEAD_DEPTH";
+   private static final String KEY_LOOKAHEAD_NODES = "LOOKAHEAD_NODES";
+   private static final long SEED = 1L;
+   private static final int HEALTH = 100000;
+   private static final int MOVES = 5;
+   // The most turns a search of two turns may need: 4 moves, 3 boards each
+   private static final int TWO_TURN_NODES = 12;
+   private static final int UNLIMITED = 1000;
+   private static ShuffleController controller;
+   
+   @BeforeClass
+   public static void setUpBeforeClass() {
+      controller = new ShuffleController();
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_AUTO_COMPUTE, false);
+      controller.getPreferencesManager().setEntry(EntryType.BOOLEAN, KEY_PRUNE_MOVES, false);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_NUM_FEEDERS, 2);
+      // Board chances are only kept when searching ahead, but the test searches on its own
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_DEPTH, 2);
+      controller.getPreferencesManager().setEntry(EntryType.INTEGER, KEY_LOOKAHEAD_NODES, 0);
+      controller.setCurrentStage(controller.getModel().getStageManager().getStageValue("001"));
+      controller.loadDefaultGrid();
+   }
+   
+   @Test
+   public final void testScoresAndOrder() {
+      SimulationCore core = getCore(HEALTH, MOVES);
+      Collection<SimulationResult> results = core.getResults();
+      SimulationLookahead lookahead = new SimulationLookahead(core, 2, TWO_TURN_NODES);
+      List<SimulationResult> searched = new ArrayList<SimulationResult>(lookahead.apply(results));
+      assertEquals(results.size(), searched.size());
+      assertInOrder(core.getGradingMetric(), searched);
+      
+      Map<List<Integer>, Double> futures = getFutures(searched);
+      for (SimulationResult result : searched) {
+         assertTrue("Nothing is lost by searching ahead", futures.get(result.getMove()) >= 0);
+      }
+      List<SimulationResult> best = new ArrayList<SimulationResult>(results).subList(0, 4);
+      int gained = 0;
+      for (SimulationResult result : best) {
+         if (futures.get(result.getMove()) > 0) {
+            gained++;
+         }
+      }
+      assertTrue("The best moves gain from the next turn", gained > 0);
+      for (SimulationResult result : searched) {
+         if (!best.contains(result)) {
+            assertEquals("Only the best moves are searched", 0, futures.get(result.getMove()), 0);
+         }
+      }
+   }
+   
+   @Test
+   public final void testNodeBudget() {
+      SimulationCore core = getCore(HEALTH, MOVES);
+      Collection<SimulationResult> results = core.getResults();
+      
+      SimulationLookahead none = new SimulationLookahead(core, 2, 0);
+      Map<List<Integer>, Double> futures = getFutures(none.apply(results));
+      assertEquals(0, none.getNodesSearched());
+      for (Double future : futures.values()) {
+         assertEquals("Nothing is searched without a budget", 0, future, 0);
+      }
+      
+      int needed = getNodesNeeded(core, results, 2);
+      assertTrue("Two turns need at most 4 moves of 3 boards", needed <= TWO_TURN_NODES);
+      assertTrue(needed > 1);
+      SimulationLookahead some = new SimulationLookahead(core, 2, needed - 1);
+      some.apply(results);
+      assertEquals("The budget is spent", needed - 1, some.getNodesSearched());
+   }
+   
+   @Test
+   public final void testTranspositions() {
+      SimulationCore core = getCore(HEALTH, MOVES);
+      Collection<SimulationResult> results = core.getResults();
+      SimulationLookahead lookahead = new SimulationLookahead(core, 2, TWO_TURN_NODES);
+      Map<List<Integer>, Double> first = getFutures(lookahead.apply(results));
+      int nodes = lookahead.getNodesSearched();
+      assertTrue(nodes > 0);
+      
+      Map<List<Integer>, Double> second = getFutures(lookahead.apply(results));
+      assertEquals("Every board is already known", nodes, lookahead.getNodesSearched());
+      assertTrue(lookahead.getTranspositionHits() >= nodes);
+      assertEquals(first, second);
+   }
+   
+   @Test
+   public final void testKnockOut() {
+      SimulationCore full = getCore(HEALTH, MOVES);
+      List<Double> scores = new ArrayList<Double>();
+      for (SimulationResult result : full.getResults()) {
+         scores.add(result.getNetScore().getAverage());
+      }
+      Collections.sort(scores, Collections.reverseOrder());
+      // More moves are a KO than are searched, so the moves which are not searched must be capped too
+      int health = scores.get(5).intValue();
+      assertTrue(health > 0);
+      SimulationCore core = getCore(health, MOVES);
+      Collection<SimulationResult> searched = new SimulationLookahead(core, 2, TWO_TURN_NODES)
+            .apply(core.getResults());
+      int knockOuts = 0;
+      for (SimulationResult result : searched) {
+         assertTrue("Nothing is gained past a KO", result.getLookaheadScore() <= health);
+         if (result.getNetScore().getAverage() >= health) {
+            assertEquals(health, result.getLookaheadScore(), 0);
+            knockOuts++;
+         }
+      }
+      assertTrue(knockOuts > 4);
+   }
+   
+   @Test
+   public final void testDepth() {
+      SimulationCore core = getCore(HEALTH, MOVES);
+      Collection<SimulationResult> results = core.getResults();
+      
+      SimulationLookahead single = new SimulationLookahead(core, 1, UNLIMITED);
+      Map<List<Integer>, Double> futures = getFutures(single.apply(results));
+      assertEquals("One turn is not searched", 0, single.getNodesSearched());
+      for (Double future : futures.values()) {
+         assertEquals(0, future, 0);
+      }
+      
+      int twoTurns = getNodesNeeded(core, results, 2);
+      assertTrue("Three turns search past the second", getNodesNeeded(core, results, 3) > twoTurns);
+      
+      // With only one move left, there is no third turn to search
+      SimulationCore last = getCore(HEALTH, 1);
+      Collection<SimulationResult> lastResults = last.getResults();
+      assertEquals(getNodesNeeded(last, lastResults, 2), getNodesNeeded(last, lastResults, 3));
+   }
+   
+   private static int getNodesNeeded(SimulationCore core, Collection<SimulationResult> results, int depth) {
+      SimulationLookahead lookahead = new SimulationLookahead(core, depth, UNLIMITED);
+      lookahead.apply(results);
+      return lookahead.getNodesSearched();
+   }
+   
+   private static SimulationCore getCore(int health, int moves) {
+      TestAcceptor acceptor = new TestAcceptor();
+      SimulationCore core = new SimulationCore(controller, acceptor.getAcceptedId(),
+            controller.getBoardManager().getBoard(), 0, health, moves, acceptor);
+      core.setRandomSeed(SEED);
+      return core;
+   }
+   
+   private static Map<List<Integer>, Double> getFutures(Collection<SimulationResult> results) {
+      Map<List<Integer>, Double> ret = new HashMap<List<Integer>, Double>();
+      for (SimulationResult result : results) {
+         ret.put(result.getMove(), result.getLookaheadScore() - result.getNetScore().getAverage());
+      }
+      return ret;
+   }
+   
+   private static void assertInOrder(Comparator<SimulationResult> metric, List<SimulationResult> results) {
+      for (int i = 1; i < results.size(); i++) {
+         assertTrue("Results are in order of the grading metric",
+               metric.compare(results.get(i - 1), results.get(i)) <= 0);
+      }
+   }
+   
+   private static class TestAcceptor implements SimulationAcceptor {
+      private final UUID id = UUID.randomUUID();
+      
+      @Override
+      public void acceptResults(Collection<SimulationResult> results) {
+         // The results are taken from the simulation directly
+      }
+      
+      @Override
+      public UUID getAcceptedId() {
+         return id;
+      }
+   }
+}
@@ -18,9 +18,12 @@
 package shuffle.test.fwk.data.simulation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import org.junit.Test;
 
+import shuffle.fwk.data.simulation.SimulationArena;
 import shuffle.fwk.data.simulation.SimulationTask;
 
 /**
@@ -62,4 +65,29 @@ public class SimulationTaskTest {
       }
    }
    
+   @Test
+   public final void testArenaReuse() {
+      SimulationArena first = SimulationArena.acquire();
+      SimulationArena nested = SimulationArena.acquire();
+      assertNotSame("An arena in use is never handed out again", first, nested);
+      nested.release();
+      first.release();
+      SimulationArena second = SimulationArena.acquire();
+      assertSame("A released arena is reused by its thread", first, second);
+      second.release();
+   }
+   
+   @Test(expected = IllegalStateException.class)
+   public final void testArenaPoisoning() {
+      boolean wasPoisoning = SimulationArena.isPoisoning();
+      SimulationArena.setPoisoning(true);
+      SimulationArena arena = SimulationArena.acquire();
+      try {
+         SimulationArena.acquire();
+      } finally {
+         arena.release();
+         SimulationArena.setPoisoning(wasPoisoning);
+      }
+   }
+   
 }
@@ -0,0 +1,68 @@
+/*  ShuffleMove - A program for identifying and simulating ideal moves in the game
+ *  called Pokemon Shuffle.
+ *  
+ *  Copyright (C) 2015  Andrew Meyers
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package shuffle.test.fwk.data.simulation.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import shuffle.fwk.data.simulation.util.NumberSpan;
+
+/**
+ * @author Andrew Meyers
+ * 
+ */
+public class NumberSpanTest {
+   
+   private static final double DELTA = 1e-9;
+   
+   @Test
+   public void testVariance() {
+      int[] values = { 2, 4, 4, 4, 5, 5, 7, 9 };
+      NumberSpan byValue = new NumberSpan();
+      NumberSpan bySpan = new NumberSpan();
+      for (int value : values) {
+         byValue = byValue.put(value, 1f);
+         bySpan = bySpan.put(new NumberSpan(value));
+      }
+      // Sample variance of the above is 32 / 7
+      assertEquals(5, byValue.getAverage(), DELTA);
+      assertEquals(32.0 / 7, byValue.getVariance(), DELTA);
+      assertEquals(32.0 / 7, bySpan.getVariance(), DELTA);
+      assertEquals(1.96 * Math.sqrt(32.0 / 7 / 8), byValue.getConfidenceRadius(), DELTA);
+      assertEquals(4.0 * 32 / 7, byValue.multiplyBy(2).getVariance(), DELTA);
+      assertEquals(32.0 / 7, byValue.add(10).getVariance(), DELTA);
+   }
+   
+   @Test
+   public void testDistinguishable() {
+      NumberSpan low = new NumberSpan();
+      NumberSpan close = new NumberSpan();
+      NumberSpan high = new NumberSpan();
+      for (int i = 0; i < 50; i++) {
+         low = low.put(100 + i % 10, 1f);
+         close = close.put(101 + i % 10, 1f);
+         high = high.put(200 + i % 10, 1f);
+      }
+      assertTrue(!low.isDistinguishableFrom(close));
+      assertTrue(low.isDistinguishableFrom(high));
+      assertEquals(0, new NumberSpan(5).getConfidenceRadius(), DELTA);
+   }
+}